@@ -4,11 +4,18 @@ import android.app.Application;
 import android.content.SharedPreferences;
 import androidx.appcompat.app.AppCompatDelegate;
 
+import com.example.looplab.data.CurrentUserCache;
+import com.example.looplab.data.HttpClients;
+import com.example.looplab.data.LocalStore;
+
 public class LoopLabApplication extends Application {
 
     @Override
     public void onCreate() {
         super.onCreate();
+        LocalStore.init(this);
+        HttpClients.init(this);
+        CurrentUserCache.init();
         initializeTheme();
     }
 
@@ -0,0 +1,406 @@
+package com.example.looplab.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide cache of AI tutor answers to stand-alone questions.
+ *
+ * Entries are keyed on the normalized question without filler words, the user's role and a
+ * hash of the system prompt. A lookup first tries an exact match on that key, then a similarity
+ * match: the key text is shingled into character trigrams and summarized by a MinHash
+ * signature, candidates are found through LSH bands, and the best candidate whose estimated
+ * Jaccard similarity reaches the threshold is served, provided both questions have the same
+ * content words (so "and operator" never answers "or operator"). Follow-ups that lean on earlier
+ * turns ("explain that again") are never cached. Entries expire after the TTL, the least
+ * recently used are evicted past {@link #MAX_ENTRIES}, and once {@link #enablePersistence} is
+ * called the cache is loaded from and saved (debounced) to a file in the app's cache dir.
+ */
+public final class AIResponseCache {
+    private static final String TAG = "AIResponseCache";
+
+    static final int MAX_ENTRIES = 200;
+    public static final long DEFAULT_TTL_MS = 24 * 60 * 60 * 1000L;
+    public static final double DEFAULT_SIMILARITY_THRESHOLD = 0.8;
+    static final int NUM_HASHES = 64;
+    static final int BANDS = 16;
+    static final int ROWS_PER_BAND = NUM_HASHES / BANDS;
+    static final int SHINGLE_SIZE = 3;
+    static final long SAVE_DELAY_MS = 2000;
+    private static final String FILE_NAME = "ai_response_cache.json";
+
+    // Filler that makes no difference to the answer; dropped before keying and shingling
+    private static final Set<String> FILLER_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "the", "please", "can", "could", "would", "you", "tell", "me", "about",
+            "explain", "describe"));
+    // Question framing: part of the key, but not of the content words a similar hit must share
+    private static final Set<String> QUESTION_WORDS = new HashSet<>(Arrays.asList(
+            "what", "whats", "s", "how", "is", "are", "was", "were", "be", "do", "does", "i"));
+    // Words that point back at earlier turns: the answer depends on the conversation
+    private static final Set<String> FOLLOW_UP_WORDS = new HashSet<>(Arrays.asList(
+            "it", "its", "that", "this", "these", "those", "them", "they", "he", "she", "more",
+            "again", "above", "previous", "earlier", "else", "same", "instead"));
+
+    private static final long[] SEEDS = new long[NUM_HASHES];
+    static {
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            seed = mix(seed + 0x9E3779B97F4A7C15L);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private static final AIResponseCache shared = new AIResponseCache();
+    private static final Gson gson = new Gson();
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() <= MAX_ENTRIES) return false;
+            unindex(eldest.getValue());
+            return true;
+        }
+    };
+    // LSH band key -> keys of the entries in that bucket
+    private final Map<String, Set<String>> buckets = new HashMap<>();
+    private final ScheduledExecutorService io = Executors.newSingleThreadScheduledExecutor();
+
+    private long ttlMs = DEFAULT_TTL_MS;
+    private double similarityThreshold = DEFAULT_SIMILARITY_THRESHOLD;
+    private File file;
+    private ScheduledFuture<?> pendingSave;
+    private long exactHits;
+    private long similarHits;
+    private long misses;
+
+    private static class Entry {
+        String role;
+        String promptHash;
+        String text; // normalized question
+        String response;
+        long createdAt;
+        transient String key;
+        transient int[] signature;
+        transient Set<String> contentWords;
+    }
+
+    private AIResponseCache() {}
+
+    public static AIResponseCache shared() {
+        return shared;
+    }
+
+    public synchronized void setTtlMs(long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    public synchronized void setSimilarityThreshold(double similarityThreshold) {
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    // Load the saved cache (in the background) and save future changes; later calls are no-ops
+    public synchronized void enablePersistence(Context context) {
+        if (file != null) return;
+        file = new File(context.getApplicationContext().getCacheDir(), FILE_NAME);
+        io.execute(this::load);
+    }
+
+    // Cached answer for the question, or null
+    public synchronized String get(String question, String role, String systemPrompt) {
+        String text = normalize(question);
+        if (!isStandalone(text)) return null;
+        String promptHash = hashOf(systemPrompt);
+        long now = System.currentTimeMillis();
+
+        Entry exact = entries.get(keyOf(role, promptHash, text));
+        if (exact != null && !expired(exact, now)) {
+            exactHits++;
+            logStats("exact hit");
+            return exact.response;
+        }
+
+        int[] signature = signatureOf(text);
+        if (signature != null) {
+            Set<String> contentWords = contentWordsOf(text);
+            Entry best = null;
+            double bestSimilarity = similarityThreshold;
+            for (String key : candidates(role, promptHash, signature)) {
+                Entry candidate = entries.get(key);
+                if (candidate == null || expired(candidate, now)) continue;
+                if (!contentWords.equals(candidate.contentWords)) continue;
+                double similarity = similarity(signature, candidate.signature);
+                if (similarity >= bestSimilarity) {
+                    best = candidate;
+                    bestSimilarity = similarity;
+                }
+            }
+            if (best != null) {
+                similarHits++;
+                logStats("similar hit (" + String.format(Locale.ROOT, "%.2f", bestSimilarity) + ")");
+                return best.response;
+            }
+        }
+        misses++;
+        logStats("miss");
+        return null;
+    }
+
+    public synchronized void put(String question, String role, String systemPrompt, String response) {
+        String text = normalize(question);
+        if (!isStandalone(text) || response == null || response.isEmpty()) return;
+        Entry entry = new Entry();
+        entry.role = role;
+        entry.promptHash = hashOf(systemPrompt);
+        entry.text = text;
+        entry.response = response;
+        entry.createdAt = System.currentTimeMillis();
+        add(entry);
+        scheduleSave();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        buckets.clear();
+        scheduleSave();
+    }
+
+    // Share of lookups answered from the cache
+    public synchronized double getHitRatio() {
+        long lookups = exactHits + similarHits + misses;
+        return lookups == 0 ? 0 : (double) (exactHits + similarHits) / lookups;
+    }
+
+    public synchronized long getExactHits() {
+        return exactHits;
+    }
+
+    public synchronized long getSimilarHits() {
+        return similarHits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private void logStats(String outcome) {
+        Log.d(TAG, outcome + "; hit ratio " + String.format(Locale.ROOT, "%.2f", getHitRatio())
+                + " (" + exactHits + " exact, " + similarHits + " similar, " + misses + " misses)");
+    }
+
+    private boolean expired(Entry entry, long now) {
+        if (now - entry.createdAt < ttlMs) return false;
+        entries.remove(entry.key);
+        unindex(entry);
+        return true;
+    }
+
+    private void add(Entry entry) {
+        entry.key = keyOf(entry.role, entry.promptHash, entry.text);
+        entry.signature = signatureOf(entry.text);
+        entry.contentWords = contentWordsOf(entry.text);
+        Entry previous = entries.remove(entry.key);
+        if (previous != null) unindex(previous);
+        entries.put(entry.key, entry);
+        if (entry.signature == null) return;
+        for (int band = 0; band < BANDS; band++) {
+            String bandKey = bandKey(entry.role, entry.promptHash, entry.signature, band);
+            Set<String> bucket = buckets.get(bandKey);
+            if (bucket == null) {
+                bucket = new HashSet<>();
+                buckets.put(bandKey, bucket);
+            }
+            bucket.add(entry.key);
+        }
+    }
+
+    private void unindex(Entry entry) {
+        if (entry.signature == null) return;
+        for (int band = 0; band < BANDS; band++) {
+            String bandKey = bandKey(entry.role, entry.promptHash, entry.signature, band);
+            Set<String> bucket = buckets.get(bandKey);
+            if (bucket == null) continue;
+            bucket.remove(entry.key);
+            if (bucket.isEmpty()) buckets.remove(bandKey);
+        }
+    }
+
+    private Set<String> candidates(String role, String promptHash, int[] signature) {
+        Set<String> keys = new HashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            Set<String> bucket = buckets.get(bandKey(role, promptHash, signature, band));
+            if (bucket != null) keys.addAll(bucket);
+        }
+        return keys;
+    }
+
+    private static String keyOf(String role, String promptHash, String normalized) {
+        return role + "|" + promptHash + "|" + withoutFiller(normalized);
+    }
+
+    private static String bandKey(String role, String promptHash, int[] signature, int band) {
+        StringBuilder sb = new StringBuilder().append(role).append('|').append(promptHash).append('|').append(band);
+        for (int row = band * ROWS_PER_BAND; row < (band + 1) * ROWS_PER_BAND; row++) {
+            sb.append(':').append(signature[row]);
+        }
+        return sb.toString();
+    }
+
+    private static String hashOf(String systemPrompt) {
+        return Integer.toHexString(systemPrompt != null ? systemPrompt.hashCode() : 0);
+    }
+
+    // Lowercase words separated by single spaces, punctuation dropped
+    static String normalize(String question) {
+        if (question == null) return "";
+        StringBuilder sb = new StringBuilder();
+        for (String token : question.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) continue;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(token);
+        }
+        return sb.toString();
+    }
+
+    static boolean isStandalone(String normalized) {
+        if (normalized.isEmpty()) return false;
+        for (String word : normalized.split(" ")) {
+            if (FOLLOW_UP_WORDS.contains(word)) return false;
+        }
+        return true;
+    }
+
+    // The normalized question with filler words left out
+    static String withoutFiller(String normalized) {
+        StringBuilder sb = new StringBuilder();
+        for (String word : normalized.split(" ")) {
+            if (word.isEmpty() || FILLER_WORDS.contains(word)) continue;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(word);
+        }
+        return sb.toString();
+    }
+
+    // Words that carry the topic: everything except filler and question framing
+    static Set<String> contentWordsOf(String normalized) {
+        Set<String> words = new HashSet<>();
+        for (String word : normalized.split(" ")) {
+            if (word.isEmpty() || FILLER_WORDS.contains(word) || QUESTION_WORDS.contains(word)) continue;
+            words.add(word);
+        }
+        return words;
+    }
+
+    // MinHash over character shingles of the question without filler, or null if nothing is left
+    static int[] signatureOf(String normalized) {
+        String text = withoutFiller(normalized);
+        if (text.isEmpty()) return null;
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int last = Math.max(1, text.length() - SHINGLE_SIZE + 1);
+        for (int i = 0; i < last; i++) {
+            long shingle = text.substring(i, Math.min(text.length(), i + SHINGLE_SIZE)).hashCode();
+            for (int h = 0; h < NUM_HASHES; h++) {
+                int value = (int) (mix(shingle ^ SEEDS[h]) >>> 33);
+                if (value < signature[h]) signature[h] = value;
+            }
+        }
+        return signature;
+    }
+
+    // Estimated Jaccard similarity of the two shingle sets
+    static double similarity(int[] a, int[] b) {
+        if (a == null || b == null) return 0;
+        int same = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) same++;
+        }
+        return (double) same / NUM_HASHES;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private void scheduleSave() {
+        if (file == null) return;
+        if (pendingSave != null) pendingSave.cancel(false);
+        pendingSave = io.schedule(this::save, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Runs on the io thread
+    private void save() {
+        List<Entry> snapshot;
+        File target;
+        synchronized (this) {
+            snapshot = new ArrayList<>(entries.values());
+            target = file;
+        }
+        File temp = new File(target.getPath() + ".tmp");
+        try (Writer writer = new FileWriter(temp)) {
+            gson.toJson(snapshot, writer);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to save response cache", e);
+            return;
+        }
+        if (!temp.renameTo(target)) {
+            Log.w(TAG, "Failed to replace response cache file");
+        }
+    }
+
+    // Runs on the io thread
+    private void load() {
+        File source;
+        synchronized (this) {
+            source = file;
+        }
+        if (!source.exists()) return;
+        List<Entry> saved;
+        try (Reader reader = new FileReader(source)) {
+            saved = gson.fromJson(reader, new TypeToken<List<Entry>>() {}.getType());
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Dropping unreadable response cache", e);
+            source.delete();
+            return;
+        }
+        if (saved == null) return;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            int loaded = 0;
+            for (Entry entry : saved) {
+                if (entry == null || entry.text == null || entry.response == null) continue;
+                if (now - entry.createdAt >= ttlMs) continue;
+                // Answers cached in this process before the load finished are newer
+                if (entries.containsKey(keyOf(entry.role, entry.promptHash, entry.text))) continue;
+                add(entry);
+                loaded++;
+            }
+            Log.d(TAG, "Loaded " + loaded + " cached responses");
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.looplab.data;
+
+import android.util.Log;
+
+import com.example.looplab.data.model.Models;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Badge criteria compiled into threshold predicates over a user's stats.
+ *
+ * {@link Models.Badge#criteria} is a JSON object of stat name to minimum value, all of
+ * which must hold, e.g. {@code {"coursesCompleted": 5}}. Stat names are the numeric fields
+ * of the user's leaderboard entry ({@code points}, {@code coursesCompleted},
+ * {@code eventsAttended}, {@code lecturesWatched}). Badges stored without criteria fall
+ * back to the built-in rule for their id.
+ */
+final class BadgeRules {
+    private static final String TAG = "BadgeRules";
+
+    // Rules for the default badges, which were created before criteria were stored
+    private static final Map<String, String> BUILT_IN = new HashMap<>();
+
+    static {
+        BUILT_IN.put("first_100", "{\"points\": 100}");
+        BUILT_IN.put("point_collector", "{\"points\": 500}");
+        BUILT_IN.put("point_master", "{\"points\": 1000}");
+        BUILT_IN.put("first_course", "{\"coursesCompleted\": 1}");
+        BUILT_IN.put("course_explorer", "{\"coursesCompleted\": 5}");
+        BUILT_IN.put("course_master", "{\"coursesCompleted\": 10}");
+    }
+
+    private static final class Rule {
+        final String badgeId;
+        final String[] stats;
+        final long[] minimums;
+
+        Rule(String badgeId, String[] stats, long[] minimums) {
+            this.badgeId = badgeId;
+            this.stats = stats;
+            this.minimums = minimums;
+        }
+
+        boolean matches(Map<String, Long> values) {
+            for (int i = 0; i < stats.length; i++) {
+                Long value = values.get(stats[i]);
+                if (value == null || value < minimums[i]) return false;
+            }
+            return true;
+        }
+    }
+
+    private final List<Rule> rules;
+
+    private BadgeRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    static String builtInCriteria(String badgeId) {
+        return BUILT_IN.get(badgeId);
+    }
+
+    // Parse every badge's criteria once; badges with unusable criteria are skipped
+    static BadgeRules compile(Collection<Models.Badge> badges) {
+        List<Rule> rules = new ArrayList<>();
+        for (Models.Badge badge : badges) {
+            if (badge == null || badge.id == null) continue;
+            String criteria = badge.criteria != null ? badge.criteria : BUILT_IN.get(badge.id);
+            if (criteria == null) continue;
+            Rule rule = parse(badge.id, criteria);
+            if (rule != null) rules.add(rule);
+        }
+        return new BadgeRules(Collections.unmodifiableList(rules));
+    }
+
+    // Rules for the built-in badges only (used until the badges collection has been read)
+    static BadgeRules builtIn() {
+        List<Models.Badge> badges = new ArrayList<>();
+        for (String id : BUILT_IN.keySet()) {
+            Models.Badge badge = new Models.Badge();
+            badge.id = id;
+            badges.add(badge);
+        }
+        return compile(badges);
+    }
+
+    private static Rule parse(String badgeId, String criteria) {
+        try {
+            JsonObject json = JsonParser.parseString(criteria).getAsJsonObject();
+            List<String> stats = new ArrayList<>();
+            List<Long> minimums = new ArrayList<>();
+            for (Map.Entry<String, JsonElement> condition : json.entrySet()) {
+                stats.add(condition.getKey());
+                minimums.add(condition.getValue().getAsLong());
+            }
+            if (stats.isEmpty()) return null;
+            long[] mins = new long[minimums.size()];
+            for (int i = 0; i < mins.length; i++) mins[i] = minimums.get(i);
+            return new Rule(badgeId, stats.toArray(new String[0]), mins);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Ignoring badge " + badgeId + " with invalid criteria: " + criteria, e);
+            return null;
+        }
+    }
+
+    // Badges whose criteria hold for these stats and that are not owned yet, in one pass
+    List<String> evaluate(Map<String, Long> stats, Collection<String> owned) {
+        Set<String> have = owned != null ? new HashSet<>(owned) : Collections.emptySet();
+        List<String> earned = new ArrayList<>();
+        for (Rule rule : rules) {
+            if (!have.contains(rule.badgeId) && rule.matches(stats)) {
+                earned.add(rule.badgeId);
+            }
+        }
+        return earned;
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.looplab.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Applies one write per document id across many documents, for admin bulk actions.
+ *
+ * Ids are grouped into {@link WriteBatch} commits of up to {@link #MAX_BATCH_WRITES} writes and
+ * at most {@code maxInFlight} batches are committed at once. A batch that fails with a transient
+ * error is retried with exponential backoff; one that keeps failing, or fails for a reason a
+ * retry cannot fix, is split in half until the ids that cannot be written are isolated, so one
+ * bad document only costs itself. Progress and the final result, with an error per failed id,
+ * are reported on the main thread. Writes must be idempotent since a batch may be retried.
+ *
+ * A {@link BatchFinisher} (e.g. a counter update) must only count documents that were really
+ * written, once. So each attempt of a finished batch first reads which of its documents exist,
+ * writes only those, and guards every write with an update that fails the commit if the
+ * document is gone by then. A retry after an ambiguous failure re-reads and never counts a
+ * document twice.
+ */
+public class BulkWriteExecutor {
+    private static final String TAG = "BulkWriteExecutor";
+
+    // Firestore limit on writes per batch
+    public static final int MAX_BATCH_WRITES = 500;
+    // Writes per batch left to a BatchFinisher (counters and summaries)
+    static final int FINISHER_WRITES = 10;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+    // Firestore limit for 'in' filters
+    static final int MAX_IN_CLAUSE = 30;
+    // Touched by the existence guard of a finished batch
+    static final String GUARD_FIELD = "updatedAt";
+    static final int MAX_ATTEMPTS = 4;
+    static final long BASE_BACKOFF_MS = 500;
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Random jitter = new Random();
+
+    private final int maxInFlight;
+
+    public interface Operation {
+        // Add the write for one document to the batch
+        void apply(WriteBatch batch, String id);
+    }
+
+    public interface BatchFinisher {
+        // Add writes that go with a batch writing count existing documents, e.g. a counter update
+        void finish(WriteBatch batch, int count);
+    }
+
+    public interface BulkCallback {
+        void onProgress(int processed, int total);
+        void onComplete(Result result);
+    }
+
+    public static class Result {
+        public final int total;
+        public final int succeeded;
+        // Failed id -> error, in request order
+        public final Map<String, String> failures;
+
+        Result(int total, int succeeded, Map<String, String> failures) {
+            this.total = total;
+            this.succeeded = succeeded;
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+
+        public boolean isSuccessful() {
+            return failures.isEmpty();
+        }
+    }
+
+    public BulkWriteExecutor() {
+        this(DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public BulkWriteExecutor(int maxInFlight) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    public void execute(Collection<String> ids, Operation operation, BulkCallback callback) {
+        new Run(null, ids, operation, null, callback).start();
+    }
+
+    // Ids are documents of the collection; the finisher sees how many existed and were written
+    public void execute(CollectionReference collection, Collection<String> ids, Operation operation,
+                        BatchFinisher finisher, BulkCallback callback) {
+        new Run(collection, ids, operation, finisher, callback).start();
+    }
+
+    private static class Chunk {
+        final List<String> ids;
+        int attempt;
+
+        Chunk(List<String> ids) {
+            this.ids = ids;
+        }
+    }
+
+    // State of one execute() call; only touched on the main thread
+    private class Run {
+        private final CollectionReference collection;
+        private final List<String> ids;
+        private final Operation operation;
+        private final BatchFinisher finisher;
+        private final BulkCallback callback;
+        private final Deque<Chunk> queue = new ArrayDeque<>();
+        private final Map<String, String> failures = new LinkedHashMap<>();
+        private int inFlight;
+        private int succeeded;
+        private boolean done;
+
+        Run(CollectionReference collection, Collection<String> ids, Operation operation,
+            BatchFinisher finisher, BulkCallback callback) {
+            this.collection = collection;
+            this.ids = new ArrayList<>(new LinkedHashSet<>(ids));
+            this.operation = operation;
+            this.finisher = finisher;
+            this.callback = callback;
+        }
+
+        void start() {
+            // A finished batch spends a guard write per document
+            int chunkSize = finisher != null ? (MAX_BATCH_WRITES - FINISHER_WRITES) / 2 : MAX_BATCH_WRITES;
+            for (int i = 0; i < ids.size(); i += chunkSize) {
+                queue.add(new Chunk(new ArrayList<>(ids.subList(i, Math.min(i + chunkSize, ids.size())))));
+            }
+            pump();
+        }
+
+        private void pump() {
+            while (inFlight < maxInFlight && !queue.isEmpty()) {
+                commit(queue.poll());
+            }
+            if (inFlight == 0 && queue.isEmpty() && !done) {
+                done = true;
+                if (!failures.isEmpty()) {
+                    Log.w(TAG, failures.size() + " of " + ids.size() + " bulk writes failed");
+                }
+                callback.onComplete(new Result(ids.size(), succeeded, failures));
+            }
+        }
+
+        private void commit(Chunk chunk) {
+            inFlight++;
+            if (finisher == null) {
+                commit(chunk, chunk.ids);
+                return;
+            }
+            existing(chunk.ids)
+                    .addOnSuccessListener(existing -> commit(chunk, existing))
+                    .addOnFailureListener(e -> {
+                        inFlight--;
+                        onChunkFailed(chunk, e);
+                        pump();
+                    });
+        }
+
+        // Write the targets (all of the chunk's ids, or those that exist when finishing)
+        private void commit(Chunk chunk, List<String> targets) {
+            WriteBatch batch = FirebaseRefs.db().batch();
+            long now = System.currentTimeMillis();
+            for (String id : targets) {
+                // Fails the commit if the document was removed since it was read
+                if (finisher != null) batch.update(collection.document(id), GUARD_FIELD, now);
+                operation.apply(batch, id);
+            }
+            if (finisher != null && !targets.isEmpty()) finisher.finish(batch, targets.size());
+            batch.commit()
+                    .addOnSuccessListener(aVoid -> {
+                        inFlight--;
+                        succeeded += chunk.ids.size();
+                        reportProgress();
+                        pump();
+                    })
+                    .addOnFailureListener(e -> {
+                        inFlight--;
+                        onChunkFailed(chunk, e);
+                        pump();
+                    });
+        }
+
+        private void onChunkFailed(Chunk chunk, Exception e) {
+            if (isRetryable(e) && chunk.attempt + 1 < MAX_ATTEMPTS) {
+                long delay = (BASE_BACKOFF_MS << chunk.attempt) + jitter.nextInt((int) BASE_BACKOFF_MS);
+                chunk.attempt++;
+                Log.w(TAG, "Batch of " + chunk.ids.size() + " failed, retry " + chunk.attempt + " in " + delay + " ms", e);
+                // Hold the slot during the backoff so the run does not finish early
+                inFlight++;
+                mainHandler.postDelayed(() -> {
+                    inFlight--;
+                    queue.addFirst(chunk);
+                    pump();
+                }, delay);
+            } else if (chunk.ids.size() > 1) {
+                // Narrow down the documents that fail
+                int half = chunk.ids.size() / 2;
+                queue.addFirst(new Chunk(new ArrayList<>(chunk.ids.subList(half, chunk.ids.size()))));
+                queue.addFirst(new Chunk(new ArrayList<>(chunk.ids.subList(0, half))));
+            } else {
+                Log.e(TAG, "Bulk write failed for " + chunk.ids.get(0), e);
+                failures.put(chunk.ids.get(0), e.getMessage());
+                reportProgress();
+            }
+        }
+
+        // Ids of the chunk that have a document, read from the server in parallel 'in' queries
+        private Task<List<String>> existing(List<String> chunkIds) {
+            List<Task<QuerySnapshot>> reads = new ArrayList<>();
+            for (int i = 0; i < chunkIds.size(); i += MAX_IN_CLAUSE) {
+                List<String> part = new ArrayList<>(chunkIds.subList(i, Math.min(i + MAX_IN_CLAUSE, chunkIds.size())));
+                reads.add(collection.whereIn(FieldPath.documentId(), part).get(Source.SERVER));
+            }
+            return Tasks.whenAllSuccess(reads).continueWith(task -> {
+                List<String> found = new ArrayList<>();
+                for (Object result : task.getResult()) {
+                    for (DocumentSnapshot doc : ((QuerySnapshot) result).getDocuments()) {
+                        found.add(doc.getId());
+                    }
+                }
+                return found;
+            });
+        }
+
+        private void reportProgress() {
+            callback.onProgress(succeeded + failures.size(), ids.size());
+        }
+    }
+
+    private static boolean isRetryable(Exception e) {
+        if (!(e instanceof FirebaseFirestoreException)) return true;
+        switch (((FirebaseFirestoreException) e).getCode()) {
+            case PERMISSION_DENIED:
+            case UNAUTHENTICATED:
+            case NOT_FOUND:
+            case INVALID_ARGUMENT:
+            case FAILED_PRECONDITION:
+            case ALREADY_EXISTS:
+                return false;
+            default:
+                return true;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.looplab.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.gson.Gson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Append-only on-disk log of the AI chat history.
+ *
+ * Each message is one record, {@code [length][UTF-8 JSON][length]}, so adding a message is a
+ * single append and pages of the newest messages can be read backwards from the end of the file
+ * without parsing the rest. A record torn by a crash is cut off when the log is opened, and once
+ * the file passes {@link #COMPACT_BYTES} it is rewritten in the background with only the newest
+ * messages (at most {@link #KEEP_RECORDS}, filling at most half the threshold); an offset from before a
+ * compaction then just ends paging.
+ * All file work runs on one background thread, in submission order; callbacks run on the main
+ * thread.
+ */
+public class ChatHistoryLog {
+    private static final String TAG = "ChatHistoryLog";
+
+    // Offset meaning "from the end of the log"
+    public static final long END = Long.MAX_VALUE;
+    static final long COMPACT_BYTES = 256 * 1024;
+    static final int KEEP_RECORDS = 200;
+    // Larger lengths can only come from a corrupt file
+    private static final int MAX_RECORD_BYTES = 1024 * 1024;
+    private static final String FILE_NAME = "ai_chat_history.log";
+
+    private static final ExecutorService io = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Gson gson = new Gson();
+
+    private final File file;
+
+    public interface PageCallback {
+        // Messages oldest first; pass before to the next call to continue with older ones
+        void onPage(List<AIChatbotService.ChatMessage> messages, long before, boolean hasMore);
+    }
+
+    public ChatHistoryLog(Context context) {
+        this.file = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+        io.execute(this::repair);
+    }
+
+    public void append(AIChatbotService.ChatMessage message) {
+        byte[] record = encode(message);
+        io.execute(() -> {
+            try (FileOutputStream out = new FileOutputStream(file, true)) {
+                out.write(record);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to append chat message", e);
+                return;
+            }
+            if (file.length() > COMPACT_BYTES) compact();
+        });
+    }
+
+    // Up to limit messages that come before the given offset (END for the newest)
+    public void loadPage(long before, int limit, PageCallback callback) {
+        io.execute(() -> {
+            List<AIChatbotService.ChatMessage> messages = new ArrayList<>();
+            long position = 0;
+            try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+                position = Math.min(before, in.length());
+                while (messages.size() < limit && position > 0) {
+                    long start = previousRecord(in, position);
+                    if (start < 0) {
+                        Log.w(TAG, "Unreadable record before offset " + position);
+                        position = 0;
+                        break;
+                    }
+                    AIChatbotService.ChatMessage message = decode(readPayload(in, start));
+                    if (message != null) messages.add(0, message);
+                    position = start;
+                }
+            } catch (IOException e) {
+                // No log yet, or unreadable: nothing (more) to show
+                position = 0;
+            }
+            long next = position;
+            mainHandler.post(() -> callback.onPage(messages, next, next > 0));
+        });
+    }
+
+    public void clear() {
+        io.execute(() -> {
+            if (file.exists() && !file.delete()) {
+                Log.w(TAG, "Failed to delete chat history");
+            }
+        });
+    }
+
+    // Move a history saved the old way (one JSON array in preferences) into the log, once
+    public void migrateFrom(SharedPreferences prefs, String key) {
+        io.execute(() -> {
+            String json = prefs.getString(key, null);
+            if (json == null) return;
+            try {
+                AIChatbotService.ChatMessage[] messages = gson.fromJson(json, AIChatbotService.ChatMessage[].class);
+                if (messages != null) {
+                    try (FileOutputStream out = new FileOutputStream(file, true)) {
+                        for (AIChatbotService.ChatMessage message : messages) {
+                            if (message != null) out.write(encode(message));
+                        }
+                    }
+                    Log.d(TAG, "Migrated " + messages.length + " messages from preferences");
+                }
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Failed to migrate chat history", e);
+            }
+            prefs.edit().remove(key).apply();
+        });
+    }
+
+    private static byte[] encode(AIChatbotService.ChatMessage message) {
+        byte[] payload = gson.toJson(message).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 8);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.writeInt(payload.length);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static AIChatbotService.ChatMessage decode(byte[] payload) {
+        try {
+            return gson.fromJson(new String(payload, StandardCharsets.UTF_8), AIChatbotService.ChatMessage.class);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Skipping unreadable chat message", e);
+            return null;
+        }
+    }
+
+    // Start offset of the record ending at end, or -1 if the bytes there are not a record
+    private static long previousRecord(RandomAccessFile in, long end) throws IOException {
+        if (end < 8) return -1;
+        in.seek(end - 4);
+        int length = in.readInt();
+        long start = end - 8 - length;
+        if (length < 0 || length > MAX_RECORD_BYTES || start < 0) return -1;
+        in.seek(start);
+        return in.readInt() == length ? start : -1;
+    }
+
+    private static byte[] readPayload(RandomAccessFile in, long start) throws IOException {
+        in.seek(start);
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+        return payload;
+    }
+
+    // Cut off a record left half-written by a crash (runs on the io thread)
+    private void repair() {
+        if (!file.exists()) return;
+        try (RandomAccessFile log = new RandomAccessFile(file, "rw")) {
+            long length = log.length();
+            if (length == 0 || previousRecord(log, length) >= 0) return;
+            // Walk forward to the end of the last complete record
+            long valid = 0;
+            while (valid + 8 <= length) {
+                log.seek(valid);
+                int recordLength = log.readInt();
+                long end = valid + 8 + recordLength;
+                if (recordLength < 0 || recordLength > MAX_RECORD_BYTES || end > length) break;
+                log.seek(end - 4);
+                if (log.readInt() != recordLength) break;
+                valid = end;
+            }
+            Log.w(TAG, "Truncating chat history from " + length + " to " + valid + " bytes");
+            log.setLength(valid);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to check chat history", e);
+        }
+    }
+
+    // Rewrite the log with only the newest records (runs on the io thread)
+    private void compact() {
+        File temp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            long length = in.length();
+            long position = length;
+            int kept = 0;
+            // Keep at most half the threshold so the next compaction is many appends away
+            while (kept < KEEP_RECORDS && position > 0) {
+                long start = previousRecord(in, position);
+                if (start < 0 || length - start > COMPACT_BYTES / 2) break;
+                position = start;
+                kept++;
+            }
+            // Records from position to the end are copied as they are
+            in.seek(position);
+            byte[] buffer = new byte[8192];
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            Log.d(TAG, "Compacted chat history to " + kept + " messages");
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to compact chat history", e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.w(TAG, "Failed to replace chat history with compacted log");
+            temp.delete();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.looplab.data;
+
+import android.util.Log;
+
+import com.example.looplab.data.model.Models;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Paged message stream for one chat.
+ *
+ * Only the newest page is live: a snapshot listener ordered by {@code timestamp} delivers
+ * {@link DocumentChange}s, so each new message costs one callback instead of a full list.
+ * Older pages are fetched on demand with {@code startAfter} cursors and never listened to;
+ * {@link #dropOlderPagesBeyond} lets the screen forget the oldest fetched pages again once the
+ * reader is back at the newest messages, so the retained history stays bounded.
+ * Requires a composite index on messages (chatId, timestamp).
+ */
+public class ChatMessagePager {
+    private static final String TAG = "ChatMessagePager";
+
+    public static final int DEFAULT_PAGE_SIZE = 30;
+
+    private final String chatId;
+    private final int pageSize;
+
+    private ListenerRegistration liveListener;
+    private DocumentSnapshot oldestLoaded;
+    // Fetched older pages, newest first, and the live window they continue from
+    private final List<OlderPage> olderPages = new ArrayList<>();
+    private final Set<String> liveIds = new HashSet<>();
+    private DocumentSnapshot liveEnd;
+    private boolean loadingOlder;
+    private boolean hasMoreOlder = true;
+
+    public interface Listener {
+        // Messages that appeared or changed in the live window (empty on a no-op snapshot)
+        void onUpserted(List<Models.Message> messages);
+        // Messages that were deleted
+        void onRemoved(List<String> messageIds);
+        void onError(String error);
+    }
+
+    public interface OlderPageCallback {
+        // Page sorted oldest first
+        void onSuccess(List<Models.Message> messages, boolean hasMore);
+        void onError(String error);
+    }
+
+    private static class OlderPage {
+        final List<String> ids;
+        final DocumentSnapshot end;
+
+        OlderPage(List<String> ids, DocumentSnapshot end) {
+            this.ids = ids;
+            this.end = end;
+        }
+    }
+
+    public ChatMessagePager(String chatId) {
+        this(chatId, DEFAULT_PAGE_SIZE);
+    }
+
+    public ChatMessagePager(String chatId, int pageSize) {
+        this.chatId = chatId;
+        this.pageSize = pageSize;
+    }
+
+    private Query newestFirst() {
+        return FirebaseRefs.messages()
+                .whereEqualTo("chatId", chatId)
+                .orderBy("timestamp", Query.Direction.DESCENDING);
+    }
+
+    public void start(Listener listener) {
+        stop();
+        liveListener = newestFirst().limit(pageSize)
+                .addSnapshotListener((snap, e) -> {
+                    if (e != null) {
+                        Log.e(TAG, "live page error", e);
+                        listener.onError("Failed to listen to messages: " + e.getMessage());
+                        return;
+                    }
+                    if (snap == null) return;
+
+                    List<Models.Message> upserted = new ArrayList<>();
+                    List<String> removed = new ArrayList<>();
+                    // A full window drops its oldest document whenever a new one arrives; that
+                    // REMOVED change lies past the window's end and means "scrolled out of the
+                    // live page". Any other REMOVED is a deletion, and the query backfills the
+                    // window with the next older message as an ADDED change.
+                    DocumentSnapshot windowEnd = snap.size() >= pageSize
+                            ? snap.getDocuments().get(snap.size() - 1) : null;
+                    for (DocumentChange change : snap.getDocumentChanges()) {
+                        DocumentSnapshot doc = change.getDocument();
+                        if (change.getType() == DocumentChange.Type.REMOVED) {
+                            if (windowEnd == null || !isOlder(doc, windowEnd)) removed.add(doc.getId());
+                            continue;
+                        }
+                        Models.Message message = doc.toObject(Models.Message.class);
+                        if (message != null) {
+                            message.id = doc.getId();
+                            upserted.add(message);
+                        }
+                    }
+                    liveIds.clear();
+                    for (DocumentSnapshot doc : snap.getDocuments()) liveIds.add(doc.getId());
+                    liveEnd = snap.isEmpty() ? null : snap.getDocuments().get(snap.size() - 1);
+                    if (oldestLoaded == null && !snap.isEmpty()) {
+                        oldestLoaded = snap.getDocuments().get(snap.size() - 1);
+                        hasMoreOlder = snap.size() >= pageSize;
+                    } else if (windowEnd != null && isOlder(windowEnd, oldestLoaded)) {
+                        // A backfill reached past the loaded pages: older pages continue after it
+                        oldestLoaded = windowEnd;
+                    }
+                    if (!removed.isEmpty()) listener.onRemoved(removed);
+                    listener.onUpserted(upserted);
+                });
+    }
+
+    // Fetch the page just before the oldest loaded message
+    public void loadOlder(OlderPageCallback callback) {
+        if (loadingOlder || !hasMoreOlder || oldestLoaded == null) {
+            return;
+        }
+        loadingOlder = true;
+        newestFirst().startAfter(oldestLoaded).limit(pageSize).get()
+                .addOnSuccessListener(querySnapshot -> {
+                    loadingOlder = false;
+                    List<Models.Message> page = new ArrayList<>();
+                    List<String> ids = new ArrayList<>();
+                    List<DocumentSnapshot> docs = querySnapshot.getDocuments();
+                    for (int i = docs.size() - 1; i >= 0; i--) {
+                        ids.add(docs.get(i).getId());
+                        Models.Message message = docs.get(i).toObject(Models.Message.class);
+                        if (message != null) {
+                            message.id = docs.get(i).getId();
+                            page.add(message);
+                        }
+                    }
+                    if (!docs.isEmpty()) {
+                        oldestLoaded = docs.get(docs.size() - 1);
+                        olderPages.add(new OlderPage(ids, oldestLoaded));
+                    }
+                    hasMoreOlder = docs.size() >= pageSize;
+                    callback.onSuccess(page, hasMoreOlder);
+                })
+                .addOnFailureListener(e -> {
+                    loadingOlder = false;
+                    Log.e(TAG, "Error loading older messages", e);
+                    callback.onError("Failed to load older messages: " + e.getMessage());
+                });
+    }
+
+    // Forget the oldest fetched pages beyond keepPages and return the ids of their messages for
+    // the screen to remove; loadOlder fetches them again from the new oldest page. Messages the
+    // live window has since taken over are kept.
+    public List<String> dropOlderPagesBeyond(int keepPages) {
+        List<String> dropped = new ArrayList<>();
+        if (loadingOlder || olderPages.size() <= keepPages) return dropped;
+        while (olderPages.size() > keepPages) {
+            for (String id : olderPages.remove(olderPages.size() - 1).ids) {
+                if (!liveIds.contains(id)) dropped.add(id);
+            }
+        }
+        oldestLoaded = olderPages.isEmpty() ? liveEnd : olderPages.get(olderPages.size() - 1).end;
+        if (liveEnd != null && isOlder(liveEnd, oldestLoaded)) {
+            // The live window was backfilled past the pages that are kept
+            oldestLoaded = liveEnd;
+        }
+        hasMoreOlder = true;
+        return dropped;
+    }
+
+    // Whether a sorts after b in the newest-first order (timestamp, then document id)
+    private static boolean isOlder(DocumentSnapshot a, DocumentSnapshot b) {
+        long ta = timestampOf(a);
+        long tb = timestampOf(b);
+        if (ta != tb) return ta < tb;
+        return a.getId().compareTo(b.getId()) < 0;
+    }
+
+    private static long timestampOf(DocumentSnapshot doc) {
+        Long value = doc.getLong("timestamp");
+        return value != null ? value : 0;
+    }
+
+    public boolean hasMoreOlder() {
+        return hasMoreOlder;
+    }
+
+    public void stop() {
+        if (liveListener != null) {
+            liveListener.remove();
+            liveListener = null;
+        }
+    }
+}
@@ -4,9 +4,14 @@ import android.util.Log;
 
 import com.example.looplab.data.model.Models;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -15,6 +20,12 @@ import java.util.Map;
 
 public class ChatService {
     private static final String TAG = "ChatService";
+
+    // Messages per deletion commit, leaving room for the checkpoint and counter writes
+    static final int DELETE_PAGE_SIZE = 400;
+    static final String DELETING = "deleting";
+    static final String DELETION_CURSOR = "deletionCursor";
+    static final String DELETED_MESSAGES = "deletedMessages";
     
     public interface ChatCallback {
         void onSuccess();
@@ -50,7 +61,7 @@ public class ChatService {
                 .addOnSuccessListener(querySnapshot -> {
                     for (var doc : querySnapshot.getDocuments()) {
                         Models.Chat chat = doc.toObject(Models.Chat.class);
-                        if (chat != null && chat.participants.contains(userId2)) {
+                        if (chat != null && !chat.deleting && chat.participants.contains(userId2)) {
                             // Chat already exists
                             callback.onSuccess();
                             return;
@@ -90,7 +101,7 @@ public class ChatService {
                 .addOnSuccessListener(querySnapshot -> {
                     for (var doc : querySnapshot.getDocuments()) {
                         Models.Chat chat = doc.toObject(Models.Chat.class);
-                        if (chat != null && chat.participants != null && chat.participants.contains(userId2)) {
+                        if (chat != null && !chat.deleting && chat.participants != null && chat.participants.contains(userId2)) {
                             callback.onSuccess(doc.getId());
                             return;
                         }
@@ -150,7 +161,7 @@ public class ChatService {
                     List<Models.Chat> chats = new ArrayList<>();
                     for (var doc : querySnapshot.getDocuments()) {
                         Models.Chat chat = doc.toObject(Models.Chat.class);
-                        if (chat != null) {
+                        if (chat != null && !chat.deleting) {
                             chat.id = doc.getId();
                             chats.add(chat);
                         }
@@ -163,8 +174,9 @@ public class ChatService {
                 });
     }
     
-    // Send message
-    public void sendMessage(String chatId, String senderId, String content, String type, ChatCallback callback) {
+    // Send message. The message, chat summary and conversation mirror are committed in one
+    // batch; the returned message can be rendered right away, before the server acknowledges.
+    public Models.Message sendMessage(String chatId, String senderId, String content, String type, ChatCallback callback) {
         Models.Message message = new Models.Message();
         message.id = FirebaseRefs.messages().document().getId();
         message.chatId = chatId;
@@ -174,52 +186,70 @@ public class ChatService {
         message.timestamp = System.currentTimeMillis();
         message.isRead = false;
         
-        // Get sender name
-        FirebaseRefs.users().document(senderId).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        Models.UserProfile user = documentSnapshot.toObject(Models.UserProfile.class);
-                        if (user != null) {
-                            message.senderName = user.name;
-                        }
-                    }
-                    
-                    // Save message
-                    FirebaseRefs.messages().document(message.id).set(message.toMap())
-                            .addOnSuccessListener(aVoid -> {
-                                Log.d(TAG, "Message sent: " + message.id);
-                                
-                                // Update chat's last message
-                                Map<String, Object> updates = new HashMap<>();
-                                updates.put("lastMessage", content);
-                                updates.put("lastMessageTime", message.timestamp);
-                                updates.put("lastMessageSender", message.senderName);
-                                
-                                FirebaseRefs.chats().document(chatId).update(updates)
-                                        .addOnSuccessListener(v -> {
-                                            // Mirror to conversations collection for list view if used
-                                            try { FirebaseRefs.conversations().document(chatId).set(updates, com.google.firebase.firestore.SetOptions.merge()); } catch (Exception ignored) {}
-                                        })
-                                        .addOnSuccessListener(aVoid2 -> callback.onSuccess())
-                                        .addOnFailureListener(e -> {
-                                            Log.e(TAG, "Error updating chat", e);
-                                            callback.onSuccess(); // Message sent successfully
-                                        });
-                            })
-                            .addOnFailureListener(e -> {
-                                Log.e(TAG, "Error sending message", e);
-                                callback.onError("Failed to send message: " + e.getMessage());
-                            });
+        if (isCurrentUser(senderId) && CurrentUserCache.peek() == null) {
+            // Profile not loaded yet: wait for it rather than store the auth display name,
+            // which is empty for email/password accounts
+            CurrentUserCache.load(new CurrentUserCache.ProfileCallback() {
+                @Override
+                public void onSuccess(Models.UserProfile profile) {
+                    commitMessage(message, callback);
+                }
+                
+                @Override
+                public void onError(String error) {
+                    commitMessage(message, callback);
+                }
+            });
+        } else {
+            commitMessage(message, callback);
+        }
+        return message;
+    }
+    
+    private void commitMessage(Models.Message message, ChatCallback callback) {
+        String chatId = message.chatId;
+        message.senderName = resolveSenderName(message.senderId);
+        
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("lastMessage", message.content);
+        updates.put("lastMessageTime", message.timestamp);
+        updates.put("lastMessageSender", message.senderName);
+        Map<String, Object> mirror = new HashMap<>(updates);
+        // The sender has read everything up to their own message
+        if (!"system".equals(message.type)) {
+            updates.put(readCursorField(message.senderId), message.timestamp);
+            mirror.putAll(readCursorUpdate(message.senderId, message.timestamp));
+        }
+        
+        WriteBatch batch = FirebaseRefs.db().batch();
+        batch.set(FirebaseRefs.messages().document(message.id), message.toMap());
+        // update() rather than a merge: the whole batch fails once the chat has been deleted,
+        // instead of recreating it without participants
+        batch.update(FirebaseRefs.chats().document(chatId), updates);
+        // Mirror to conversations collection for list view if used
+        batch.set(FirebaseRefs.conversations().document(chatId), mirror, SetOptions.merge());
+        StatsService.increment(batch, StatsService.MESSAGES, 1);
+        
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    Log.d(TAG, "Message sent: " + message.id);
+                    callback.onSuccess();
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error getting sender info", e);
-                    // Send message anyway
-                    FirebaseRefs.messages().document(message.id).set(message.toMap())
-                            .addOnSuccessListener(aVoid -> callback.onSuccess())
-                            .addOnFailureListener(e2 -> callback.onError("Failed to send message: " + e2.getMessage()));
+                    Log.e(TAG, "Error sending message", e);
+                    callback.onError("Failed to send message: " + e.getMessage());
                 });
     }
     
+    private static boolean isCurrentUser(String senderId) {
+        return senderId != null && senderId.equals(FirebaseRefs.auth().getUid());
+    }
+    
+    // Sender name from the session profile cache; no per-message user lookup
+    private String resolveSenderName(String senderId) {
+        return isCurrentUser(senderId) ? CurrentUserCache.displayName() : null;
+    }
+    
     // Get messages for a chat
     public void getChatMessages(String chatId, MessageCallback callback) {
         FirebaseRefs.messages().whereEqualTo("chatId", chatId)
@@ -243,13 +273,13 @@ public class ChatService {
                 });
     }
     
-    // Listen to messages for a chat in real-time (caller must hold and remove the returned registration)
+    // Listen to the latest messages of a chat in real-time (caller must hold and remove the returned registration).
+    // Screens that render long histories should use ChatMessagePager, which only listens to the newest page.
     public ListenerRegistration listenToChatMessages(String chatId, MessageCallback callback) {
-        // Use only equality filter to avoid composite index requirement for quick start
         return FirebaseRefs.messages()
                 .whereEqualTo("chatId", chatId)
-                //.orderBy("timestamp", Query.Direction.ASCENDING)
-                .limit(200)
+                .orderBy("timestamp", Query.Direction.ASCENDING)
+                .limitToLast(ChatMessagePager.DEFAULT_PAGE_SIZE)
                 .addSnapshotListener((snap, e) -> {
                     if (e != null) {
                         Log.e(TAG, "listenToChatMessages error", e);
@@ -268,48 +298,84 @@ public class ChatService {
                             messages.add(message);
                         }
                     }
-                    // Client-side sort by timestamp ascending
-                    messages.sort(java.util.Comparator.comparingLong(m -> m.timestamp));
                     callback.onSuccess(messages);
                 });
     }
     
-    // Mark messages as read (avoid whereNotEqual to reduce index requirements)
+    // Mark messages as read by advancing this user's read cursor on the chat (one write, however many messages)
     public void markMessagesAsRead(String chatId, String userId, ChatCallback callback) {
-        FirebaseRefs.messages().whereEqualTo("chatId", chatId)
-                .whereEqualTo("isRead", false)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    if (querySnapshot.isEmpty()) {
-                        callback.onSuccess();
-                        return;
-                    }
-                    
-                    // Update all unread messages that were not sent by this user
-                    for (var doc : querySnapshot.getDocuments()) {
-                        try {
-                            Models.Message m = doc.toObject(Models.Message.class);
-                            if (m != null && (m.senderId == null || !m.senderId.equals(userId))) {
-                        FirebaseRefs.messages().document(doc.getId()).update("isRead", true);
-                            }
-                        } catch (Exception ignored) {}
-                    }
-                    callback.onSuccess();
-                })
+        markMessagesAsRead(chatId, userId, System.currentTimeMillis(), callback);
+    }
+    
+    public void markMessagesAsRead(String chatId, String userId, long readUpTo, ChatCallback callback) {
+        WriteBatch batch = FirebaseRefs.db().batch();
+        // Fails if the chat is gone, so a late read receipt can't recreate a deleted chat
+        batch.update(FirebaseRefs.chats().document(chatId), readCursorField(userId), readUpTo);
+        batch.set(FirebaseRefs.conversations().document(chatId), readCursorUpdate(userId, readUpTo), SetOptions.merge());
+        batch.commit()
+                .addOnSuccessListener(aVoid -> callback.onSuccess())
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error marking messages as read", e);
                     callback.onError("Failed to mark messages as read: " + e.getMessage());
                 });
     }
     
-    // Get unread message count for a user
+    // Field path of one user's cursor, for update() which replaces nested maps whole
+    private static String readCursorField(String userId) {
+        return "readCursors." + userId;
+    }
+    
+    private static Map<String, Object> readCursorUpdate(String userId, long readUpTo) {
+        Map<String, Object> cursors = new HashMap<>();
+        cursors.put(userId, readUpTo);
+        Map<String, Object> update = new HashMap<>();
+        update.put("readCursors", cursors);
+        return update;
+    }
+    
+    // Read cursor of a user in a chat, 0 if they never opened it
+    public static long readCursorOf(Map<String, Long> readCursors, String userId) {
+        if (readCursors == null || userId == null) return 0;
+        Long cursor = readCursors.get(userId);
+        return cursor != null ? cursor : 0;
+    }
+    
+    public interface UnreadCountCallback {
+        void onSuccess(long unreadCount);
+        void onError(String error);
+    }
+    
+    // Count messages newer than the user's read cursor. Own messages advance the sender's
+    // cursor when sent, so everything after it was written by someone else.
+    public void getUnreadCount(String chatId, long lastMessageTime, long readCursor, UnreadCountCallback callback) {
+        if (lastMessageTime <= readCursor) {
+            callback.onSuccess(0);
+            return;
+        }
+        FirebaseRefs.messages().whereEqualTo("chatId", chatId)
+                .whereGreaterThan("timestamp", readCursor)
+                .count()
+                .get(AggregateSource.SERVER)
+                .addOnSuccessListener(snapshot -> callback.onSuccess(snapshot.getCount()))
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error getting unread count", e);
+                    callback.onError("Failed to get unread count: " + e.getMessage());
+                });
+    }
+    
+    // Get the number of chats with unread messages for a user
     public void getUnreadCount(String userId, ChatCallback callback) {
-        FirebaseRefs.messages().whereEqualTo("isRead", false)
-                .whereNotEqualTo("senderId", userId)
+        FirebaseRefs.chats().whereArrayContains("participants", userId)
                 .get()
                 .addOnSuccessListener(querySnapshot -> {
-                    int unreadCount = querySnapshot.size();
-                    Log.d(TAG, "Unread messages: " + unreadCount);
+                    int unreadChats = 0;
+                    for (var doc : querySnapshot.getDocuments()) {
+                        Models.Chat chat = doc.toObject(Models.Chat.class);
+                        if (chat != null && chat.lastMessageTime > readCursorOf(chat.readCursors, userId)) {
+                            unreadChats++;
+                        }
+                    }
+                    Log.d(TAG, "Chats with unread messages: " + unreadChats);
                     callback.onSuccess();
                 })
                 .addOnFailureListener(e -> {
@@ -379,7 +445,7 @@ public class ChatService {
                     List<Models.Chat> chats = new ArrayList<>();
                     for (var doc : snap.getDocuments()) {
                         Models.Chat chat = doc.toObject(Models.Chat.class);
-                        if (chat != null) {
+                        if (chat != null && !chat.deleting) {
                             chat.id = doc.getId();
                             chats.add(chat);
                         }
@@ -388,33 +454,138 @@ public class ChatService {
                 });
     }
     
-    // Delete chat
+    // Delete a chat, its messages and its conversations mirror as a resumable job.
+    // Messages are deleted a page at a time in id order; each page commits together with a
+    // checkpoint on the chat document, so an interrupted deletion picks up where it stopped.
     public void deleteChat(String chatId, ChatCallback callback) {
-        // Delete all messages first
-        FirebaseRefs.messages().whereEqualTo("chatId", chatId).get()
+        DocumentReference chatRef = FirebaseRefs.chats().document(chatId);
+        chatRef.get()
+                .addOnSuccessListener(chatDoc -> {
+                    boolean hasChat = chatDoc.exists();
+                    String cursor = hasChat ? chatDoc.getString(DELETION_CURSOR) : null;
+                    Long deleted = hasChat ? chatDoc.getLong(DELETED_MESSAGES) : null;
+
+                    // Drop the chat from every participant's list before touching the messages
+                    WriteBatch batch = FirebaseRefs.db().batch();
+                    batch.delete(FirebaseRefs.conversations().document(chatId));
+                    if (hasChat) batch.update(chatRef, DELETING, true);
+                    batch.commit()
+                            .addOnSuccessListener(aVoid -> deleteMessagePage(chatId, hasChat, cursor,
+                                    deleted != null ? deleted : 0, callback))
+                            .addOnFailureListener(e -> {
+                                Log.e(TAG, "Error starting chat deletion", e);
+                                callback.onError("Failed to delete chat: " + e.getMessage());
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error reading chat for deletion", e);
+                    callback.onError("Failed to delete chat: " + e.getMessage());
+                });
+    }
+
+    // Finish deletions of this user's chats that were interrupted part way
+    public void resumeChatDeletions(String userId) {
+        FirebaseRefs.chats().whereArrayContains("participants", userId)
+                .whereEqualTo(DELETING, true)
+                .get()
                 .addOnSuccessListener(querySnapshot -> {
                     for (var doc : querySnapshot.getDocuments()) {
-                        FirebaseRefs.messages().document(doc.getId()).delete();
+                        Log.d(TAG, "Resuming deletion of chat " + doc.getId());
+                        deleteChat(doc.getId(), new ChatCallback() {
+                            @Override
+                            public void onSuccess() {}
+
+                            @Override
+                            public void onError(String error) {
+                                Log.w(TAG, "Resumed deletion of " + doc.getId() + " stopped: " + error);
+                            }
+                        });
                     }
-                    
-                    // Delete chat
-                    FirebaseRefs.chats().document(chatId).delete()
+                })
+                .addOnFailureListener(e -> Log.w(TAG, "Error looking up interrupted chat deletions", e));
+    }
+
+    // One page of messages plus the checkpoint per commit; only one page is held at a time
+    private void deleteMessagePage(String chatId, boolean hasChat, String cursor, long deleted,
+                                   ChatCallback callback) {
+        Query page = FirebaseRefs.messages().whereEqualTo("chatId", chatId)
+                .orderBy(FieldPath.documentId());
+        if (cursor != null) {
+            page = page.startAfter(cursor);
+        }
+        page.limit(DELETE_PAGE_SIZE).get()
+                .addOnSuccessListener(querySnapshot -> {
+                    if (querySnapshot.isEmpty()) {
+                        finishChatDeletion(chatId, hasChat, deleted, callback);
+                        return;
+                    }
+                    WriteBatch batch = FirebaseRefs.db().batch();
+                    for (var doc : querySnapshot.getDocuments()) {
+                        batch.delete(doc.getReference());
+                    }
+                    String lastId = querySnapshot.getDocuments().get(querySnapshot.size() - 1).getId();
+                    long total = deleted + querySnapshot.size();
+                    if (hasChat) {
+                        Map<String, Object> checkpoint = new HashMap<>();
+                        checkpoint.put(DELETION_CURSOR, lastId);
+                        checkpoint.put(DELETED_MESSAGES, total);
+                        batch.update(FirebaseRefs.chats().document(chatId), checkpoint);
+                    }
+                    StatsService.increment(batch, StatsService.MESSAGES, -querySnapshot.size());
+                    batch.commit()
                             .addOnSuccessListener(aVoid -> {
-                                Log.d(TAG, "Chat deleted: " + chatId);
-                                // Best-effort delete any conversation doc with same id
-                                try { FirebaseRefs.conversations().document(chatId).delete(); } catch (Exception ignored) {}
-                                callback.onSuccess();
+                                if (querySnapshot.size() < DELETE_PAGE_SIZE) {
+                                    finishChatDeletion(chatId, hasChat, total, callback);
+                                } else {
+                                    deleteMessagePage(chatId, hasChat, lastId, total, callback);
+                                }
                             })
                             .addOnFailureListener(e -> {
-                                Log.e(TAG, "Error deleting chat", e);
-                                callback.onError("Failed to delete chat: " + e.getMessage());
+                                Log.e(TAG, "Error deleting messages of chat " + chatId + " after " + deleted, e);
+                                callback.onError("Failed to delete messages: " + e.getMessage());
                             });
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error deleting messages", e);
+                    Log.e(TAG, "Error reading messages of chat " + chatId, e);
+                    callback.onError("Failed to delete messages: " + e.getMessage());
+                });
+    }
+
+    // Messages sent while the job ran can sort before the cursor, so look again from the start
+    // and only delete the chat document once no message of it is left
+    private void finishChatDeletion(String chatId, boolean hasChat, long deleted, ChatCallback callback) {
+        FirebaseRefs.messages().whereEqualTo("chatId", chatId)
+                .limit(1)
+                .get()
+                .addOnSuccessListener(querySnapshot -> {
+                    if (querySnapshot.isEmpty()) {
+                        deleteChatDocument(chatId, deleted, callback);
+                    } else {
+                        Log.d(TAG, "Messages left in chat " + chatId + ", sweeping again");
+                        deleteMessagePage(chatId, hasChat, null, deleted, callback);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error checking leftover messages of chat " + chatId, e);
                     callback.onError("Failed to delete messages: " + e.getMessage());
                 });
     }
+
+    private void deleteChatDocument(String chatId, long deleted, ChatCallback callback) {
+        WriteBatch batch = FirebaseRefs.db().batch();
+        batch.delete(FirebaseRefs.chats().document(chatId));
+        // A message sent while the job ran may have recreated the mirror
+        batch.delete(FirebaseRefs.conversations().document(chatId));
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    Log.d(TAG, "Chat deleted: " + chatId + " (" + deleted + " messages)");
+                    callback.onSuccess();
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error deleting chat", e);
+                    callback.onError("Failed to delete chat: " + e.getMessage());
+                });
+    }
     
     // Get chat participants info
     public void getChatParticipants(String chatId, ChatCallback callback) {
@@ -423,18 +594,22 @@ public class ChatService {
                     if (documentSnapshot.exists()) {
                         Models.Chat chat = documentSnapshot.toObject(Models.Chat.class);
                         if (chat != null && chat.participants != null) {
-                            // Get user details for all participants
-                            for (String participantId : chat.participants) {
-                                FirebaseRefs.users().document(participantId).get()
-                                        .addOnSuccessListener(userDoc -> {
-                                            if (userDoc.exists()) {
-                                                Models.UserProfile user = userDoc.toObject(Models.UserProfile.class);
-                                                if (user != null) {
-                                                    Log.d(TAG, "Participant: " + user.name + " (" + user.role + ")");
-                                                }
-                                            }
-                                        });
-                            }
+                            // Get user details for all participants in one batched lookup
+                            UserDirectoryCache.resolve(chat.participants, new UserDirectoryCache.ProfilesCallback() {
+                                @Override
+                                public void onSuccess(Map<String, Models.UserProfile> profiles) {
+                                    for (Models.UserProfile user : profiles.values()) {
+                                        Log.d(TAG, "Participant: " + user.name + " (" + user.role + ")");
+                                    }
+                                    callback.onSuccess();
+                                }
+
+                                @Override
+                                public void onError(String error) {
+                                    callback.onError("Failed to get participants: " + error);
+                                }
+                            });
+                            return;
                         }
                     }
                     callback.onSuccess();
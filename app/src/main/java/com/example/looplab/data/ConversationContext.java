@@ -0,0 +1,121 @@
+package com.example.looplab.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Chooses what of the conversation history goes into a Gemini request.
+ *
+ * The newest turns are sent verbatim for as long as they fit the token budget; the turns before
+ * them are folded into a short summary (the first sentence of each, newest first until the
+ * summary's own budget is spent), so a long tutoring session keeps its thread without every
+ * request growing with it. Tokens are estimated at about four characters each, which is close
+ * enough for English text to keep payloads bounded.
+ */
+final class ConversationContext {
+    static final int DEFAULT_TOKEN_BUDGET = 2000;
+    // Part of the budget kept for the summary of older turns
+    static final int SUMMARY_TOKEN_BUDGET = 250;
+    // Role and framing cost of every message
+    static final int MESSAGE_OVERHEAD_TOKENS = 4;
+    static final int SUMMARY_LINE_CHARS = 160;
+
+    private ConversationContext() {}
+
+    static final class Turn {
+        final String role; // "user" or "model"
+        final String text;
+
+        Turn(String role, String text) {
+            this.role = role;
+            this.text = text;
+        }
+    }
+
+    static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    // Turns to send after the system prompt, oldest first, ending with the user's message
+    static List<Turn> build(List<AIChatbotService.ChatMessage> history, String userMessage, int tokenBudget) {
+        List<AIChatbotService.ChatMessage> messages = new ArrayList<>(history);
+        AIChatbotService.ChatMessage last = messages.isEmpty() ? null : messages.get(messages.size() - 1);
+        if (userMessage != null && (last == null || !"user".equals(last.role) || !userMessage.equals(last.content))) {
+            messages.add(new AIChatbotService.ChatMessage("user", userMessage));
+        }
+        List<Turn> turns = new ArrayList<>();
+        if (messages.isEmpty()) return turns;
+
+        // The question itself always goes in, cut down if it alone exceeds the budget
+        AIChatbotService.ChatMessage question = messages.get(messages.size() - 1);
+        int remaining = tokenBudget - SUMMARY_TOKEN_BUDGET - MESSAGE_OVERHEAD_TOKENS;
+        String questionText = truncate(question.content, Math.max(remaining, SUMMARY_TOKEN_BUDGET) * 4);
+        remaining -= estimateTokens(questionText);
+
+        // Newest earlier turns verbatim while they fit
+        int firstVerbatim = messages.size() - 1;
+        while (firstVerbatim > 0) {
+            AIChatbotService.ChatMessage message = messages.get(firstVerbatim - 1);
+            int cost = estimateTokens(message.content) + MESSAGE_OVERHEAD_TOKENS;
+            if (cost > remaining) break;
+            remaining -= cost;
+            firstVerbatim--;
+        }
+
+        // Everything older becomes one summary message
+        List<String> summaryLines = new ArrayList<>();
+        int summaryTokens = 0;
+        for (int i = firstVerbatim - 1; i >= 0; i--) {
+            AIChatbotService.ChatMessage message = messages.get(i);
+            String line = ("user".equals(message.role) ? "Student: " : "Assistant: ")
+                    + firstSentence(message.content);
+            int cost = estimateTokens(line) + 1;
+            if (summaryTokens + cost > SUMMARY_TOKEN_BUDGET) break;
+            summaryTokens += cost;
+            summaryLines.add(line);
+        }
+        if (!summaryLines.isEmpty()) {
+            Collections.reverse(summaryLines);
+            StringBuilder summary = new StringBuilder("Summary of the earlier conversation:");
+            for (String line : summaryLines) {
+                summary.append("\n- ").append(line);
+            }
+            turns.add(new Turn("user", summary.toString()));
+        }
+
+        for (int i = firstVerbatim; i < messages.size() - 1; i++) {
+            AIChatbotService.ChatMessage message = messages.get(i);
+            turns.add(new Turn("user".equals(message.role) ? "user" : "model", message.content));
+        }
+        turns.add(new Turn("user", questionText));
+        return turns;
+    }
+
+    static int estimateTokens(List<Turn> turns) {
+        int tokens = 0;
+        for (Turn turn : turns) {
+            tokens += estimateTokens(turn.text) + MESSAGE_OVERHEAD_TOKENS;
+        }
+        return tokens;
+    }
+
+    private static String firstSentence(String text) {
+        if (text == null) return "";
+        String flat = text.replaceAll("\\s+", " ").trim();
+        int end = flat.length();
+        for (int i = 0; i < flat.length(); i++) {
+            char c = flat.charAt(i);
+            if ((c == '.' || c == '?' || c == '!') && (i + 1 == flat.length() || flat.charAt(i + 1) == ' ')) {
+                end = i + 1;
+                break;
+            }
+        }
+        return truncate(flat.substring(0, end), SUMMARY_LINE_CHARS);
+    }
+
+    private static String truncate(String text, int maxChars) {
+        if (text == null) return "";
+        return text.length() <= maxChars ? text : text.substring(0, Math.max(0, maxChars - 1)) + "…";
+    }
+}
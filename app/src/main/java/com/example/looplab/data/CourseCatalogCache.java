@@ -0,0 +1,175 @@
+package com.example.looplab.data;
+
+import android.util.Log;
+
+import com.example.looplab.data.model.Models;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process-wide LRU of course metadata, keyed by course id.
+ *
+ * Courses are fetched by document id in parallel {@code whereIn} chunks of up to
+ * {@link #MAX_IN_CLAUSE} ids, so any number of enrollments resolves in one round trip, and
+ * entries are served without reads for {@link #TTL_MS}. Each entry remembers the course's
+ * {@code updatedAt}; {@link #put} never replaces a newer version with an older one, so
+ * courses loaded elsewhere (catalog, detail screen) can prime the cache safely. Entries are
+ * copies, both in and out, so a caller filling in display values (such as the sharded
+ * enrollment total) never changes what the cache holds.
+ */
+public final class CourseCatalogCache {
+    private static final String TAG = "CourseCatalogCache";
+
+    // Firestore limit for 'in' filters
+    static final int MAX_IN_CLAUSE = 30;
+    static final int MAX_ENTRIES = 200;
+    static final long TTL_MS = 10 * 60 * 1000;
+
+    private static final Map<String, Entry> cache = new LinkedHashMap<String, Entry>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private CourseCatalogCache() {}
+
+    private static class Entry {
+        final Models.Course course;
+        final long fetchedAt;
+
+        Entry(Models.Course course, long fetchedAt) {
+            this.course = course;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    // Fresh cached course, or null
+    public static Models.Course peek(String courseId) {
+        if (courseId == null) return null;
+        synchronized (cache) {
+            Entry entry = cache.get(courseId);
+            if (entry == null) return null;
+            if (System.currentTimeMillis() - entry.fetchedAt >= TTL_MS) {
+                cache.remove(courseId);
+                return null;
+            }
+            return copyOf(entry.course);
+        }
+    }
+
+    public static void put(Models.Course course) {
+        if (course == null || course.id == null) return;
+        synchronized (cache) {
+            Entry existing = cache.get(course.id);
+            if (existing != null && existing.course.updatedAt > course.updatedAt) return;
+            cache.put(course.id, new Entry(copyOf(course), System.currentTimeMillis()));
+        }
+    }
+
+    public static void putAll(Collection<Models.Course> courses) {
+        for (Models.Course course : courses) put(course);
+    }
+
+    public static void invalidate(String courseId) {
+        synchronized (cache) {
+            cache.remove(courseId);
+        }
+    }
+
+    public static void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    // Courses for the given ids in the same order, reading only the missing or expired ones;
+    // ids without a course document are skipped
+    public static void resolve(Collection<String> courseIds, CourseService.CourseListCallback callback) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String id : courseIds) {
+            if (id != null && !id.isEmpty()) unique.add(id);
+        }
+        Map<String, Models.Course> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : unique) {
+            Models.Course cached = peek(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            callback.onSuccess(inOrder(unique, found));
+            return;
+        }
+
+        List<Task<QuerySnapshot>> chunks = new ArrayList<>();
+        for (int i = 0; i < missing.size(); i += MAX_IN_CLAUSE) {
+            List<String> chunk = missing.subList(i, Math.min(i + MAX_IN_CLAUSE, missing.size()));
+            chunks.add(FirebaseRefs.courses()
+                    .whereIn(FieldPath.documentId(), new ArrayList<>(chunk))
+                    .get());
+        }
+        Tasks.whenAllSuccess(chunks)
+                .addOnSuccessListener(results -> {
+                    for (Object result : results) {
+                        for (DocumentSnapshot doc : ((QuerySnapshot) result).getDocuments()) {
+                            Models.Course course = doc.toObject(Models.Course.class);
+                            if (course == null) continue;
+                            course.id = doc.getId();
+                            put(course);
+                            found.put(course.id, course);
+                        }
+                    }
+                    callback.onSuccess(inOrder(unique, found));
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error resolving " + missing.size() + " courses", e);
+                    callback.onError("Failed to get enrolled courses: " + e.getMessage());
+                });
+    }
+
+    private static Models.Course copyOf(Models.Course course) {
+        Models.Course copy = new Models.Course();
+        copy.id = course.id;
+        copy.title = course.title;
+        copy.description = course.description;
+        copy.instructorId = course.instructorId;
+        copy.instructorName = course.instructorName;
+        copy.thumbnailUrl = course.thumbnailUrl;
+        copy.lectureCount = course.lectureCount;
+        copy.publishedLectureCount = course.publishedLectureCount;
+        copy.enrolledCount = course.enrolledCount;
+        copy.category = course.category;
+        copy.difficulty = course.difficulty;
+        copy.createdAt = course.createdAt;
+        copy.isPublished = course.isPublished;
+        copy.tags = course.tags != null ? new ArrayList<>(course.tags) : null;
+        copy.rating = course.rating;
+        copy.updatedAt = course.updatedAt;
+        return copy;
+    }
+
+    private static List<Models.Course> inOrder(Set<String> ids, Map<String, Models.Course> found) {
+        List<Models.Course> courses = new ArrayList<>();
+        for (String id : ids) {
+            Models.Course course = found.get(id);
+            if (course != null) courses.add(course);
+        }
+        return courses;
+    }
+}
@@ -3,9 +3,16 @@ package com.example.looplab.data;
 import android.util.Log;
 
 import com.example.looplab.data.model.Models;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.AggregateSource;
 import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -15,6 +22,10 @@ import java.util.Map;
 public class CourseService {
     private static final String TAG = "CourseService";
     
+    static final String ENROLLED_COUNT = "enrolledCount";
+    static final String PUBLISHED_LECTURE_COUNT = "publishedLectureCount";
+    static final String COMPLETED_COUNT = "completedCount";
+    
     public interface CourseCallback {
         void onSuccess();
         void onError(String error);
@@ -49,11 +60,17 @@ public class CourseService {
     public void createCourse(Models.Course course, CourseCallback callback) {
         course.id = FirebaseRefs.courses().document().getId();
         course.createdAt = System.currentTimeMillis();
+        course.updatedAt = course.createdAt;
         course.isPublished = false;
         
-        FirebaseRefs.courses().document(course.id).set(course.toMap())
+        WriteBatch batch = FirebaseRefs.db().batch();
+        batch.set(FirebaseRefs.courses().document(course.id), course.toMap());
+        StatsService.increment(batch, StatsService.COURSES, 1);
+        
+        batch.commit()
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Course created: " + course.id);
+                    DashboardSummaryService.recordActivity("New course created: " + course.title);
                     callback.onSuccess();
                 })
                 .addOnFailureListener(e -> {
@@ -64,9 +81,17 @@ public class CourseService {
     
     // Update course
     public void updateCourse(Models.Course course, CourseCallback callback) {
-        FirebaseRefs.courses().document(course.id).update(course.toMap())
+        course.updatedAt = System.currentTimeMillis();
+        Map<String, Object> updates = course.toMap();
+        // Lecture counts are maintained by the lecture writers; the enrollment count here may
+        // include the shard totals and must not overwrite the stored base
+        updates.remove("lectureCount");
+        updates.remove(PUBLISHED_LECTURE_COUNT);
+        updates.remove(ENROLLED_COUNT);
+        FirebaseRefs.courses().document(course.id).update(updates)
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Course updated: " + course.id);
+                    CourseCatalogCache.invalidate(course.id);
                     callback.onSuccess();
                 })
                 .addOnFailureListener(e -> {
@@ -77,9 +102,15 @@ public class CourseService {
     
     // Delete course
     public void deleteCourse(String courseId, CourseCallback callback) {
-        FirebaseRefs.courses().document(courseId).delete()
+        WriteBatch batch = FirebaseRefs.db().batch();
+        batch.delete(FirebaseRefs.courses().document(courseId));
+        StatsService.increment(batch, StatsService.COURSES, -1);
+        
+        batch.commit()
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Course deleted: " + courseId);
+                    OfflineRepository.evict(courseId);
+                    CourseCatalogCache.invalidate(courseId);
                     callback.onSuccess();
                 })
                 .addOnFailureListener(e -> {
@@ -101,7 +132,8 @@ public class CourseService {
                             courses.add(course);
                         }
                     }
-                    callback.onSuccess(courses);
+                    CourseCatalogCache.putAll(courses);
+                    loadEnrolledCounts(courses, () -> callback.onSuccess(courses));
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error getting courses", e);
@@ -123,7 +155,7 @@ public class CourseService {
                     }
                     // Sort courses by createdAt in descending order (newest first) in memory
                     courses.sort((c1, c2) -> Long.compare(c2.createdAt, c1.createdAt));
-                    callback.onSuccess(courses);
+                    loadEnrolledCounts(courses, () -> callback.onSuccess(courses));
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error getting all courses", e);
@@ -139,7 +171,8 @@ public class CourseService {
                         Models.Course course = documentSnapshot.toObject(Models.Course.class);
                         if (course != null) {
                             course.id = documentSnapshot.getId();
-                            callback.onSuccess(course);
+                            CourseCatalogCache.put(course);
+                            loadEnrolledCount(course, callback);
                         } else {
                             callback.onError("Failed to parse course data");
                         }
@@ -168,7 +201,7 @@ public class CourseService {
                     }
                     // Sort courses by createdAt in descending order (newest first) in memory
                     courses.sort((c1, c2) -> Long.compare(c2.createdAt, c1.createdAt));
-                    callback.onSuccess(courses);
+                    loadEnrolledCounts(courses, () -> callback.onSuccess(courses));
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error getting instructor courses", e);
@@ -180,16 +213,31 @@ public class CourseService {
     public void addLecture(Models.Lecture lecture, CourseCallback callback) {
         lecture.id = FirebaseRefs.lectures().document().getId();
         lecture.createdAt = System.currentTimeMillis();
+        lecture.updatedAt = lecture.createdAt;
         // Keep the isPublished value from the lecture object
         
         // Log the lecture data before saving
         Log.d(TAG, "Adding lecture - ID: " + lecture.id + ", Title: " + lecture.title + 
               ", VideoURL: " + lecture.videoUrl + ", isPublished: " + lecture.isPublished);
         
-        FirebaseRefs.lectures().document(lecture.id).set(lecture.toMap())
-                .addOnSuccessListener(aVoid -> {
+        DocumentReference lectureRef = FirebaseRefs.lectures().document(lecture.id);
+        DocumentReference courseRef = FirebaseRefs.courses().document(lecture.courseId);
+        FirebaseRefs.db().runTransaction(transaction -> {
+                    DocumentSnapshot course = transaction.get(courseRef);
+                    transaction.set(lectureRef, lecture.toMap());
+                    if (lecture.isPublished) {
+                        return !adjustPublishedCount(transaction, course, 1);
+                    }
+                    return false;
+                })
+                .addOnSuccessListener(needsSeed -> {
                     Log.d(TAG, "Lecture added successfully: " + lecture.id + " with video URL: " + lecture.videoUrl);
-                    updateCourseLectureCount(lecture.courseId, callback);
+                    // Publishing moved the course's lecture counts
+                    if (lecture.isPublished) CourseCatalogCache.invalidate(lecture.courseId);
+                    if (needsSeed) {
+                        publishedLectureCount(lecture.courseId);
+                    }
+                    callback.onSuccess();
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error adding lecture", e);
@@ -197,11 +245,27 @@ public class CourseService {
                 });
     }
     
-    // Update lecture
+    // Update lecture; a change of isPublished moves the course's published count
     public void updateLecture(Models.Lecture lecture, CourseCallback callback) {
-        FirebaseRefs.lectures().document(lecture.id).update(lecture.toMap())
-                .addOnSuccessListener(aVoid -> {
+        lecture.updatedAt = System.currentTimeMillis();
+        DocumentReference lectureRef = FirebaseRefs.lectures().document(lecture.id);
+        DocumentReference courseRef = FirebaseRefs.courses().document(lecture.courseId);
+        FirebaseRefs.db().runTransaction(transaction -> {
+                    DocumentSnapshot previous = transaction.get(lectureRef);
+                    DocumentSnapshot course = transaction.get(courseRef);
+                    boolean wasPublished = Boolean.TRUE.equals(previous.getBoolean("isPublished"));
+                    transaction.update(lectureRef, lecture.toMap());
+                    if (wasPublished != lecture.isPublished) {
+                        return !adjustPublishedCount(transaction, course, lecture.isPublished ? 1 : -1);
+                    }
+                    return false;
+                })
+                .addOnSuccessListener(needsSeed -> {
                     Log.d(TAG, "Lecture updated: " + lecture.id);
+                    CourseCatalogCache.invalidate(lecture.courseId);
+                    if (needsSeed) {
+                        publishedLectureCount(lecture.courseId);
+                    }
                     callback.onSuccess();
                 })
                 .addOnFailureListener(e -> {
@@ -210,6 +274,18 @@ public class CourseService {
                 });
     }
     
+    // Courses created before the counter have no publishedLectureCount yet; those are left
+    // alone here (returns false) and seeded by publishedLectureCount() after the write
+    private static boolean adjustPublishedCount(Transaction transaction, DocumentSnapshot course, int delta) {
+        if (!course.exists() || course.getLong(PUBLISHED_LECTURE_COUNT) == null) return false;
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(PUBLISHED_LECTURE_COUNT, FieldValue.increment(delta));
+        updates.put("lectureCount", FieldValue.increment(delta));
+        updates.put("updatedAt", System.currentTimeMillis());
+        transaction.update(course.getReference(), updates);
+        return true;
+    }
+    
     // Get lectures for a course
     public void getCourseLectures(String courseId, LectureCallback callback) {
         Log.d(TAG, "Getting lectures for course: " + courseId);
@@ -256,11 +332,16 @@ public class CourseService {
                         enrollment.isActive = true;
                         enrollment.progress = 0;
                         enrollment.lastAccessed = System.currentTimeMillis();
+                        enrollment.updatedAt = enrollment.lastAccessed;
                         
-                        FirebaseRefs.enrollments().document(enrollment.id).set(enrollment.toMap())
+                        WriteBatch batch = FirebaseRefs.db().batch();
+                        batch.set(FirebaseRefs.enrollments().document(enrollment.id), enrollment.toMap());
+                        enrollmentCounter(courseId).increment(batch, ENROLLED_COUNT, 1);
+                        StatsService.increment(batch, StatsService.ENROLLMENTS, 1);
+                        
+                        batch.commit()
                                 .addOnSuccessListener(aVoid -> {
                                     Log.d(TAG, "Enrolled in course: " + courseId);
-                                    updateCourseEnrollmentCount(courseId, true);
                                     callback.onSuccess(enrollment);
                                 })
                                 .addOnFailureListener(e -> {
@@ -301,23 +382,18 @@ public class CourseService {
                         return;
                     }
                     
-                    // Get course details
-                    FirebaseRefs.courses().whereIn("id", courseIds).get()
-                            .addOnSuccessListener(courseSnapshot -> {
-                                List<Models.Course> courses = new ArrayList<>();
-                                for (var doc : courseSnapshot.getDocuments()) {
-                                    Models.Course course = doc.toObject(Models.Course.class);
-                                    if (course != null) {
-                                        course.id = doc.getId();
-                                        courses.add(course);
-                                    }
-                                }
-                                callback.onSuccess(courses);
-                            })
-                            .addOnFailureListener(e -> {
-                                Log.e(TAG, "Error getting enrolled courses", e);
-                                callback.onError("Failed to get enrolled courses: " + e.getMessage());
-                            });
+                    // Course details: cached, or read by id in parallel chunks
+                    CourseCatalogCache.resolve(courseIds, new CourseListCallback() {
+                        @Override
+                        public void onSuccess(List<Models.Course> courses) {
+                            loadEnrolledCounts(courses, () -> callback.onSuccess(courses));
+                        }
+                        
+                        @Override
+                        public void onError(String error) {
+                            callback.onError(error);
+                        }
+                    });
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error getting enrollments", e);
@@ -325,6 +401,19 @@ public class CourseService {
                 });
     }
     
+    // Record watch time only: a blind merge write (no read, no course recalculation). The
+    // value is absolute, so replaying the same write is harmless.
+    Task<Void> saveWatchTime(String userId, String courseId, String lectureId, int watchTime) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("userId", userId);
+        updates.put("courseId", courseId);
+        updates.put("lectureId", lectureId);
+        updates.put("watchTime", watchTime);
+        updates.put("lastWatched", System.currentTimeMillis());
+        return FirebaseRefs.progress().document(userId + "_" + courseId + "_" + lectureId)
+                .set(updates, SetOptions.merge());
+    }
+    
     // Update lecture progress
     public void updateLectureProgress(String userId, String courseId, String lectureId, 
                                     int watchTime, boolean completed, ProgressCallback callback) {
@@ -342,15 +431,32 @@ public class CourseService {
             updates.put("completedAt", System.currentTimeMillis());
         }
         
-        FirebaseRefs.progress().document(progressId).set(updates)
-                .addOnSuccessListener(aVoid -> {
+        // Read the previous state in the same transaction so a lecture counts (and earns
+        // points) only on its first completion
+        DocumentReference progressRef = FirebaseRefs.progress().document(progressId);
+        FirebaseRefs.db().runTransaction(transaction -> {
+                    DocumentSnapshot previous = transaction.get(progressRef);
+                    boolean newlyCompleted = completed
+                            && !(previous.exists() && Boolean.TRUE.equals(previous.getBoolean("completed")));
+                    transaction.set(progressRef, updates, SetOptions.merge());
+                    if (newlyCompleted) {
+                        Map<String, Object> stat = new HashMap<>();
+                        stat.put("userId", userId);
+                        stat.put(LeaderboardService.LECTURES_WATCHED, FieldValue.increment(1));
+                        transaction.set(FirebaseRefs.leaderboard().document(userId), stat, SetOptions.merge());
+                    }
+                    return newlyCompleted;
+                })
+                .addOnSuccessListener(newlyCompleted -> {
                     Log.d(TAG, "Progress updated for lecture: " + lectureId);
                     
                     // Update course progress
-                    updateCourseProgress(userId, courseId);
+                    if (newlyCompleted) {
+                        updateCourseProgress(userId, courseId);
+                    }
                     
                     // Award points for completion
-                    if (completed) {
+                    if (newlyCompleted) {
                         GamificationService gamificationService = new GamificationService();
                         gamificationService.awardPoints(userId, 10, "Lecture completed", 
                                 new GamificationService.GamificationCallback() {
@@ -393,59 +499,22 @@ public class CourseService {
                 });
     }
     
-    // Get course progress for user
+    // Get course progress for user: the enrollment's completedCount over the course's
+    // publishedLectureCount, without reading lectures or progress documents
     public void getCourseProgress(String userId, String courseId, ProgressCallback callback) {
-        FirebaseRefs.progress().whereEqualTo("userId", userId)
+        FirebaseRefs.enrollments().whereEqualTo("userId", userId)
                 .whereEqualTo("courseId", courseId)
+                .limit(1)
                 .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    int completedLecturesCount = 0;
-                    int totalWatchTimeSum = 0;
-                    
-                    for (var doc : querySnapshot.getDocuments()) {
-                        Models.Progress progress = doc.toObject(Models.Progress.class);
-                        if (progress != null && progress.completed) {
-                            completedLecturesCount++;
-                        }
-                        if (progress != null) {
-                            totalWatchTimeSum += progress.watchTime;
-                        }
+                .addOnSuccessListener(enrollmentSnapshot -> {
+                    Models.Progress overallProgress = new Models.Progress();
+                    overallProgress.userId = userId;
+                    overallProgress.courseId = courseId;
+                    if (!enrollmentSnapshot.isEmpty()) {
+                        Long progress = enrollmentSnapshot.getDocuments().get(0).getLong("progress");
+                        overallProgress.completed = progress != null && progress >= 100;
                     }
-                    
-                    // Make variables effectively final
-                    final int completedLectures = completedLecturesCount;
-                    final int totalWatchTime = totalWatchTimeSum;
-                    
-                    // Calculate overall progress
-                    FirebaseRefs.lectures().whereEqualTo("courseId", courseId)
-                            .whereEqualTo("isPublished", true)
-                            .get()
-                            .addOnSuccessListener(lectureSnapshot -> {
-                                int totalLectures = lectureSnapshot.size();
-                                int progressPercentage = totalLectures > 0 ? (completedLectures * 100) / totalLectures : 0;
-                                
-                                // Update enrollment progress
-                                FirebaseRefs.enrollments().whereEqualTo("userId", userId)
-                                        .whereEqualTo("courseId", courseId)
-                                        .get()
-                                        .addOnSuccessListener(enrollmentSnapshot -> {
-                                            if (!enrollmentSnapshot.isEmpty()) {
-                                                String enrollmentId = enrollmentSnapshot.getDocuments().get(0).getId();
-                                                Map<String, Object> updates = new HashMap<>();
-                                                updates.put("progress", progressPercentage);
-                                                updates.put("lastAccessed", System.currentTimeMillis());
-                                                
-                                                FirebaseRefs.enrollments().document(enrollmentId).update(updates);
-                                            }
-                                        });
-                                
-                                Models.Progress overallProgress = new Models.Progress();
-                                overallProgress.userId = userId;
-                                overallProgress.courseId = courseId;
-                                overallProgress.completed = progressPercentage >= 100;
-                                overallProgress.watchTime = totalWatchTime;
-                                callback.onSuccess(overallProgress);
-                            });
+                    callback.onSuccess(overallProgress);
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error getting course progress", e);
@@ -496,33 +565,157 @@ public class CourseService {
                 });
     }
     
-    private void updateCourseLectureCount(String courseId, CourseCallback callback) {
-        FirebaseRefs.lectures().whereEqualTo("courseId", courseId)
-                .whereEqualTo("isPublished", true)
+    // Enrollment count is sharded under courses/{id}/shards; the enrolledCount field on
+    // the course document is kept as the pre-sharding base and is no longer incremented.
+    public static ShardedCounter enrollmentCounter(String courseId) {
+        return new ShardedCounter(FirebaseRefs.courses().document(courseId));
+    }
+    
+    // Fill course.enrolledCount from the sharded counter (cached) before returning the course
+    public void loadEnrolledCount(Models.Course course, SingleCourseCallback callback) {
+        int base = course.enrolledCount;
+        enrollmentCounter(course.id).get(ENROLLED_COUNT, new ShardedCounter.CountCallback() {
+            @Override
+            public void onSuccess(long count) {
+                course.enrolledCount = base + (int) count;
+                callback.onSuccess(course);
+            }
+            
+            @Override
+            public void onError(String error) {
+                // Fall back to the stored base count
+                callback.onSuccess(course);
+            }
+        });
+    }
+    
+    // Add the sharded enrollment totals to a list of courses, reading the shards of any course
+    // whose totals are not cached; a course whose shards cannot be read keeps its base count
+    static void loadEnrolledCounts(List<Models.Course> courses, Runnable then) {
+        List<ShardedCounter> counters = new ArrayList<>();
+        for (Models.Course course : courses) {
+            counters.add(enrollmentCounter(course.id));
+        }
+        ShardedCounter.getTotals(counters, totals -> {
+            for (int i = 0; i < courses.size(); i++) {
+                courses.get(i).enrolledCount += (int) ShardedCounter.valueOf(totals.get(i), ENROLLED_COUNT);
+            }
+            then.run();
+        });
+    }
+    
+    // Course badges depend on coursesCompleted, which changes without a point award
+    private void checkCourseBadges(String userId) {
+        new GamificationService().checkBadges(userId, new GamificationService.GamificationCallback() {
+            @Override
+            public void onSuccess() {
+            }
+            
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Error checking course badges: " + error);
+            }
+        });
+    }
+    
+    static int percentOf(long completed, long published) {
+        return published > 0 ? (int) Math.min(100, completed * 100 / published) : 0;
+    }
+    
+    // Count a first lecture completion on the enrollment and recompute its progress in O(1)
+    private void updateCourseProgress(String userId, String courseId) {
+        FirebaseRefs.enrollments().whereEqualTo("userId", userId)
+                .whereEqualTo("courseId", courseId)
+                .limit(1)
                 .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    Map<String, Object> updates = new HashMap<>();
-                    updates.put("lectureCount", querySnapshot.size());
-                    
-                    FirebaseRefs.courses().document(courseId).update(updates)
-                            .addOnSuccessListener(aVoid -> callback.onSuccess())
-                            .addOnFailureListener(e -> callback.onError("Failed to update lecture count"));
-                });
+                .addOnSuccessListener(enrollmentSnapshot -> {
+                    if (enrollmentSnapshot.isEmpty()) return;
+                    DocumentReference enrollmentRef = enrollmentSnapshot.getDocuments().get(0).getReference();
+                    publishedLectureCount(courseId)
+                            .addOnSuccessListener(published -> {
+                                if (enrollmentSnapshot.getDocuments().get(0).getLong(COMPLETED_COUNT) != null) {
+                                    incrementCompleted(userId, enrollmentRef, published);
+                                } else {
+                                    seedCompleted(userId, courseId, enrollmentRef, published);
+                                }
+                            })
+                            .addOnFailureListener(e -> Log.e(TAG, "Error reading published lecture count", e));
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Error updating course progress", e));
+    }
+    
+    private void incrementCompleted(String userId, DocumentReference enrollmentRef, long published) {
+        FirebaseRefs.db().runTransaction(transaction -> {
+                    DocumentSnapshot enrollment = transaction.get(enrollmentRef);
+                    Long current = enrollment.getLong(COMPLETED_COUNT);
+                    long completed = (current != null ? current : 0) + 1;
+                    return writeCompleted(transaction, enrollment, completed, published);
+                })
+                .addOnSuccessListener(finished -> onProgressWritten(userId, finished))
+                .addOnFailureListener(e -> Log.e(TAG, "Error counting completed lecture", e));
+    }
+    
+    // Enrollments from before the counter: count their completed lectures once
+    private void seedCompleted(String userId, String courseId, DocumentReference enrollmentRef, long published) {
+        FirebaseRefs.progress().whereEqualTo("userId", userId)
+                .whereEqualTo("courseId", courseId)
+                .whereEqualTo("completed", true)
+                .count().get(AggregateSource.SERVER)
+                .addOnSuccessListener(aggregate -> FirebaseRefs.db().runTransaction(transaction -> {
+                            DocumentSnapshot enrollment = transaction.get(enrollmentRef);
+                            return writeCompleted(transaction, enrollment, aggregate.getCount(), published);
+                        })
+                        .addOnSuccessListener(finished -> onProgressWritten(userId, finished))
+                        .addOnFailureListener(e -> Log.e(TAG, "Error seeding completed count", e)))
+                .addOnFailureListener(e -> Log.e(TAG, "Error counting completed lectures", e));
     }
     
-    private void updateCourseEnrollmentCount(String courseId, boolean increment) {
+    // Returns true when this write takes the enrollment to 100%
+    private static boolean writeCompleted(Transaction transaction, DocumentSnapshot enrollment,
+                                          long completed, long published) {
+        Long previous = enrollment.getLong("progress");
+        int progress = percentOf(completed, published);
+        long now = System.currentTimeMillis();
         Map<String, Object> updates = new HashMap<>();
-        if (increment) {
-            updates.put("enrolledCount", FieldValue.increment(1));
-        } else {
-            updates.put("enrolledCount", FieldValue.increment(-1));
+        updates.put(COMPLETED_COUNT, completed);
+        updates.put("progress", progress);
+        updates.put("lastAccessed", now);
+        updates.put("updatedAt", now);
+        transaction.update(enrollment.getReference(), updates);
+        return progress >= 100 && (previous == null || previous < 100);
+    }
+    
+    private void onProgressWritten(String userId, boolean finishedCourse) {
+        if (finishedCourse) {
+            LeaderboardService.incrementStat(userId, LeaderboardService.COURSES_COMPLETED, 1)
+                    .addOnSuccessListener(aVoid -> checkCourseBadges(userId));
         }
-        
-        FirebaseRefs.courses().document(courseId).update(updates);
     }
     
-    private void updateCourseProgress(String userId, String courseId) {
-        // This method updates the overall course progress
-        // Implementation is in getCourseProgress method
+    // The course's published lecture count, seeded with a count() aggregation the first time
+    // it is needed for a course created before the counter existed
+    static Task<Long> publishedLectureCount(String courseId) {
+        DocumentReference courseRef = FirebaseRefs.courses().document(courseId);
+        return courseRef.get().continueWithTask(task -> {
+            Long stored = task.getResult().getLong(PUBLISHED_LECTURE_COUNT);
+            if (stored != null) return Tasks.forResult(stored);
+            return FirebaseRefs.lectures().whereEqualTo("courseId", courseId)
+                    .whereEqualTo("isPublished", true)
+                    .count().get(AggregateSource.SERVER)
+                    .continueWithTask(countTask -> {
+                        long count = countTask.getResult().getCount();
+                        return FirebaseRefs.db().runTransaction(transaction -> {
+                            DocumentSnapshot course = transaction.get(courseRef);
+                            Long current = course.getLong(PUBLISHED_LECTURE_COUNT);
+                            if (current != null) return current;
+                            Map<String, Object> updates = new HashMap<>();
+                            updates.put(PUBLISHED_LECTURE_COUNT, count);
+                            updates.put("lectureCount", count);
+                            updates.put("updatedAt", System.currentTimeMillis());
+                            transaction.update(courseRef, updates);
+                            return count;
+                        }).addOnSuccessListener(seeded -> CourseCatalogCache.invalidate(courseId));
+                    });
+        });
     }
 } 
\ No newline at end of file
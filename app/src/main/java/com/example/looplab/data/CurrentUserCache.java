@@ -0,0 +1,105 @@
+package com.example.looplab.data;
+
+import android.util.Log;
+
+import com.example.looplab.data.model.Models;
+import com.google.firebase.auth.FirebaseUser;
+
+/**
+ * Session-scoped copy of the signed-in user's profile.
+ *
+ * Loaded at most once per sign-in and reused by writers that denormalize the user's
+ * identity (for example the sender name on chat messages). Entries for a different
+ * uid than the current auth user are ignored, so a stale profile never leaks across accounts.
+ * {@link #init} loads the profile whenever a user signs in (including a session restored at
+ * startup), so it is usually in place before the first write needs it.
+ */
+public final class CurrentUserCache {
+    private static final String TAG = "CurrentUserCache";
+
+    private static volatile Models.UserProfile profile;
+
+    private CurrentUserCache() {}
+
+    public interface ProfileCallback {
+        void onSuccess(Models.UserProfile profile);
+        void onError(String error);
+    }
+
+    // Call from Application.onCreate
+    public static void init() {
+        FirebaseRefs.auth().addAuthStateListener(auth -> {
+            if (auth.getCurrentUser() == null) {
+                clear();
+                return;
+            }
+            load(new ProfileCallback() {
+                @Override
+                public void onSuccess(Models.UserProfile profile) {}
+
+                @Override
+                public void onError(String error) {
+                    Log.w(TAG, "Profile not preloaded: " + error);
+                }
+            });
+        });
+    }
+
+    // Cached profile for the signed-in user, or null if not loaded yet
+    public static Models.UserProfile peek() {
+        Models.UserProfile cached = profile;
+        String uid = FirebaseRefs.auth().getUid();
+        if (cached == null || uid == null || !uid.equals(cached.uid)) {
+            return null;
+        }
+        return cached;
+    }
+
+    public static void load(ProfileCallback callback) {
+        Models.UserProfile cached = peek();
+        if (cached != null) {
+            callback.onSuccess(cached);
+            return;
+        }
+        String uid = FirebaseRefs.auth().getUid();
+        if (uid == null) {
+            callback.onError("Not signed in");
+            return;
+        }
+        FirebaseRefs.users().document(uid).get()
+                .addOnSuccessListener(documentSnapshot -> {
+                    Models.UserProfile user = documentSnapshot.exists()
+                            ? documentSnapshot.toObject(Models.UserProfile.class) : null;
+                    if (user == null) {
+                        callback.onError("User profile not found");
+                        return;
+                    }
+                    user.uid = uid;
+                    profile = user;
+                    callback.onSuccess(user);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error loading current user profile", e);
+                    callback.onError("Failed to load profile: " + e.getMessage());
+                });
+    }
+
+    // Best-effort display name without waiting for the network
+    public static String displayName() {
+        Models.UserProfile cached = peek();
+        if (cached != null && cached.name != null) {
+            return cached.name;
+        }
+        FirebaseUser user = FirebaseRefs.auth().getCurrentUser();
+        return user != null ? user.getDisplayName() : null;
+    }
+
+    public static void put(Models.UserProfile user) {
+        profile = user;
+    }
+
+    // Call on sign-out and after the profile is edited
+    public static void clear() {
+        profile = null;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.looplab.data;
+
+import android.util.Log;
+
+import com.example.looplab.data.model.Models;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Materialized admin dashboard at {@code summaries/admin}.
+ *
+ * The card totals are kept up to date by the writers (through {@link StatsService} for
+ * users, courses and events, directly for announcements and live sessions), so the
+ * dashboard renders from a single snapshot listener on one document. The first listener to
+ * see a summary that was never rebuilt seeds it from count() aggregations.
+ */
+public class DashboardSummaryService {
+    private static final String TAG = "DashboardSummaryService";
+
+    public static final String TOTAL_USERS = "totalUsers";
+    public static final String TOTAL_COURSES = "totalCourses";
+    public static final String TOTAL_EVENTS = "totalEvents";
+    public static final String TOTAL_ANNOUNCEMENTS = "totalAnnouncements";
+    public static final String ACTIVE_SESSIONS = "activeSessions";
+
+    static final int MAX_RECENT_ACTIVITY = 5;
+    // Set by rebuildSummary; a summary without it only counts changes since it was introduced
+    static final String REBUILT_AT = "rebuiltAt";
+
+    public interface SummaryListener {
+        void onSummary(Models.DashboardSummary summary);
+        void onError(String error);
+    }
+
+    public interface SummaryCallback {
+        void onSuccess();
+        void onError(String error);
+    }
+
+    public static DocumentReference admin() {
+        return FirebaseRefs.summaries().document("admin");
+    }
+
+    // Summary field mirrored from a StatsService counter, or null if the dashboard does not show it
+    static String fieldForCounter(String counter) {
+        switch (counter) {
+            case StatsService.USERS:
+                return TOTAL_USERS;
+            case StatsService.COURSES:
+                return TOTAL_COURSES;
+            case StatsService.EVENTS:
+                return TOTAL_EVENTS;
+            default:
+                return null;
+        }
+    }
+
+    public static void increment(String field, long delta) {
+        admin().set(incrementUpdate(field, delta), SetOptions.merge())
+                .addOnFailureListener(e -> Log.e(TAG, "Error updating summary field " + field, e));
+    }
+
+    public static void increment(WriteBatch batch, String field, long delta) {
+        batch.set(admin(), incrementUpdate(field, delta), SetOptions.merge());
+    }
+
+    private static Map<String, Object> incrementUpdate(String field, long delta) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(field, FieldValue.increment(delta));
+        updates.put("updatedAt", System.currentTimeMillis());
+        return updates;
+    }
+
+    // Prepend an entry to the capped recent activity list
+    public static void recordActivity(String activity) {
+        FirebaseRefs.db().runTransaction(transaction -> {
+                    DocumentSnapshot snapshot = transaction.get(admin());
+                    List<String> recent = new ArrayList<>();
+                    recent.add(activity);
+                    Object existing = snapshot.get("recentActivity");
+                    if (existing instanceof List) {
+                        for (Object item : (List<?>) existing) {
+                            if (recent.size() >= MAX_RECENT_ACTIVITY) break;
+                            if (item instanceof String) recent.add((String) item);
+                        }
+                    }
+                    Map<String, Object> updates = new HashMap<>();
+                    updates.put("recentActivity", recent);
+                    updates.put("updatedAt", System.currentTimeMillis());
+                    transaction.set(admin(), updates, SetOptions.merge());
+                    return null;
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Error recording activity", e));
+    }
+
+    // Listen to the summary document (caller must hold and remove the returned registration)
+    public ListenerRegistration listenToSummary(SummaryListener listener) {
+        boolean[] seedRequested = {false};
+        return admin().addSnapshotListener((snap, e) -> {
+            if (e != null) {
+                Log.e(TAG, "listenToSummary error", e);
+                listener.onError("Failed to load dashboard summary: " + e.getMessage());
+                return;
+            }
+            // Seed once from the server's view; the rebuilt document arrives through this listener
+            if (snap != null && !snap.getMetadata().isFromCache() && !snap.contains(REBUILT_AT)
+                    && !seedRequested[0]) {
+                seedRequested[0] = true;
+                Log.d(TAG, "Dashboard summary was never seeded, rebuilding");
+                rebuildSummary(new SummaryCallback() {
+                    @Override
+                    public void onSuccess() {
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        listener.onError(error);
+                    }
+                });
+            }
+            Models.DashboardSummary summary = null;
+            if (snap != null && snap.exists()) {
+                summary = snap.toObject(Models.DashboardSummary.class);
+            }
+            if (summary == null) {
+                summary = new Models.DashboardSummary();
+            }
+            if (summary.recentActivity == null) {
+                summary.recentActivity = new ArrayList<>();
+            }
+            listener.onSummary(summary);
+        });
+    }
+
+    // Recompute the summary from server-side count() aggregations (admin only).
+    // Seeds the document for data created before it was maintained incrementally; run by the
+    // first listenToSummary that finds it unseeded, and a no-op once it has been seeded.
+    public void rebuildSummary(SummaryCallback callback) {
+        Models.DashboardSummary summary = new Models.DashboardSummary();
+        FirebaseRefs.users().count().get(AggregateSource.SERVER)
+                .continueWithTask(task -> {
+                    summary.totalUsers = task.getResult().getCount();
+                    return FirebaseRefs.courses().count().get(AggregateSource.SERVER);
+                })
+                .continueWithTask(task -> {
+                    summary.totalCourses = task.getResult().getCount();
+                    return FirebaseRefs.events().count().get(AggregateSource.SERVER);
+                })
+                .continueWithTask(task -> {
+                    summary.totalEvents = task.getResult().getCount();
+                    return FirebaseRefs.announcements().count().get(AggregateSource.SERVER);
+                })
+                .continueWithTask(task -> {
+                    summary.totalAnnouncements = task.getResult().getCount();
+                    return FirebaseRefs.liveSessions().whereEqualTo("isActive", true)
+                            .count().get(AggregateSource.SERVER);
+                })
+                .continueWithTask(task -> {
+                    summary.activeSessions = task.getResult().getCount();
+                    return FirebaseRefs.users().orderBy("createdAt", Query.Direction.DESCENDING)
+                            .limit(MAX_RECENT_ACTIVITY).get();
+                })
+                .continueWithTask(task -> {
+                    summary.recentActivity = new ArrayList<>();
+                    for (var doc : task.getResult().getDocuments()) {
+                        Models.UserProfile user = doc.toObject(Models.UserProfile.class);
+                        if (user != null) {
+                            summary.recentActivity.add("New user registered: " + user.name);
+                        }
+                    }
+                    summary.updatedAt = System.currentTimeMillis();
+                    Map<String, Object> data = summary.toMap();
+                    data.put(REBUILT_AT, summary.updatedAt);
+                    // Another admin's screen may have seeded it meanwhile; write only if still unseeded
+                    return FirebaseRefs.db().runTransaction(transaction -> {
+                        if (transaction.get(admin()).contains(REBUILT_AT)) return false;
+                        transaction.set(admin(), data);
+                        return true;
+                    });
+                })
+                .addOnSuccessListener(written -> {
+                    Log.d(TAG, written ? "Dashboard summary rebuilt" : "Dashboard summary was already seeded");
+                    callback.onSuccess();
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error rebuilding dashboard summary", e);
+                    callback.onError("Failed to rebuild dashboard summary: " + e.getMessage());
+                });
+    }
+}
@@ -6,20 +6,44 @@ import android.net.Uri;
 import android.util.Log;
 
 import com.example.looplab.data.model.Models;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class EventService {
     private static final String TAG = "EventService";
     
+    static final String CURRENT_ATTENDEES = "currentAttendees";
+    // Seats allotted to one attendee counter shard
+    static final String CAPACITY = "capacity";
+    // Set on the event once its free seats have been split across shards
+    static final String CAPACITY_ALLOCATED = "capacityAllocated";
+    
+    private static final int REGISTER_OK = 0;
+    private static final int REGISTER_ALREADY = 1;
+    private static final int REGISTER_SHARD_FULL = 2;
+    private static final int REGISTER_NEEDS_ALLOCATION = 3;
+    private static final int REGISTER_NOT_FOUND = 4;
+    
     public interface EventCallback {
         void onSuccess();
         void onError(String error);
@@ -35,16 +59,38 @@ public class EventService {
         void onError(String error);
     }
     
+    public interface RegisteredEventsCallback {
+        void onSuccess(Set<String> eventIds);
+        void onError(String error);
+    }
+    
     // Create a new event (for admins)
     public void createEvent(Models.EventItem event, EventCallback callback) {
         event.id = FirebaseRefs.events().document().getId();
         event.createdAt = System.currentTimeMillis();
+        event.updatedAt = event.createdAt;
         event.currentAttendees = 0;
         event.attendees = new ArrayList<>();
         
-        FirebaseRefs.events().document(event.id).set(event.toMap())
+        WriteBatch batch = FirebaseRefs.db().batch();
+        Map<String, Object> data = event.toMap();
+        if (event.maxAttendees > 0) {
+            // New events start with their seats already split across the counter shards
+            ShardedCounter counter = attendeeCounter(event.id);
+            for (int i = 0; i < counter.getNumShards(); i++) {
+                Map<String, Object> shard = new HashMap<>();
+                shard.put(CAPACITY, slotsForShard(event.maxAttendees, counter.getNumShards(), i));
+                batch.set(counter.shard(i), shard, SetOptions.merge());
+            }
+            data.put(CAPACITY_ALLOCATED, true);
+        }
+        batch.set(FirebaseRefs.events().document(event.id), data);
+        StatsService.increment(batch, StatsService.EVENTS, 1);
+        
+        batch.commit()
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Event created: " + event.id);
+                    DashboardSummaryService.recordActivity("New event created: " + event.title);
                     callback.onSuccess();
                 })
                 .addOnFailureListener(e -> {
@@ -55,7 +101,14 @@ public class EventService {
     
     // Update event
     public void updateEvent(Models.EventItem event, EventCallback callback) {
-        FirebaseRefs.events().document(event.id).update(event.toMap())
+        event.updatedAt = System.currentTimeMillis();
+        Map<String, Object> updates = event.toMap();
+        // Attendance is owned by registrations; the model may also carry cached shard counts
+        updates.remove(CURRENT_ATTENDEES);
+        updates.remove("attendees");
+        // maxAttendees may have changed: re-split the free seats on the next registration
+        updates.put(CAPACITY_ALLOCATED, false);
+        FirebaseRefs.events().document(event.id).update(updates)
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Event updated: " + event.id);
                     callback.onSuccess();
@@ -68,9 +121,14 @@ public class EventService {
     
     // Delete event
     public void deleteEvent(String eventId, EventCallback callback) {
-        FirebaseRefs.events().document(eventId).delete()
+        WriteBatch batch = FirebaseRefs.db().batch();
+        batch.delete(FirebaseRefs.events().document(eventId));
+        StatsService.increment(batch, StatsService.EVENTS, -1);
+        
+        batch.commit()
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Event deleted: " + eventId);
+                    OfflineRepository.evict(eventId);
                     callback.onSuccess();
                 })
                 .addOnFailureListener(e -> {
@@ -95,7 +153,7 @@ public class EventService {
                             events.add(event);
                         }
                     }
-                    callback.onSuccess(events);
+                    loadAttendeeCounts(events, () -> callback.onSuccess(events));
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error getting upcoming events", e);
@@ -120,7 +178,7 @@ public class EventService {
                             events.add(event);
                         }
                     }
-                    callback.onSuccess(events);
+                    loadAttendeeCounts(events, () -> callback.onSuccess(events));
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error getting past events", e);
@@ -128,66 +186,246 @@ public class EventService {
                 });
     }
     
-    // Register for event
+    // Register for event. Each registration is a transaction that claims a slot on one
+    // capacity shard and creates events/{id}/attendees/{userId}; slots are split across the
+    // attendee counter's shards so concurrent sign-ups rarely contend on the same document,
+    // and the sum of shard capacities never exceeds maxAttendees. The shards are read first
+    // and a shard with free seats is picked, so while seats are left a registration costs one
+    // transaction even when most shards of a small event have none.
     public void registerForEvent(String userId, String eventId, RegistrationCallback callback) {
-        FirebaseRefs.events().document(eventId).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        Models.EventItem event = documentSnapshot.toObject(Models.EventItem.class);
-                        if (event != null) {
-                            // Check if user is already registered
-                            if (event.attendees != null && event.attendees.contains(userId)) {
-                                callback.onSuccess(true);
-                                return;
-                            }
-                            
-                            // Check if event is full
-                            if (event.maxAttendees > 0 && event.currentAttendees >= event.maxAttendees) {
-                                callback.onError("Event is full");
+        tryRegister(userId, eventId, attendeeCounter(eventId), 0, false, callback);
+    }
+    
+    private void tryRegister(String userId, String eventId, ShardedCounter counter,
+                             int attempt, boolean allocated, RegistrationCallback callback) {
+        counter.shards().get()
+                .addOnSuccessListener(shards -> claimSeat(userId, eventId, counter,
+                        pickShardWithSeats(shards, counter.getNumShards()), attempt, allocated, callback))
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error reading event capacity", e);
+                    callback.onError("Failed to register: " + e.getMessage());
+                });
+    }
+    
+    private static int pickShardWithSeats(QuerySnapshot shards, int numShards) {
+        Map<String, Map<String, Object>> byId = new HashMap<>();
+        for (DocumentSnapshot shard : shards.getDocuments()) {
+            byId.put(shard.getId(), shard.getData());
+        }
+        return pickShardWithSeats(byId, numShards, ThreadLocalRandom.current());
+    }
+    
+    // Random shard among those with a free seat (a shard without a capacity has no limit),
+    // or -1 if every shard is full; shards are keyed by their document id
+    static int pickShardWithSeats(Map<String, Map<String, Object>> shards, int numShards, Random random) {
+        List<Integer> open = new ArrayList<>();
+        for (int i = 0; i < numShards; i++) {
+            Map<String, Object> shard = shards.get(String.valueOf(i));
+            if (shard == null || !shard.containsKey(CAPACITY)
+                    || longValue(shard, CURRENT_ATTENDEES) < longValue(shard, CAPACITY)) {
+                open.add(i);
+            }
+        }
+        return open.isEmpty() ? -1 : open.get(random.nextInt(open.size()));
+    }
+    
+    private static long longValue(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+    
+    // picked is -1 when no shard had seats: the transaction then only confirms the event is
+    // full, or finds its capacity must be re-split after an edit
+    private void claimSeat(String userId, String eventId, ShardedCounter counter, int picked,
+                           int attempt, boolean allocated, RegistrationCallback callback) {
+        int shardIndex = picked >= 0 ? picked : ThreadLocalRandom.current().nextInt(counter.getNumShards());
+        DocumentReference eventRef = FirebaseRefs.events().document(eventId);
+        DocumentReference attendeeRef = attendees(eventId).document(userId);
+        DocumentReference shardRef = counter.shard(shardIndex);
+        
+        FirebaseRefs.db().runTransaction(transaction -> {
+                    DocumentSnapshot event = transaction.get(eventRef);
+                    if (!event.exists()) {
+                        return REGISTER_NOT_FOUND;
+                    }
+                    DocumentSnapshot attendee = transaction.get(attendeeRef);
+                    Object legacyAttendees = event.get("attendees");
+                    if (attendee.exists()
+                            || (legacyAttendees instanceof List && ((List<?>) legacyAttendees).contains(userId))) {
+                        return REGISTER_ALREADY;
+                    }
+                    long maxAttendees = longField(event, "maxAttendees");
+                    if (maxAttendees > 0) {
+                        if (!Boolean.TRUE.equals(event.getBoolean(CAPACITY_ALLOCATED))) {
+                            return REGISTER_NEEDS_ALLOCATION;
+                        }
+                        DocumentSnapshot shard = transaction.get(shardRef);
+                        if (longField(shard, CURRENT_ATTENDEES) >= longField(shard, CAPACITY)) {
+                            return REGISTER_SHARD_FULL;
+                        }
+                    }
+                    Map<String, Object> registration = new HashMap<>();
+                    registration.put("userId", userId);
+                    registration.put("eventId", eventId);
+                    registration.put("shard", shardIndex);
+                    registration.put("registeredAt", System.currentTimeMillis());
+                    transaction.set(attendeeRef, registration);
+                    Map<String, Object> increment = new HashMap<>();
+                    increment.put(CURRENT_ATTENDEES, FieldValue.increment(1));
+                    transaction.set(shardRef, increment, SetOptions.merge());
+                    return REGISTER_OK;
+                })
+                .addOnSuccessListener(result -> {
+                    switch (result) {
+                        case REGISTER_OK:
+                            onRegistered(userId, eventId, counter, callback);
+                            break;
+                        case REGISTER_ALREADY:
+                            callback.onSuccess(true);
+                            break;
+                        case REGISTER_NEEDS_ALLOCATION:
+                            if (allocated) {
+                                callback.onError("Failed to register: capacity not allocated");
                                 return;
                             }
-                            
-                            // Register user
-                            Map<String, Object> updates = new HashMap<>();
-                            updates.put("attendees", FieldValue.arrayUnion(userId));
-                            updates.put("currentAttendees", FieldValue.increment(1));
-                            
-                            FirebaseRefs.events().document(eventId).update(updates)
-                                    .addOnSuccessListener(aVoid -> {
-                                        Log.d(TAG, "User registered for event: " + eventId);
-                                        
-                                        // Award points for event registration
-                                        GamificationService gamificationService = new GamificationService();
-                                        gamificationService.awardPoints(userId, 5, "Event registration", 
-                                                new GamificationService.GamificationCallback() {
-                                                    @Override
-                                                    public void onSuccess() {
-                                                        callback.onSuccess(true);
-                                                    }
-                                                    
-                                                    @Override
-                                                    public void onError(String error) {
-                                                        callback.onSuccess(true); // Registration succeeded even if points failed
-                                                    }
-                                                });
-                                    })
+                            allocateCapacity(eventId, counter)
+                                    .addOnSuccessListener(aVoid -> tryRegister(userId, eventId, counter,
+                                            attempt, true, callback))
                                     .addOnFailureListener(e -> {
-                                        Log.e(TAG, "Error registering for event", e);
+                                        Log.e(TAG, "Error allocating event capacity", e);
                                         callback.onError("Failed to register: " + e.getMessage());
                                     });
-                        } else {
+                            break;
+                        case REGISTER_SHARD_FULL:
+                            // No seats were left, or the picked shard filled up meanwhile: re-read
+                            // and pick again, a bounded number of times
+                            if (picked < 0 || attempt + 1 >= counter.getNumShards()) {
+                                callback.onError("Event is full");
+                            } else {
+                                tryRegister(userId, eventId, counter, attempt + 1, allocated, callback);
+                            }
+                            break;
+                        default:
                             callback.onError("Event not found");
-                        }
-                    } else {
-                        callback.onError("Event not found");
+                            break;
                     }
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error getting event", e);
-                    callback.onError("Failed to get event: " + e.getMessage());
+                    Log.e(TAG, "Error registering for event", e);
+                    callback.onError("Failed to register: " + e.getMessage());
+                });
+    }
+    
+    private void onRegistered(String userId, String eventId, ShardedCounter counter, RegistrationCallback callback) {
+        Log.d(TAG, "User registered for event: " + eventId);
+        counter.invalidate();
+        StatsService.increment(StatsService.EVENTS_ATTENDED, 1);
+        LeaderboardService.incrementStat(userId, LeaderboardService.EVENTS_ATTENDED, 1);
+        
+        // Award points for event registration
+        GamificationService gamificationService = new GamificationService();
+        gamificationService.awardPoints(userId, 5, "Event registration", 
+                new GamificationService.GamificationCallback() {
+                    @Override
+                    public void onSuccess() {
+                        callback.onSuccess(true);
+                    }
+                    
+                    @Override
+                    public void onError(String error) {
+                        callback.onSuccess(true); // Registration succeeded even if points failed
+                    }
                 });
     }
     
+    // Split the free seats of an event across the attendee counter's shards. Runs once per event
+    // (and again after an edit resets the flag); registrations read the event document, so any
+    // in-flight registration retries against the new allocation.
+    private Task<Void> allocateCapacity(String eventId, ShardedCounter counter) {
+        DocumentReference eventRef = FirebaseRefs.events().document(eventId);
+        return FirebaseRefs.db().runTransaction(transaction -> {
+            DocumentSnapshot event = transaction.get(eventRef);
+            if (!event.exists() || Boolean.TRUE.equals(event.getBoolean(CAPACITY_ALLOCATED))) {
+                return null;
+            }
+            int numShards = counter.getNumShards();
+            long[] used = new long[numShards];
+            long totalUsed = longField(event, CURRENT_ATTENDEES); // pre-sharding base
+            for (int i = 0; i < numShards; i++) {
+                used[i] = longField(transaction.get(counter.shard(i)), CURRENT_ATTENDEES);
+                totalUsed += used[i];
+            }
+            long free = Math.max(0, longField(event, "maxAttendees") - totalUsed);
+            for (int i = 0; i < numShards; i++) {
+                Map<String, Object> shard = new HashMap<>();
+                shard.put(CAPACITY, used[i] + slotsForShard(free, numShards, i));
+                transaction.set(counter.shard(i), shard, SetOptions.merge());
+            }
+            transaction.update(eventRef, CAPACITY_ALLOCATED, true);
+            return null;
+        });
+    }
+    
+    // Even split of free seats; the first (free % numShards) shards get one extra
+    static long slotsForShard(long free, int numShards, int index) {
+        return free / numShards + (index < free % numShards ? 1 : 0);
+    }
+    
+    private static long longField(DocumentSnapshot doc, String field) {
+        Long value = doc.exists() ? doc.getLong(field) : null;
+        return value != null ? value : 0;
+    }
+    
+    // Ids of the events a user is registered for (attendee documents plus the legacy attendees array).
+    // The collection group query needs the single-field index on attendees.userId enabled for
+    // collection group scope.
+    public void getRegisteredEventIds(String userId, RegisteredEventsCallback callback) {
+        Task<QuerySnapshot> registrations = FirebaseRefs.db().collectionGroup("attendees")
+                .whereEqualTo("userId", userId).get();
+        Task<QuerySnapshot> legacy = FirebaseRefs.events().whereArrayContains("attendees", userId).get();
+        Tasks.whenAllSuccess(registrations, legacy)
+                .addOnSuccessListener(results -> {
+                    Set<String> eventIds = new HashSet<>();
+                    for (DocumentSnapshot doc : registrations.getResult().getDocuments()) {
+                        String eventId = doc.getString("eventId");
+                        eventIds.add(eventId != null ? eventId : doc.getReference().getParent().getParent().getId());
+                    }
+                    for (DocumentSnapshot doc : legacy.getResult().getDocuments()) {
+                        eventIds.add(doc.getId());
+                    }
+                    callback.onSuccess(eventIds);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error getting registered events", e);
+                    callback.onError("Failed to get registered events: " + e.getMessage());
+                });
+    }
+    
+    public static CollectionReference attendees(String eventId) {
+        return FirebaseRefs.events().document(eventId).collection("attendees");
+    }
+    
+    // Attendee count is sharded under events/{id}/shards; the currentAttendees field on
+    // the event document is kept as the pre-sharding base and is no longer incremented.
+    public static ShardedCounter attendeeCounter(String eventId) {
+        return new ShardedCounter(FirebaseRefs.events().document(eventId));
+    }
+    
+    // Add the sharded attendee totals to a list of events, reading the shards of any event
+    // whose totals are not cached; an event whose shards cannot be read keeps its base count
+    static void loadAttendeeCounts(List<Models.EventItem> events, Runnable then) {
+        List<ShardedCounter> counters = new ArrayList<>();
+        for (Models.EventItem event : events) {
+            counters.add(attendeeCounter(event.id));
+        }
+        ShardedCounter.getTotals(counters, totals -> {
+            for (int i = 0; i < events.size(); i++) {
+                events.get(i).currentAttendees += (int) ShardedCounter.valueOf(totals.get(i), CURRENT_ATTENDEES);
+            }
+            then.run();
+        });
+    }
+    
     // Add event to Google Calendar
     public void addToGoogleCalendar(Context context, Models.EventItem event) {
         try {
@@ -4,6 +4,7 @@ import android.util.Log;
 
 import com.example.looplab.data.model.Models;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.AggregateSource;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -231,77 +232,47 @@ public class FeedbackService {
     }
     
     private void getCurrentStats(Models.Analytics analytics, AnalyticsCallback callback) {
-        // Get user count
-        FirebaseRefs.users().get()
-                .addOnSuccessListener(userSnapshot -> {
-                    analytics.totalUsers = userSnapshot.size();
-                    
-                    // Get active users (users active in last 7 days)
-                    long weekAgo = System.currentTimeMillis() - (7 * 24 * 60 * 60 * 1000);
-                    FirebaseRefs.users().whereGreaterThan("lastActive", weekAgo).get()
-                            .addOnSuccessListener(activeSnapshot -> {
-                                analytics.activeUsers = activeSnapshot.size();
-                                
-                                // Get course statistics
-                                FirebaseRefs.courses().get()
-                                        .addOnSuccessListener(courseSnapshot -> {
-                                            analytics.coursesCreated = courseSnapshot.size();
-                                            
-                                            // Get enrollment count
-                                            FirebaseRefs.enrollments().get()
-                                                    .addOnSuccessListener(enrollmentSnapshot -> {
-                                                        analytics.enrollments = enrollmentSnapshot.size();
-                                                        
-                                                        // Get event statistics
-                                                        FirebaseRefs.events().get()
-                                                                .addOnSuccessListener(eventSnapshot -> {
-                                                                    analytics.eventsCreated = eventSnapshot.size();
-                                                                    
-                                                                    // Get message count
-                                                                    FirebaseRefs.messages().get()
-                                                                            .addOnSuccessListener(messageSnapshot -> {
-                                                                                analytics.messagesSent = messageSnapshot.size();
-                                                                                
-                                                                                // Save analytics
-                                                                                FirebaseRefs.analytics().document(analytics.id).set(analytics.toMap())
-                                                                                        .addOnSuccessListener(aVoid -> {
-                                                                                            Log.d(TAG, "Analytics entry created: " + analytics.id);
-                                                                                            callback.onSuccess(analytics);
-                                                                                        })
-                                                                                        .addOnFailureListener(e -> {
-                                                                                            Log.e(TAG, "Error saving analytics", e);
-                                                                                            callback.onError("Failed to save analytics: " + e.getMessage());
-                                                                                        });
-                                                                            })
-                                                                            .addOnFailureListener(e -> {
-                                                                                Log.e(TAG, "Error getting messages", e);
-                                                                                callback.onError("Failed to get messages: " + e.getMessage());
-                                                                            });
-                                                                })
-                                                                .addOnFailureListener(e -> {
-                                                                    Log.e(TAG, "Error getting events", e);
-                                                                    callback.onError("Failed to get events: " + e.getMessage());
-                                                                });
-                                                    })
-                                                    .addOnFailureListener(e -> {
-                                                        Log.e(TAG, "Error getting enrollments", e);
-                                                        callback.onError("Failed to get enrollments: " + e.getMessage());
-                                                    });
-                                        })
-                                        .addOnFailureListener(e -> {
-                                            Log.e(TAG, "Error getting courses", e);
-                                            callback.onError("Failed to get courses: " + e.getMessage());
-                                        });
-                            })
-                            .addOnFailureListener(e -> {
-                                Log.e(TAG, "Error getting active users", e);
-                                callback.onError("Failed to get active users: " + e.getMessage());
-                            });
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error getting users", e);
-                    callback.onError("Failed to get users: " + e.getMessage());
-                });
+        // Totals come from the pre-aggregated counters instead of scanning each collection
+        StatsService.getCounters(new StatsService.StatsCallback() {
+            @Override
+            public void onSuccess(Map<String, Long> counters) {
+                analytics.totalUsers = (int) StatsService.get(counters, StatsService.USERS);
+                analytics.coursesCreated = (int) StatsService.get(counters, StatsService.COURSES);
+                analytics.enrollments = (int) StatsService.get(counters, StatsService.ENROLLMENTS);
+                analytics.eventsCreated = (int) StatsService.get(counters, StatsService.EVENTS);
+                analytics.eventsAttended = (int) StatsService.get(counters, StatsService.EVENTS_ATTENDED);
+                analytics.messagesSent = (int) StatsService.get(counters, StatsService.MESSAGES);
+
+                // Active users (active in last 7 days) as a server-side count aggregation
+                long weekAgo = System.currentTimeMillis() - (7L * 24 * 60 * 60 * 1000);
+                FirebaseRefs.users().whereGreaterThan("lastActive", weekAgo)
+                        .count()
+                        .get(AggregateSource.SERVER)
+                        .addOnSuccessListener(countSnapshot -> {
+                            analytics.activeUsers = (int) countSnapshot.getCount();
+
+                            // Save analytics
+                            FirebaseRefs.analytics().document(analytics.id).set(analytics.toMap())
+                                    .addOnSuccessListener(aVoid -> {
+                                        Log.d(TAG, "Analytics entry created: " + analytics.id);
+                                        callback.onSuccess(analytics);
+                                    })
+                                    .addOnFailureListener(e -> {
+                                        Log.e(TAG, "Error saving analytics", e);
+                                        callback.onError("Failed to save analytics: " + e.getMessage());
+                                    });
+                        })
+                        .addOnFailureListener(e -> {
+                            Log.e(TAG, "Error getting active users", e);
+                            callback.onError("Failed to get active users: " + e.getMessage());
+                        });
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
     }
     
     // Get analytics by type
@@ -88,6 +88,14 @@ public final class FirebaseRefs {
     public static CollectionReference conversations() {
         return db().collection("conversations");
     }
+
+    public static CollectionReference stats() {
+        return db().collection("stats");
+    }
+
+    public static CollectionReference summaries() {
+        return db().collection("summaries");
+    }
 }
 
 
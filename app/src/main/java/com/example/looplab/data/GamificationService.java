@@ -5,6 +5,7 @@ import android.util.Log;
 import com.example.looplab.data.model.Models;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
 
 import java.util.ArrayList;
@@ -15,6 +16,8 @@ import java.util.Map;
 public class GamificationService {
     private static final String TAG = "GamificationService";
     
+    private static volatile BadgeRules rules;
+    
     public interface GamificationCallback {
         void onSuccess();
         void onError(String error);
@@ -30,19 +33,12 @@ public class GamificationService {
         void onError(String error);
     }
     
-    // Award points to user
+    // Award points to user; the leaderboard entry moves in the same transaction
     public void awardPoints(String userId, int points, String reason, GamificationCallback callback) {
-        DocumentReference userRef = FirebaseRefs.users().document(userId);
-        
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("points", FieldValue.increment(points));
-        updates.put("lastActive", System.currentTimeMillis());
-        
-        userRef.update(updates)
+        LeaderboardService.awardPoints(userId, points)
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Awarded " + points + " points to user " + userId + " for: " + reason);
-                    updateLeaderboard(userId);
-                    checkForBadges(userId, callback);
+                    checkBadges(userId, callback);
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error awarding points", e);
@@ -50,175 +46,101 @@ public class GamificationService {
                 });
     }
     
-    // Check and award badges based on user activity
-    private void checkForBadges(String userId, GamificationCallback callback) {
-        FirebaseRefs.users().document(userId).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        Models.UserProfile user = documentSnapshot.toObject(Models.UserProfile.class);
-                        if (user != null) {
-                            checkBadgeCriteria(user, callback);
+    // Award every badge the user now qualifies for. The leaderboard entry is the user's stats
+    // aggregate and mirrors their badges, so this is one read and one commit.
+    public void checkBadges(String userId, GamificationCallback callback) {
+        loadRules(rules -> {
+            DocumentReference entryRef = FirebaseRefs.leaderboard().document(userId);
+            DocumentReference userRef = FirebaseRefs.users().document(userId);
+            FirebaseRefs.db().runTransaction(transaction -> {
+                        DocumentSnapshot entry = transaction.get(entryRef);
+                        if (!entry.exists()) return new ArrayList<String>();
+                        List<String> earned = rules.evaluate(statsOf(entry), stringList(entry.get("badges")));
+                        if (earned.isEmpty()) return earned;
+                        
+                        Map<String, Object> userUpdates = new HashMap<>();
+                        userUpdates.put("badges", FieldValue.arrayUnion(earned.toArray()));
+                        userUpdates.put("updatedAt", System.currentTimeMillis());
+                        transaction.update(userRef, userUpdates);
+                        transaction.update(entryRef, "badges", FieldValue.arrayUnion(earned.toArray()));
+                        return earned;
+                    })
+                    .addOnSuccessListener(earned -> {
+                        if (!earned.isEmpty()) {
+                            Log.d(TAG, "Awarded badges to user " + userId + ": " + earned);
                         }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error checking badges", e);
-                    callback.onError("Failed to check badges: " + e.getMessage());
-                });
+                        callback.onSuccess();
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Error awarding badges", e);
+                        callback.onError("Failed to award badges: " + e.getMessage());
+                    });
+        });
     }
     
-    private void checkBadgeCriteria(Models.UserProfile user, GamificationCallback callback) {
-        List<String> newBadges = new ArrayList<>();
-        
-        // Check for various badge criteria
-        if (user.points >= 100 && !hasBadge(user, "first_100")) {
-            newBadges.add("first_100");
-        }
-        if (user.points >= 500 && !hasBadge(user, "point_collector")) {
-            newBadges.add("point_collector");
+    // Compiled rules, read from the badges collection once per process
+    private static void loadRules(java.util.function.Consumer<BadgeRules> consumer) {
+        BadgeRules cached = rules;
+        if (cached != null) {
+            consumer.accept(cached);
+            return;
         }
-        if (user.points >= 1000 && !hasBadge(user, "point_master")) {
-            newBadges.add("point_master");
-        }
-        
-        // Check course completion badges
-        checkCourseBadges(user, newBadges);
-        
-        // Award new badges
-        if (!newBadges.isEmpty()) {
-            awardBadges(user.uid, newBadges, callback);
-        } else {
-            callback.onSuccess();
-        }
-    }
-    
-    private boolean hasBadge(Models.UserProfile user, String badgeId) {
-        return user.badges != null && user.badges.contains(badgeId);
-    }
-    
-    private void checkCourseBadges(Models.UserProfile user, List<String> newBadges) {
-        // This would check course completion data from Firestore
-        // For now, we'll implement basic badge logic
-        FirebaseRefs.enrollments().whereEqualTo("userId", user.uid)
-                .whereEqualTo("isActive", true)
-                .get()
+        FirebaseRefs.badges().get()
                 .addOnSuccessListener(querySnapshot -> {
-                    int completedCourses = 0;
+                    List<Models.Badge> badges = new ArrayList<>();
                     for (var doc : querySnapshot.getDocuments()) {
-                        Models.Enrollment enrollment = doc.toObject(Models.Enrollment.class);
-                        if (enrollment != null && enrollment.progress >= 100) {
-                            completedCourses++;
+                        Models.Badge badge = doc.toObject(Models.Badge.class);
+                        if (badge != null) {
+                            if (badge.id == null) badge.id = doc.getId();
+                            badges.add(badge);
                         }
                     }
-                    
-                    if (completedCourses >= 1 && !hasBadge(user, "first_course")) {
-                        newBadges.add("first_course");
-                    }
-                    if (completedCourses >= 5 && !hasBadge(user, "course_explorer")) {
-                        newBadges.add("course_explorer");
-                    }
-                    if (completedCourses >= 10 && !hasBadge(user, "course_master")) {
-                        newBadges.add("course_master");
-                    }
-                });
-    }
-    
-    private void awardBadges(String userId, List<String> badgeIds, GamificationCallback callback) {
-        DocumentReference userRef = FirebaseRefs.users().document(userId);
-        
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("badges", FieldValue.arrayUnion(badgeIds.toArray()));
-        
-        userRef.update(updates)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Awarded badges to user " + userId + ": " + badgeIds);
-                    callback.onSuccess();
+                    BadgeRules compiled = badges.isEmpty() ? BadgeRules.builtIn() : BadgeRules.compile(badges);
+                    rules = compiled;
+                    consumer.accept(compiled);
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error awarding badges", e);
-                    callback.onError("Failed to award badges: " + e.getMessage());
+                    // Not cached, so the collection is read again next time
+                    Log.w(TAG, "Error loading badge rules; using built-in rules", e);
+                    consumer.accept(BadgeRules.builtIn());
                 });
     }
     
-    // Update leaderboard entry for user
-    private void updateLeaderboard(String userId) {
-        FirebaseRefs.users().document(userId).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        Models.UserProfile user = documentSnapshot.toObject(Models.UserProfile.class);
-                        if (user != null) {
-                            calculateLeaderboardStats(user, stats -> {
-                                Models.LeaderboardEntry entry = new Models.LeaderboardEntry();
-                                entry.userId = user.uid;
-                                entry.userName = user.name;
-                                entry.userPhotoUrl = user.photoUrl;
-                                entry.points = user.points;
-                                entry.coursesCompleted = stats.coursesCompleted;
-                                entry.eventsAttended = stats.eventsAttended;
-                                entry.lecturesWatched = stats.lecturesWatched;
-                                
-                                FirebaseRefs.leaderboard().document(userId).set(entry.toMap());
-                            });
-                        }
-                    }
-                });
-    }
-    
-    private static class LeaderboardStats {
-        int coursesCompleted;
-        int eventsAttended;
-        int lecturesWatched;
+    private static Map<String, Long> statsOf(DocumentSnapshot entry) {
+        Map<String, Long> stats = new HashMap<>();
+        Map<String, Object> data = entry.getData();
+        if (data == null) return stats;
+        for (Map.Entry<String, Object> field : data.entrySet()) {
+            if (field.getValue() instanceof Number) {
+                stats.put(field.getKey(), ((Number) field.getValue()).longValue());
+            }
+        }
+        return stats;
     }
     
-    private void calculateLeaderboardStats(Models.UserProfile user, java.util.function.Consumer<LeaderboardStats> callback) {
-        LeaderboardStats stats = new LeaderboardStats();
-        
-        // Count completed courses
-        FirebaseRefs.enrollments().whereEqualTo("userId", user.uid)
-                .whereEqualTo("progress", 100)
-                .get()
-                .addOnSuccessListener(enrollmentSnapshot -> {
-                    stats.coursesCompleted = enrollmentSnapshot.size();
-                    
-                    // Count attended events
-                    FirebaseRefs.events().whereArrayContains("attendees", user.uid)
-                            .get()
-                            .addOnSuccessListener(eventSnapshot -> {
-                                stats.eventsAttended = eventSnapshot.size();
-                                
-                                // Count watched lectures
-                                FirebaseRefs.progress().whereEqualTo("userId", user.uid)
-                                        .whereEqualTo("completed", true)
-                                        .get()
-                                        .addOnSuccessListener(progressSnapshot -> {
-                                            stats.lecturesWatched = progressSnapshot.size();
-                                            callback.accept(stats);
-                                        });
-                            });
-                });
+    private static List<String> stringList(Object value) {
+        List<String> list = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (item instanceof String) list.add((String) item);
+            }
+        }
+        return list;
     }
     
     // Get leaderboard entries
     public void getLeaderboard(LeaderboardCallback callback) {
-        FirebaseRefs.leaderboard().orderBy("points", com.google.firebase.firestore.Query.Direction.DESCENDING)
-                .limit(50)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<Models.LeaderboardEntry> entries = new ArrayList<>();
-                    int rank = 1;
-                    for (var doc : querySnapshot.getDocuments()) {
-                        Models.LeaderboardEntry entry = doc.toObject(Models.LeaderboardEntry.class);
-                        if (entry != null) {
-                            entry.rank = rank++;
-                            entries.add(entry);
-                        }
-                    }
-                    callback.onSuccess(entries);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error getting leaderboard", e);
-                    callback.onError("Failed to get leaderboard: " + e.getMessage());
-                });
+        new LeaderboardService().getTop(LeaderboardService.DEFAULT_TOP_N, new LeaderboardService.LeaderboardCallback() {
+            @Override
+            public void onSuccess(List<Models.LeaderboardEntry> entries) {
+                callback.onSuccess(entries);
+            }
+            
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
     }
     
     // Get user's badges
@@ -263,6 +185,7 @@ public class GamificationService {
         // Points badges
         Models.Badge first100 = new Models.Badge();
         first100.id = "first_100";
+        first100.criteria = BadgeRules.builtInCriteria(first100.id);
         first100.name = "First Steps";
         first100.description = "Earned your first 100 points";
         first100.category = "points";
@@ -271,6 +194,7 @@ public class GamificationService {
         
         Models.Badge pointCollector = new Models.Badge();
         pointCollector.id = "point_collector";
+        pointCollector.criteria = BadgeRules.builtInCriteria(pointCollector.id);
         pointCollector.name = "Point Collector";
         pointCollector.description = "Earned 500 points";
         pointCollector.category = "points";
@@ -279,6 +203,7 @@ public class GamificationService {
         
         Models.Badge pointMaster = new Models.Badge();
         pointMaster.id = "point_master";
+        pointMaster.criteria = BadgeRules.builtInCriteria(pointMaster.id);
         pointMaster.name = "Point Master";
         pointMaster.description = "Earned 1000 points";
         pointMaster.category = "points";
@@ -288,6 +213,7 @@ public class GamificationService {
         // Course badges
         Models.Badge firstCourse = new Models.Badge();
         firstCourse.id = "first_course";
+        firstCourse.criteria = BadgeRules.builtInCriteria(firstCourse.id);
         firstCourse.name = "First Course";
         firstCourse.description = "Completed your first course";
         firstCourse.category = "courses";
@@ -296,6 +222,7 @@ public class GamificationService {
         
         Models.Badge courseExplorer = new Models.Badge();
         courseExplorer.id = "course_explorer";
+        courseExplorer.criteria = BadgeRules.builtInCriteria(courseExplorer.id);
         courseExplorer.name = "Course Explorer";
         courseExplorer.description = "Completed 5 courses";
         courseExplorer.category = "courses";
@@ -304,6 +231,7 @@ public class GamificationService {
         
         Models.Badge courseMaster = new Models.Badge();
         courseMaster.id = "course_master";
+        courseMaster.criteria = BadgeRules.builtInCriteria(courseMaster.id);
         courseMaster.name = "Course Master";
         courseMaster.description = "Completed 10 courses";
         courseMaster.category = "courses";
@@ -314,5 +242,6 @@ public class GamificationService {
         for (Models.Badge badge : defaultBadges) {
             FirebaseRefs.badges().document(badge.id).set(badge.toMap());
         }
+        rules = null;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.example.looplab.data;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * The app's one HTTP client, shared by every outbound request and by Retrofit.
+ *
+ * A single client means one connection pool and dispatcher: connections (HTTP/2 where the
+ * server offers it, so concurrent calls multiplex over one socket) stay warm between screens
+ * and a repeat request skips the TCP and TLS handshakes. Responses are gzip-compressed
+ * transparently and cacheable GET responses are kept in a disk {@link Cache} once
+ * {@link #init} has run. Interceptors registered with {@link #addInterceptor} (e.g. metrics)
+ * wrap every call; each call's timing and whether it reused a connection are logged too.
+ * Callers needing different timeouts or interceptors derive a client with {@link #newBuilder()},
+ * which keeps the shared pool and dispatcher.
+ */
+public final class HttpClients {
+    private static final String TAG = "HttpClients";
+
+    static final long CACHE_BYTES = 10L * 1024 * 1024;
+    static final int MAX_IDLE_CONNECTIONS = 5;
+    static final long KEEP_ALIVE_MINUTES = 5;
+    static final long TIMEOUT_SECONDS = 30;
+    private static final String CACHE_DIR = "http_cache";
+
+    private static final List<Interceptor> interceptors = new CopyOnWriteArrayList<>();
+    private static final Map<String, Retrofit> retrofits = new HashMap<>();
+    private static volatile OkHttpClient client;
+    private static volatile File cacheDir;
+
+    private HttpClients() {}
+
+    // Enables the disk cache; call from Application.onCreate before the first request
+    public static void init(Context context) {
+        if (cacheDir == null) {
+            cacheDir = new File(context.getApplicationContext().getCacheDir(), CACHE_DIR);
+        }
+    }
+
+    public static OkHttpClient get() {
+        if (client == null) {
+            synchronized (HttpClients.class) {
+                if (client == null) {
+                    client = build();
+                }
+            }
+        }
+        return client;
+    }
+
+    // Builder for a variant client (other timeouts, extra interceptors) on the shared pool
+    public static OkHttpClient.Builder newBuilder() {
+        return get().newBuilder();
+    }
+
+    // Runs for every call made through the shared client, in the order added; register from
+    // Application.onCreate, since the client is built once on first use
+    public static void addInterceptor(Interceptor interceptor) {
+        if (client != null) {
+            Log.w(TAG, "Interceptor added after the client was built; use newBuilder() instead");
+            return;
+        }
+        interceptors.add(interceptor);
+    }
+
+    // Retrofit on the shared client, one instance per base URL
+    public static Retrofit retrofit(String baseUrl) {
+        synchronized (retrofits) {
+            Retrofit retrofit = retrofits.get(baseUrl);
+            if (retrofit == null) {
+                retrofit = new Retrofit.Builder()
+                        .baseUrl(baseUrl)
+                        .client(get())
+                        .addConverterFactory(GsonConverterFactory.create())
+                        .build();
+                retrofits.put(baseUrl, retrofit);
+            }
+            return retrofit;
+        }
+    }
+
+    private static OkHttpClient build() {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true)
+                .addInterceptor(HttpClients::timeCall)
+                .eventListenerFactory(call -> new ConnectionLogger());
+        for (Interceptor interceptor : interceptors) {
+            builder.addInterceptor(interceptor);
+        }
+        if (cacheDir != null) {
+            builder.cache(new Cache(cacheDir, CACHE_BYTES));
+        } else {
+            Log.w(TAG, "HTTP client built before init(); responses will not be cached");
+        }
+        return builder.build();
+    }
+
+    private static Response timeCall(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        long start = SystemClock.elapsedRealtime();
+        Response response = chain.proceed(request);
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        String source = response.cacheResponse() != null && response.networkResponse() == null ? "cache" : response.protocol().toString();
+        // Headers only: a streamed body keeps arriving after this
+        Log.d(TAG, request.method() + " " + request.url().host() + request.url().encodedPath()
+                + " -> " + response.code() + " in " + elapsed + " ms (" + source + ")");
+        return response;
+    }
+
+    // Logs connection setup per call, so cold handshakes stand out from warm reuse
+    private static final class ConnectionLogger extends EventListener {
+        private long connectStart;
+        private long secureStart;
+        private long handshakeMs = -1;
+
+        @Override
+        public void connectStart(@NonNull Call call, @NonNull InetSocketAddress address, @NonNull Proxy proxy) {
+            connectStart = SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void secureConnectStart(@NonNull Call call) {
+            secureStart = SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void secureConnectEnd(@NonNull Call call, Handshake handshake) {
+            handshakeMs = SystemClock.elapsedRealtime() - secureStart;
+        }
+
+        @Override
+        public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress address, @NonNull Proxy proxy, Protocol protocol) {
+            Log.d(TAG, "New " + protocol + " connection to " + call.request().url().host() + " in "
+                    + (SystemClock.elapsedRealtime() - connectStart) + " ms (TLS " + handshakeMs + " ms)");
+        }
+
+        @Override
+        public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+            if (connectStart == 0) {
+                Log.d(TAG, "Reused " + connection.protocol() + " connection to " + call.request().url().host());
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.looplab.data;
+
+import android.util.Log;
+
+import com.example.looplab.data.model.Models;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Materialized leaderboard under {@code leaderboard/{uid}}.
+ *
+ * Entries are maintained incrementally: points move in the same transaction that awards
+ * them, and the activity stats are bumped with {@code FieldValue.increment} by the writers
+ * that cause them. A histogram of entries per score tier ({@link #TIER_WIDTH} points wide)
+ * is kept in a {@link ShardedCounter} under {@code summaries/leaderboard}, so a rank is
+ * the number of users in higher tiers plus one count() over the user's own tier. Entries from
+ * before the histogram existed are added to it by {@link #migrateTiers}, a one-time admin action.
+ */
+public class LeaderboardService {
+    private static final String TAG = "LeaderboardService";
+
+    public static final String COURSES_COMPLETED = "coursesCompleted";
+    public static final String EVENTS_ATTENDED = "eventsAttended";
+    public static final String LECTURES_WATCHED = "lecturesWatched";
+
+    public static final int DEFAULT_TOP_N = 50;
+    static final int TIER_WIDTH = 50;
+    private static final String TIER_PREFIX = "tier_";
+    // Set on entries that are counted in the tier histogram
+    private static final String TIERED = "tiered";
+    // Entries tiered in parallel by migrateTiers
+    static final int MIGRATION_CONCURRENCY = 20;
+
+    public interface LeaderboardCallback {
+        void onSuccess(List<Models.LeaderboardEntry> entries);
+        void onError(String error);
+    }
+
+    public interface RankCallback {
+        // rank is 1-based (users with equal points share a rank); 0 if the user has no entry
+        void onSuccess(long rank, long totalParticipants, Models.LeaderboardEntry entry);
+        void onError(String error);
+    }
+
+    public interface RebuildCallback {
+        void onSuccess(int entries);
+        void onError(String error);
+    }
+
+    private static ShardedCounter tiers() {
+        return new ShardedCounter(FirebaseRefs.summaries().document("leaderboard"));
+    }
+
+    static int tierOf(long points) {
+        return (int) (Math.max(0, points) / TIER_WIDTH);
+    }
+
+    private static String tierField(int tier) {
+        return TIER_PREFIX + tier;
+    }
+
+    // Add points to the user and move their leaderboard entry (and its tier) in one transaction
+    public static Task<Void> awardPoints(String userId, int points) {
+        DocumentReference userRef = FirebaseRefs.users().document(userId);
+        DocumentReference entryRef = FirebaseRefs.leaderboard().document(userId);
+        ShardedCounter tiers = tiers();
+        return FirebaseRefs.db().runTransaction(transaction -> {
+                    DocumentSnapshot user = transaction.get(userRef);
+                    DocumentSnapshot entry = transaction.get(entryRef);
+                    boolean tiered = entry.exists() && Boolean.TRUE.equals(entry.getBoolean(TIERED));
+                    long before = tiered ? longField(entry, "points") : longField(user, "points");
+                    long after = before + points;
+
+                    long now = System.currentTimeMillis();
+                    Map<String, Object> userUpdates = new HashMap<>();
+                    userUpdates.put("points", FieldValue.increment(points));
+                    userUpdates.put("lastActive", now);
+                    userUpdates.put("updatedAt", now);
+                    transaction.update(userRef, userUpdates);
+
+                    Map<String, Object> entryUpdates = new HashMap<>();
+                    entryUpdates.put("userId", userId);
+                    entryUpdates.put("userName", user.getString("name"));
+                    entryUpdates.put("userPhotoUrl", user.getString("photoUrl"));
+                    entryUpdates.put("points", after);
+                    entryUpdates.put(TIERED, true);
+                    transaction.set(entryRef, entryUpdates, SetOptions.merge());
+
+                    if (!tiered) {
+                        tiers.increment(transaction, tierField(tierOf(after)), 1);
+                    } else if (tierOf(before) != tierOf(after)) {
+                        tiers.increment(transaction, tierField(tierOf(before)), -1);
+                        tiers.increment(transaction, tierField(tierOf(after)), 1);
+                    }
+                    return null;
+                })
+                .addOnSuccessListener(aVoid -> tiers.invalidate());
+    }
+
+    // Bump one activity stat on the user's entry
+    public static Task<Void> incrementStat(String userId, String stat, long delta) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("userId", userId);
+        updates.put(stat, FieldValue.increment(delta));
+        return FirebaseRefs.leaderboard().document(userId).set(updates, SetOptions.merge())
+                .addOnFailureListener(e -> Log.e(TAG, "Error updating " + stat + " for " + userId, e));
+    }
+
+    // Top N entries by points
+    public void getTop(int limit, LeaderboardCallback callback) {
+        FirebaseRefs.leaderboard().orderBy("points", Query.Direction.DESCENDING)
+                .limit(limit)
+                .get()
+                .addOnSuccessListener(querySnapshot -> {
+                    List<Models.LeaderboardEntry> entries = new ArrayList<>();
+                    int rank = 0;
+                    long previousPoints = Long.MIN_VALUE;
+                    int position = 0;
+                    for (var doc : querySnapshot.getDocuments()) {
+                        Models.LeaderboardEntry entry = doc.toObject(Models.LeaderboardEntry.class);
+                        if (entry == null) continue;
+                        position++;
+                        // Standard competition ranking: ties share the better rank
+                        if (entry.points != previousPoints) {
+                            rank = position;
+                            previousPoints = entry.points;
+                        }
+                        entry.rank = rank;
+                        if (entry.userId == null) entry.userId = doc.getId();
+                        entries.add(entry);
+                    }
+                    callback.onSuccess(entries);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error getting leaderboard", e);
+                    callback.onError("Failed to get leaderboard: " + e.getMessage());
+                });
+    }
+
+    // Rank of one user: their entry, the cached tier histogram and one count() over their tier
+    public void getRank(String userId, RankCallback callback) {
+        FirebaseRefs.leaderboard().document(userId).get()
+                .addOnSuccessListener(entrySnapshot -> {
+                    Models.LeaderboardEntry entry = entrySnapshot.exists()
+                            ? entrySnapshot.toObject(Models.LeaderboardEntry.class) : null;
+                    tiers().getTotals(new ShardedCounter.TotalsCallback() {
+                        @Override
+                        public void onSuccess(Map<String, Long> totals) {
+                            long participants = 0;
+                            for (Map.Entry<String, Long> tier : totals.entrySet()) {
+                                if (tier.getKey().startsWith(TIER_PREFIX)) participants += tier.getValue();
+                            }
+                            if (entry == null) {
+                                callback.onSuccess(0, participants, null);
+                                return;
+                            }
+                            entry.userId = userId;
+                            int tier = tierOf(entry.points);
+                            long above = 0;
+                            for (Map.Entry<String, Long> bucket : totals.entrySet()) {
+                                if (!bucket.getKey().startsWith(TIER_PREFIX)) continue;
+                                int bucketTier = Integer.parseInt(bucket.getKey().substring(TIER_PREFIX.length()));
+                                if (bucketTier > tier) above += bucket.getValue();
+                            }
+                            long finalParticipants = participants;
+                            long finalAbove = above;
+                            FirebaseRefs.leaderboard()
+                                    .whereGreaterThan("points", entry.points)
+                                    .whereLessThan("points", (long) (tier + 1) * TIER_WIDTH)
+                                    .count().get(AggregateSource.SERVER)
+                                    .addOnSuccessListener(aggregate -> {
+                                        entry.rank = (int) (1 + finalAbove + aggregate.getCount());
+                                        callback.onSuccess(entry.rank, finalParticipants, entry);
+                                    })
+                                    .addOnFailureListener(e -> {
+                                        Log.e(TAG, "Error counting tier " + tier, e);
+                                        callback.onError("Failed to get rank: " + e.getMessage());
+                                    });
+                        }
+
+                        @Override
+                        public void onError(String error) {
+                            callback.onError(error);
+                        }
+                    });
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error getting leaderboard entry", e);
+                    callback.onError("Failed to get rank: " + e.getMessage());
+                });
+    }
+
+    // One-time migration for entries created before the tier histogram (admin only). Each entry
+    // not yet tiered is marked and counted into its bucket in its own transaction, the same way
+    // awardPoints tiers a new entry, so concurrent point awards are never lost or counted twice
+    // and the migration can be re-run safely. Reports the number of entries it tiered.
+    public void migrateTiers(RebuildCallback callback) {
+        FirebaseRefs.leaderboard().get()
+                .addOnSuccessListener(querySnapshot -> {
+                    List<DocumentReference> untiered = new ArrayList<>();
+                    for (var doc : querySnapshot.getDocuments()) {
+                        if (!Boolean.TRUE.equals(doc.getBoolean(TIERED))) untiered.add(doc.getReference());
+                    }
+                    Log.d(TAG, "Tiering " + untiered.size() + " of " + querySnapshot.size() + " leaderboard entries");
+                    migrateFrom(untiered, 0, 0, callback);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error reading leaderboard", e);
+                    callback.onError("Failed to migrate leaderboard: " + e.getMessage());
+                });
+    }
+
+    private void migrateFrom(List<DocumentReference> entries, int start, int tiered, RebuildCallback callback) {
+        if (start >= entries.size()) {
+            tiers().invalidate();
+            Log.d(TAG, "Leaderboard migration tiered " + tiered + " entries");
+            callback.onSuccess(tiered);
+            return;
+        }
+        List<Task<Boolean>> group = new ArrayList<>();
+        for (DocumentReference entry : entries.subList(start, Math.min(start + MIGRATION_CONCURRENCY, entries.size()))) {
+            group.add(tierEntry(entry));
+        }
+        Tasks.whenAllSuccess(group)
+                .addOnSuccessListener(results -> {
+                    int count = tiered;
+                    for (Object result : results) {
+                        if (Boolean.TRUE.equals(result)) count++;
+                    }
+                    migrateFrom(entries, start + group.size(), count, callback);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error tiering leaderboard entries", e);
+                    callback.onError("Failed to migrate leaderboard: " + e.getMessage());
+                });
+    }
+
+    // Count one entry into its tier unless awardPoints (or an earlier run) already has
+    private static Task<Boolean> tierEntry(DocumentReference entryRef) {
+        ShardedCounter tiers = tiers();
+        return FirebaseRefs.db().runTransaction(transaction -> {
+            DocumentSnapshot entry = transaction.get(entryRef);
+            if (!entry.exists() || Boolean.TRUE.equals(entry.getBoolean(TIERED))) return false;
+            transaction.update(entryRef, TIERED, true);
+            tiers.increment(transaction, tierField(tierOf(longField(entry, "points"))), 1);
+            return true;
+        });
+    }
+
+    private static long longField(DocumentSnapshot doc, String field) {
+        Long value = doc.exists() ? doc.getLong(field) : null;
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.looplab.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk mirror of Firestore documents, used by {@link OfflineRepository}.
+ *
+ * Documents are stored as JSON grouped by scope (a collection or a filtered slice of one,
+ * e.g. {@code lectures:<courseId>}), together with the scope's sync watermark: the highest
+ * {@code updatedAt} seen and the time of the last full sync. All methods block and must be
+ * called off the main thread.
+ */
+public final class LocalStore extends SQLiteOpenHelper {
+    private static final String DB_NAME = "looplab_mirror.db";
+    private static final int DB_VERSION = 1;
+
+    private static final String T_DOCS = "documents";
+    private static final String T_SYNC = "sync_state";
+
+    private static volatile LocalStore instance;
+
+    public static void init(Context context) {
+        if (instance == null) {
+            synchronized (LocalStore.class) {
+                if (instance == null) {
+                    instance = new LocalStore(context.getApplicationContext());
+                }
+            }
+        }
+    }
+
+    // Null until init() has run (e.g. in code paths that start before the Application)
+    static LocalStore get() {
+        return instance;
+    }
+
+    private LocalStore(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + T_DOCS + " ("
+                + "scope TEXT NOT NULL, "
+                + "id TEXT NOT NULL, "
+                + "json TEXT NOT NULL, "
+                + "updated_at INTEGER NOT NULL DEFAULT 0, "
+                + "PRIMARY KEY (scope, id))");
+        db.execSQL("CREATE INDEX idx_documents_id ON " + T_DOCS + " (id)");
+        db.execSQL("CREATE TABLE " + T_SYNC + " ("
+                + "scope TEXT PRIMARY KEY, "
+                + "watermark INTEGER NOT NULL DEFAULT 0, "
+                + "full_sync_at INTEGER NOT NULL DEFAULT 0)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // A mirror can always be rebuilt from Firestore
+        db.execSQL("DROP TABLE IF EXISTS " + T_DOCS);
+        db.execSQL("DROP TABLE IF EXISTS " + T_SYNC);
+        onCreate(db);
+    }
+
+    static class SyncState {
+        final long watermark;
+        final long fullSyncAt;
+
+        SyncState(long watermark, long fullSyncAt) {
+            this.watermark = watermark;
+            this.fullSyncAt = fullSyncAt;
+        }
+    }
+
+    List<String> readScope(String scope) {
+        List<String> rows = new ArrayList<>();
+        try (Cursor c = getReadableDatabase().query(T_DOCS, new String[]{"json"},
+                "scope = ?", new String[]{scope}, null, null, null)) {
+            while (c.moveToNext()) {
+                rows.add(c.getString(0));
+            }
+        }
+        return rows;
+    }
+
+    SyncState syncState(String scope) {
+        try (Cursor c = getReadableDatabase().query(T_SYNC, new String[]{"watermark", "full_sync_at"},
+                "scope = ?", new String[]{scope}, null, null, null)) {
+            if (c.moveToFirst()) {
+                return new SyncState(c.getLong(0), c.getLong(1));
+            }
+        }
+        return new SyncState(0, 0);
+    }
+
+    // Replace every document of a scope (full sync; drops documents deleted remotely)
+    void replaceScope(String scope, Map<String, String> docs, Map<String, Long> updatedAt, long fullSyncAt) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(T_DOCS, "scope = ?", new String[]{scope});
+            long watermark = writeDocs(db, scope, docs, updatedAt);
+            writeSyncState(db, scope, watermark, fullSyncAt);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Upsert documents of a scope (delta sync); returns false if none of them changed
+    boolean upsertScope(String scope, Map<String, String> docs, Map<String, Long> updatedAt) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            boolean changed = false;
+            for (Map.Entry<String, String> doc : docs.entrySet()) {
+                if (!doc.getValue().equals(readDocument(db, scope, doc.getKey()))) {
+                    changed = true;
+                    break;
+                }
+            }
+            SyncState state = syncState(scope);
+            long watermark = Math.max(state.watermark, writeDocs(db, scope, docs, updatedAt));
+            writeSyncState(db, scope, watermark, state.fullSyncAt);
+            db.setTransactionSuccessful();
+            return changed;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private String readDocument(SQLiteDatabase db, String scope, String id) {
+        try (Cursor c = db.query(T_DOCS, new String[]{"json"},
+                "scope = ? AND id = ?", new String[]{scope, id}, null, null, null)) {
+            return c.moveToFirst() ? c.getString(0) : null;
+        }
+    }
+
+    private long writeDocs(SQLiteDatabase db, String scope, Map<String, String> docs, Map<String, Long> updatedAt) {
+        long watermark = 0;
+        for (Map.Entry<String, String> doc : docs.entrySet()) {
+            Long docUpdatedAt = updatedAt.get(doc.getKey());
+            long ts = docUpdatedAt != null ? docUpdatedAt : 0;
+            ContentValues values = new ContentValues();
+            values.put("scope", scope);
+            values.put("id", doc.getKey());
+            values.put("json", doc.getValue());
+            values.put("updated_at", ts);
+            db.insertWithOnConflict(T_DOCS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            watermark = Math.max(watermark, ts);
+        }
+        return watermark;
+    }
+
+    private void writeSyncState(SQLiteDatabase db, String scope, long watermark, long fullSyncAt) {
+        ContentValues values = new ContentValues();
+        values.put("scope", scope);
+        values.put("watermark", watermark);
+        values.put("full_sync_at", fullSyncAt);
+        db.insertWithOnConflict(T_SYNC, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    // Drop a document from every scope that holds it
+    void deleteDocument(String id) {
+        getWritableDatabase().delete(T_DOCS, "id = ?", new String[]{id});
+    }
+
+    void clear() {
+        SQLiteDatabase db = getWritableDatabase();
+        db.delete(T_DOCS, null, null);
+        db.delete(T_SYNC, null, null);
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.looplab.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.looplab.data.model.Models;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Offline-first reads for courses, lectures, enrollments, events and user profiles.
+ *
+ * Every read first delivers what {@link LocalStore} holds for the scope, then syncs with
+ * Firestore: a delta query on {@code updatedAt} above the scope's watermark, or a full fetch
+ * when the scope was never synced or its last full sync is older than
+ * {@link #FULL_SYNC_INTERVAL_MS} (full syncs also drop documents deleted remotely).
+ * Callbacks can therefore fire twice: once from disk, and again only if the network
+ * returned something different. Delta queries on a filtered scope need a composite
+ * index on (filter field, updatedAt).
+ */
+public class OfflineRepository {
+    private static final String TAG = "OfflineRepository";
+
+    static final long FULL_SYNC_INTERVAL_MS = 6 * 60 * 60 * 1000L;
+    // Writers stamp updatedAt with their own clock, so deltas re-read a margin below the watermark
+    static final long CLOCK_SKEW_MS = 5 * 60 * 1000L;
+
+    private static final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Gson gson = new Gson();
+
+    public interface EnrollmentListCallback {
+        void onSuccess(List<Models.Enrollment> enrollments);
+        void onError(String error);
+    }
+
+    public interface UserCallback {
+        void onSuccess(Models.UserProfile user);
+        void onError(String error);
+    }
+
+    private interface Delivery<T> {
+        void deliver(List<T> items);
+    }
+
+    private interface ErrorSink {
+        void onError(String error);
+    }
+
+    private interface IdSetter<T> {
+        void setId(T item, String id);
+    }
+
+    private static final class Scope<T> {
+        final String key;
+        final String collection;
+        final Query query;
+        final Class<T> type;
+        final IdSetter<T> idSetter;
+
+        Scope(String key, String collection, Query query, Class<T> type, IdSetter<T> idSetter) {
+            this.key = key;
+            this.collection = collection;
+            this.query = query;
+            this.type = type;
+            this.idSetter = idSetter;
+        }
+    }
+
+    private static Scope<Models.Course> coursesScope() {
+        return new Scope<>("courses", "courses", FirebaseRefs.courses(),
+                Models.Course.class, (course, id) -> course.id = id);
+    }
+
+    private static Scope<Models.Lecture> lecturesScope(String courseId) {
+        return new Scope<>("lectures:" + courseId, "lectures",
+                FirebaseRefs.lectures().whereEqualTo("courseId", courseId),
+                Models.Lecture.class, (lecture, id) -> lecture.id = id);
+    }
+
+    private static Scope<Models.EventItem> eventsScope() {
+        return new Scope<>("events", "events", FirebaseRefs.events(),
+                Models.EventItem.class, (event, id) -> event.id = id);
+    }
+
+    private static Scope<Models.Enrollment> enrollmentsScope(String userId) {
+        return new Scope<>("enrollments:" + userId, "enrollments",
+                FirebaseRefs.enrollments().whereEqualTo("userId", userId),
+                Models.Enrollment.class, (enrollment, id) -> enrollment.id = id);
+    }
+
+    private static Scope<Models.UserProfile> userScope(String uid) {
+        return new Scope<>("users:" + uid, "users",
+                FirebaseRefs.users().whereEqualTo(FieldPath.documentId(), uid),
+                Models.UserProfile.class, (user, id) -> user.uid = id);
+    }
+
+    // Published courses, newest first
+    public void getPublishedCourses(boolean forceFullSync, CourseService.CourseListCallback callback) {
+        load(coursesScope(), forceFullSync, courses -> {
+            List<Models.Course> published = new ArrayList<>();
+            for (Models.Course course : courses) {
+                if (course.isPublished) published.add(course);
+            }
+            published.sort((c1, c2) -> Long.compare(c2.createdAt, c1.createdAt));
+            CourseCatalogCache.putAll(published);
+            CourseService.loadEnrolledCounts(published, () -> callback.onSuccess(published));
+        }, callback::onError);
+    }
+
+    // Published lectures of a course, in lecture order
+    public void getCourseLectures(String courseId, CourseService.LectureCallback callback) {
+        load(lecturesScope(courseId), false, lectures -> {
+            List<Models.Lecture> published = new ArrayList<>();
+            for (Models.Lecture lecture : lectures) {
+                if (lecture.isPublished) published.add(lecture);
+            }
+            published.sort((l1, l2) -> Integer.compare(l1.order, l2.order));
+            callback.onSuccess(published);
+        }, callback::onError);
+    }
+
+    // All events, soonest first
+    public void getEvents(EventService.EventListCallback callback) {
+        load(eventsScope(), false, events -> {
+            events.sort((e1, e2) -> Long.compare(e1.startTime, e2.startTime));
+            EventService.loadAttendeeCounts(events, () -> callback.onSuccess(events));
+        }, callback::onError);
+    }
+
+    // All enrollments of a user, active or not
+    public void getUserEnrollments(String userId, EnrollmentListCallback callback) {
+        load(enrollmentsScope(userId), false, callback::onSuccess, callback::onError);
+    }
+
+    // A single profile; always re-read (one document costs the same as a delta query)
+    public void getUser(String uid, UserCallback callback) {
+        load(userScope(uid), true, users -> {
+            if (users.isEmpty()) {
+                callback.onError("User profile not found");
+            } else {
+                callback.onSuccess(users.get(0));
+            }
+        }, callback::onError);
+    }
+
+    // Remove a deleted document from the mirror right away instead of at the next full sync
+    public static void evict(String id) {
+        LocalStore store = LocalStore.get();
+        if (store == null || id == null) return;
+        diskExecutor.execute(() -> store.deleteDocument(id));
+    }
+
+    // Drop everything mirrored (on sign-out)
+    public static void clear() {
+        LocalStore store = LocalStore.get();
+        if (store == null) return;
+        diskExecutor.execute(store::clear);
+    }
+
+    private <T> void load(Scope<T> scope, boolean forceFullSync, Delivery<T> delivery, ErrorSink onError) {
+        LocalStore store = LocalStore.get();
+        if (store == null) {
+            fetchFull(null, scope, null, delivery, onError);
+            return;
+        }
+        diskExecutor.execute(() -> {
+            List<String> rows = store.readScope(scope.key);
+            LocalStore.SyncState state = store.syncState(scope.key);
+            boolean hasLocal = state.fullSyncAt > 0 || !rows.isEmpty();
+            List<T> local = decode(scope, rows);
+            mainHandler.post(() -> {
+                if (hasLocal) {
+                    delivery.deliver(local);
+                }
+                boolean fullSync = forceFullSync
+                        || System.currentTimeMillis() - state.fullSyncAt > FULL_SYNC_INTERVAL_MS;
+                if (fullSync) {
+                    fetchFull(store, scope, hasLocal ? rows : null, delivery, onError);
+                } else {
+                    fetchDelta(store, scope, state.watermark, delivery);
+                }
+            });
+        });
+    }
+
+    private <T> void fetchFull(LocalStore store, Scope<T> scope, List<String> localRows,
+                               Delivery<T> delivery, ErrorSink onError) {
+        scope.query.get()
+                .addOnSuccessListener(snapshot -> {
+                    Map<String, String> docs = new HashMap<>();
+                    Map<String, Long> updatedAt = new HashMap<>();
+                    List<T> items = toModels(scope, snapshot, docs, updatedAt);
+                    // Served from Firestore's own cache while offline: may be partial, so never
+                    // let it replace the mirror
+                    boolean fromCache = snapshot.getMetadata().isFromCache();
+                    if (fromCache && localRows != null) return;
+                    boolean unchanged = localRows != null
+                            && new HashSet<>(localRows).equals(new HashSet<>(docs.values()));
+                    if (!unchanged) {
+                        delivery.deliver(items);
+                    }
+                    if (store != null && !fromCache) {
+                        long syncedAt = System.currentTimeMillis();
+                        diskExecutor.execute(() -> store.replaceScope(scope.key, docs, updatedAt, syncedAt));
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Full sync failed for " + scope.key, e);
+                    if (localRows == null) {
+                        onError.onError("Failed to load " + scope.collection + ": " + e.getMessage());
+                    }
+                });
+    }
+
+    private <T> void fetchDelta(LocalStore store, Scope<T> scope, long watermark, Delivery<T> delivery) {
+        long since = Math.max(0, watermark - CLOCK_SKEW_MS);
+        scope.query.whereGreaterThan("updatedAt", since).get()
+                .addOnSuccessListener(snapshot -> {
+                    if (snapshot.isEmpty() || snapshot.getMetadata().isFromCache()) return;
+                    Map<String, String> docs = new HashMap<>();
+                    Map<String, Long> updatedAt = new HashMap<>();
+                    toModels(scope, snapshot, docs, updatedAt);
+                    diskExecutor.execute(() -> {
+                        if (!store.upsertScope(scope.key, docs, updatedAt)) return;
+                        List<T> merged = decode(scope, store.readScope(scope.key));
+                        mainHandler.post(() -> delivery.deliver(merged));
+                    });
+                })
+                // The local copy was already delivered; keep serving it
+                .addOnFailureListener(e -> Log.w(TAG, "Delta sync failed for " + scope.key, e));
+    }
+
+    private static <T> List<T> toModels(Scope<T> scope, QuerySnapshot snapshot,
+                                        Map<String, String> docs, Map<String, Long> updatedAt) {
+        List<T> items = new ArrayList<>();
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            T item = doc.toObject(scope.type);
+            if (item == null) continue;
+            scope.idSetter.setId(item, doc.getId());
+            items.add(item);
+            docs.put(doc.getId(), gson.toJson(item));
+            Long ts = doc.getLong("updatedAt");
+            updatedAt.put(doc.getId(), ts != null ? ts : 0L);
+        }
+        return items;
+    }
+
+    private static <T> List<T> decode(Scope<T> scope, List<String> rows) {
+        List<T> items = new ArrayList<>();
+        for (String json : rows) {
+            try {
+                T item = gson.fromJson(json, scope.type);
+                if (item != null) items.add(item);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Skipping unreadable row in " + scope.key, e);
+            }
+        }
+        return items;
+    }
+}
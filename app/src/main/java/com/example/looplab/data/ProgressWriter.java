@@ -0,0 +1,179 @@
+package com.example.looplab.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.looplab.data.model.Models;
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Buffers lecture watch time and writes it to Firestore in coalesced batches.
+ *
+ * {@link #record} only updates memory (and, every few seconds, a small journal in
+ * SharedPreferences). Pending watch time is written every {@link #FLUSH_INTERVAL_MS}, on
+ * {@link #flush()} (call it from onPause) and before a completion, with one blind write per
+ * lecture carrying the absolute watch time, so a retried or replayed write is harmless.
+ * Entries left in the journal by a killed process are written by the next writer created.
+ * Must be used from the main thread.
+ */
+public class ProgressWriter {
+    private static final String TAG = "ProgressWriter";
+
+    static final long FLUSH_INTERVAL_MS = 5 * 60 * 1000L;
+    static final long JOURNAL_INTERVAL_MS = 5_000L;
+    private static final String JOURNAL = "looplab_progress_journal";
+
+    private static final Gson gson = new Gson();
+
+    private final CourseService courseService;
+    private final SharedPreferences journal;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Pending> pending = new HashMap<>();
+    // Journal keys this writer has written; the journal is shared with other writers
+    private final Set<String> journaled = new HashSet<>();
+    private final Runnable flushRunnable = this::flush;
+    private boolean flushScheduled;
+    private long lastJournalAt;
+
+    private static class Pending {
+        String userId;
+        String courseId;
+        String lectureId;
+        int watchTime;
+        // Bumped on every record so an in-flight write only clears what it actually wrote
+        transient int version;
+    }
+
+    public ProgressWriter(Context context, CourseService courseService) {
+        this.courseService = courseService;
+        this.journal = context.getApplicationContext().getSharedPreferences(JOURNAL, Context.MODE_PRIVATE);
+        recover();
+    }
+
+    private static String key(String userId, String courseId, String lectureId) {
+        return userId + "_" + courseId + "_" + lectureId;
+    }
+
+    // Note the latest watch time of a lecture; watch time never moves backwards
+    public void record(String userId, String courseId, String lectureId, int watchSeconds) {
+        String key = key(userId, courseId, lectureId);
+        Pending entry = pending.get(key);
+        if (entry == null) {
+            entry = new Pending();
+            entry.userId = userId;
+            entry.courseId = courseId;
+            entry.lectureId = lectureId;
+            pending.put(key, entry);
+        }
+        if (watchSeconds <= entry.watchTime) return;
+        entry.watchTime = watchSeconds;
+        entry.version++;
+
+        long now = System.currentTimeMillis();
+        if (now - lastJournalAt >= JOURNAL_INTERVAL_MS) {
+            lastJournalAt = now;
+            writeJournal();
+        }
+        if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(flushRunnable, FLUSH_INTERVAL_MS);
+        }
+    }
+
+    // Mark a lecture completed, writing its pending watch time in the same call
+    public void complete(String userId, String courseId, String lectureId, int watchSeconds,
+                         CourseService.ProgressCallback callback) {
+        String key = key(userId, courseId, lectureId);
+        Pending entry = pending.remove(key);
+        int watchTime = entry != null ? Math.max(entry.watchTime, watchSeconds) : watchSeconds;
+        writeJournal();
+        courseService.updateLectureProgress(userId, courseId, lectureId, watchTime, true,
+                new CourseService.ProgressCallback() {
+                    @Override
+                    public void onSuccess(Models.Progress progress) {
+                        callback.onSuccess(progress);
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        // Keep the watch time for the next flush; completion is the caller's to retry
+                        record(userId, courseId, lectureId, watchTime);
+                        callback.onError(error);
+                    }
+                });
+    }
+
+    // Write everything pending now
+    public void flush() {
+        handler.removeCallbacks(flushRunnable);
+        flushScheduled = false;
+        writeJournal();
+        for (Map.Entry<String, Pending> item : new ArrayList<>(pending.entrySet())) {
+            String key = item.getKey();
+            Pending entry = item.getValue();
+            int version = entry.version;
+            courseService.saveWatchTime(entry.userId, entry.courseId, entry.lectureId, entry.watchTime)
+                    .addOnSuccessListener(aVoid -> {
+                        if (pending.get(key) == entry && entry.version == version) {
+                            pending.remove(key);
+                            writeJournal();
+                        }
+                    })
+                    // Stays pending (and journaled) for the next flush
+                    .addOnFailureListener(e -> Log.w(TAG, "Failed to save watch time for " + key, e));
+        }
+    }
+
+    // Rewrite this writer's own entries only; other writers' entries are left alone
+    private void writeJournal() {
+        SharedPreferences.Editor editor = journal.edit();
+        for (String key : journaled) {
+            if (!pending.containsKey(key)) editor.remove(key);
+        }
+        for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+            editor.putString(entry.getKey(), gson.toJson(entry.getValue()));
+        }
+        editor.apply();
+        journaled.clear();
+        journaled.addAll(pending.keySet());
+    }
+
+    // Re-queue what a previous process journaled but never wrote
+    private void recover() {
+        List<String> keys = new ArrayList<>();
+        SharedPreferences.Editor unreadable = journal.edit();
+        for (Map.Entry<String, ?> entry : journal.getAll().entrySet()) {
+            Pending item = null;
+            if (entry.getValue() instanceof String) {
+                try {
+                    item = gson.fromJson((String) entry.getValue(), Pending.class);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Dropping unreadable journal entry " + entry.getKey(), e);
+                }
+            }
+            if (item == null || item.userId == null) {
+                unreadable.remove(entry.getKey());
+                continue;
+            }
+            pending.put(entry.getKey(), item);
+            // Adopted: removed from the journal once written
+            journaled.add(entry.getKey());
+            keys.add(entry.getKey());
+        }
+        unreadable.apply();
+        if (!keys.isEmpty()) {
+            Log.d(TAG, "Recovered " + keys.size() + " unsaved progress entries");
+            flush();
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.looplab.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index for the search boxes over courses, events, users and team members.
+ *
+ * Each item's fields are split into lowercase word tokens. A query matches an item when every
+ * query word matches one of its tokens exactly, as a prefix, or (for words of three or more
+ * characters) as a substring found through a trigram index over the vocabulary. Results are
+ * ranked by match quality weighted by field, the first field weighing most, and keep the
+ * indexing order on ties. The index is updated per item, so feeding it every snapshot only
+ * re-tokenizes what changed. All methods are synchronized and may be called off the main thread.
+ *
+ * @param <T> indexed model type
+ */
+public class SearchIndex<T> {
+
+    public interface KeyExtractor<T> {
+        String key(T item);
+    }
+
+    // Searchable text of an item, most important field first; null fields are skipped
+    public interface FieldExtractor<T> {
+        String[] fields(T item);
+    }
+
+    private static final int EXACT = 3;
+    private static final int PREFIX = 2;
+    private static final int SUBSTRING = 1;
+
+    private final KeyExtractor<T> keyExtractor;
+    private final FieldExtractor<T> fieldExtractor;
+
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final List<T> items = new ArrayList<>();
+    private final List<String> texts = new ArrayList<>();
+    private final Map<Integer, Set<String>> tokensByDoc = new HashMap<>();
+    // token -> (doc -> best field weight the token occurs in)
+    private final TreeMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private final Map<String, Set<String>> tokensByTrigram = new HashMap<>();
+    // Insertion-ordered live docs, for empty queries and tie-breaking
+    private final Map<Integer, T> live = new LinkedHashMap<>();
+
+    public SearchIndex(KeyExtractor<T> keyExtractor, FieldExtractor<T> fieldExtractor) {
+        this.keyExtractor = keyExtractor;
+        this.fieldExtractor = fieldExtractor;
+    }
+
+    public synchronized int size() {
+        return live.size();
+    }
+
+    // Make the index hold exactly these items; unchanged items are not re-tokenized
+    public synchronized void replaceAll(Collection<T> newItems) {
+        Set<String> keep = new HashSet<>();
+        for (T item : newItems) {
+            String key = keyExtractor.key(item);
+            if (key == null) continue;
+            keep.add(key);
+            put(item);
+        }
+        for (String key : new ArrayList<>(docIds.keySet())) {
+            if (!keep.contains(key)) remove(key);
+        }
+    }
+
+    public synchronized void put(T item) {
+        String key = keyExtractor.key(item);
+        if (key == null) return;
+        String[] fields = fieldExtractor.fields(item);
+        String text = joined(fields);
+        Integer docId = docIds.get(key);
+        if (docId != null && text.equals(texts.get(docId))) {
+            // Same searchable text: only the object changes
+            items.set(docId, item);
+            live.put(docId, item);
+            return;
+        }
+        if (docId != null) {
+            unindex(docId);
+            items.set(docId, item);
+            texts.set(docId, text);
+        } else {
+            docId = items.size();
+            items.add(item);
+            texts.add(text);
+            docIds.put(key, docId);
+        }
+        live.put(docId, item);
+        index(docId, fields);
+    }
+
+    public synchronized void remove(String key) {
+        Integer docId = docIds.remove(key);
+        if (docId == null) return;
+        unindex(docId);
+        items.set(docId, null);
+        texts.set(docId, null);
+        live.remove(docId);
+    }
+
+    public synchronized void clear() {
+        docIds.clear();
+        items.clear();
+        texts.clear();
+        tokensByDoc.clear();
+        postings.clear();
+        tokensByTrigram.clear();
+        live.clear();
+    }
+
+    // Items matching every word of the query, best first; all items for a blank query
+    public synchronized List<T> search(String query) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) return new ArrayList<>(live.values());
+
+        Map<Integer, Integer> scores = null;
+        for (String term : new LinkedHashSet<>(terms)) {
+            Map<Integer, Integer> termScores = new HashMap<>();
+            // Exact and prefix matches: a range of the sorted vocabulary
+            for (Map.Entry<String, Map<Integer, Integer>> posting
+                    : postings.subMap(term, true, term + Character.MAX_VALUE, true).entrySet()) {
+                int quality = posting.getKey().equals(term) ? EXACT : PREFIX;
+                score(termScores, posting.getValue(), quality);
+            }
+            // Substring matches inside a word, through the trigram index
+            if (term.length() >= 3) {
+                for (String token : tokensContaining(term)) {
+                    if (!token.startsWith(term)) {
+                        score(termScores, postings.get(token), SUBSTRING);
+                    }
+                }
+            }
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                Map<Integer, Integer> both = new HashMap<>();
+                for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+                    Integer other = termScores.get(entry.getKey());
+                    if (other != null) both.put(entry.getKey(), entry.getValue() + other);
+                }
+                scores = both;
+            }
+            if (scores.isEmpty()) return new ArrayList<>();
+        }
+
+        List<Integer> ranked = new ArrayList<>(scores.keySet());
+        Map<Integer, Integer> finalScores = scores;
+        ranked.sort((a, b) -> {
+            int byScore = Integer.compare(finalScores.get(b), finalScores.get(a));
+            return byScore != 0 ? byScore : Integer.compare(a, b);
+        });
+        List<T> results = new ArrayList<>(ranked.size());
+        for (Integer docId : ranked) results.add(items.get(docId));
+        return results;
+    }
+
+    private static void score(Map<Integer, Integer> termScores, Map<Integer, Integer> docs, int quality) {
+        if (docs == null) return;
+        for (Map.Entry<Integer, Integer> doc : docs.entrySet()) {
+            int score = quality * doc.getValue();
+            Integer previous = termScores.get(doc.getKey());
+            if (previous == null || previous < score) termScores.put(doc.getKey(), score);
+        }
+    }
+
+    private Set<String> tokensContaining(String term) {
+        Set<String> candidates = null;
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            Set<String> tokens = tokensByTrigram.get(term.substring(i, i + 3));
+            if (tokens == null) return Collections.emptySet();
+            if (candidates == null) {
+                candidates = new HashSet<>(tokens);
+            } else {
+                candidates.retainAll(tokens);
+            }
+            if (candidates.isEmpty()) return candidates;
+        }
+        // Trigrams can match out of order; confirm the substring
+        Set<String> matches = new HashSet<>();
+        for (String token : candidates) {
+            if (token.contains(term)) matches.add(token);
+        }
+        return matches;
+    }
+
+    private void index(int docId, String[] fields) {
+        Set<String> docTokens = new HashSet<>();
+        for (int f = 0; f < fields.length; f++) {
+            if (fields[f] == null) continue;
+            int weight = fields.length - f;
+            for (String token : tokenize(fields[f])) {
+                docTokens.add(token);
+                Map<Integer, Integer> docs = postings.get(token);
+                if (docs == null) {
+                    docs = new HashMap<>();
+                    postings.put(token, docs);
+                    addTrigrams(token);
+                }
+                Integer previous = docs.get(docId);
+                if (previous == null || previous < weight) docs.put(docId, weight);
+            }
+        }
+        tokensByDoc.put(docId, docTokens);
+    }
+
+    private void unindex(int docId) {
+        Set<String> docTokens = tokensByDoc.remove(docId);
+        if (docTokens == null) return;
+        for (String token : docTokens) {
+            Map<Integer, Integer> docs = postings.get(token);
+            if (docs == null) continue;
+            docs.remove(docId);
+            if (docs.isEmpty()) {
+                postings.remove(token);
+                removeTrigrams(token);
+            }
+        }
+    }
+
+    private void addTrigrams(String token) {
+        for (int i = 0; i + 3 <= token.length(); i++) {
+            String gram = token.substring(i, i + 3);
+            Set<String> tokens = tokensByTrigram.get(gram);
+            if (tokens == null) {
+                tokens = new HashSet<>();
+                tokensByTrigram.put(gram, tokens);
+            }
+            tokens.add(token);
+        }
+    }
+
+    private void removeTrigrams(String token) {
+        for (int i = 0; i + 3 <= token.length(); i++) {
+            String gram = token.substring(i, i + 3);
+            Set<String> tokens = tokensByTrigram.get(gram);
+            if (tokens == null) continue;
+            tokens.remove(token);
+            if (tokens.isEmpty()) tokensByTrigram.remove(gram);
+        }
+    }
+
+    private static String joined(String[] fields) {
+        StringBuilder sb = new StringBuilder();
+        for (String field : fields) {
+            sb.append(field != null ? field : "").append('\u0000');
+        }
+        return sb.toString();
+    }
+
+    // Lowercase runs of letters and digits
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.looplab.data;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Distributed counter for fields that receive bursts of concurrent writes.
+ *
+ * Increments are spread over {@code numShards} documents in the {@code shards}
+ * subcollection of the parent document, so a cohort enrolling at once does not hit
+ * the one-write-per-second limit of a single document. The value of a field is the
+ * sum over all shards; summed totals are cached per parent for {@link #CACHE_TTL_MS}.
+ */
+public class ShardedCounter {
+    private static final String TAG = "ShardedCounter";
+
+    public static final int DEFAULT_SHARDS = 10;
+    static final long CACHE_TTL_MS = 30_000;
+
+    private static final Map<String, CachedTotals> cache = new ConcurrentHashMap<>();
+
+    private final DocumentReference parent;
+    private final int numShards;
+
+    public interface CountCallback {
+        void onSuccess(long count);
+        void onError(String error);
+    }
+
+    public interface TotalsCallback {
+        void onSuccess(Map<String, Long> totals);
+        void onError(String error);
+    }
+
+    public interface TotalsListCallback {
+        // Totals in counter order; a counter that could not be read reports no fields
+        void onTotals(List<Map<String, Long>> totals);
+    }
+
+    private static class CachedTotals {
+        final Map<String, Long> totals;
+        final long fetchedAt;
+
+        CachedTotals(Map<String, Long> totals, long fetchedAt) {
+            this.totals = totals;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    public ShardedCounter(DocumentReference parent) {
+        this(parent, DEFAULT_SHARDS);
+    }
+
+    public ShardedCounter(DocumentReference parent, int numShards) {
+        this.parent = parent;
+        this.numShards = numShards;
+    }
+
+    public int getNumShards() {
+        return numShards;
+    }
+
+    public CollectionReference shards() {
+        return parent.collection("shards");
+    }
+
+    public DocumentReference shard(int index) {
+        return shards().document(String.valueOf(index));
+    }
+
+    private DocumentReference randomShard() {
+        return shard(pickShard(numShards, ThreadLocalRandom.current()));
+    }
+
+    // Uniform pick, so concurrent writers spread evenly over the shards
+    static int pickShard(int numShards, Random random) {
+        return random.nextInt(numShards);
+    }
+
+    // Increment a field on a random shard
+    public Task<Void> increment(String field, long delta) {
+        applyLocally(field, delta);
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(field, FieldValue.increment(delta));
+        return randomShard().set(updates, SetOptions.merge())
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error incrementing " + field + " on " + parent.getPath(), e);
+                    invalidate();
+                });
+    }
+
+    // Add the increment to a caller-owned batch so it commits with the related write
+    public void increment(WriteBatch batch, String field, long delta) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(field, FieldValue.increment(delta));
+        batch.set(randomShard(), updates, SetOptions.merge());
+        invalidate();
+    }
+
+    // Add the increment to a caller-owned transaction (a blind write; shards are not read)
+    public void increment(Transaction transaction, String field, long delta) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(field, FieldValue.increment(delta));
+        transaction.set(randomShard(), updates, SetOptions.merge());
+    }
+
+    // Read one field, served from cache while fresh
+    public void get(String field, CountCallback callback) {
+        getTotals(new TotalsCallback() {
+            @Override
+            public void onSuccess(Map<String, Long> totals) {
+                callback.onSuccess(valueOf(totals, field));
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
+    }
+
+    // Read all fields, served from cache while fresh
+    public void getTotals(TotalsCallback callback) {
+        CachedTotals cached = cache.get(parent.getPath());
+        if (cached != null && System.currentTimeMillis() - cached.fetchedAt < CACHE_TTL_MS) {
+            callback.onSuccess(cached.totals);
+            return;
+        }
+        refresh(callback);
+    }
+
+    // Read several counters at once (e.g. one per list item): cached totals are served as they
+    // are and the others are read in parallel, so a cold list costs one round trip
+    public static void getTotals(List<ShardedCounter> counters, TotalsListCallback callback) {
+        List<Map<String, Long>> results = new ArrayList<>(
+                Collections.nCopies(counters.size(), Collections.<String, Long>emptyMap()));
+        if (counters.isEmpty()) {
+            callback.onTotals(results);
+            return;
+        }
+        int[] remaining = {counters.size()};
+        for (int i = 0; i < counters.size(); i++) {
+            int index = i;
+            counters.get(i).getTotals(new TotalsCallback() {
+                @Override
+                public void onSuccess(Map<String, Long> totals) {
+                    results.set(index, totals);
+                    if (--remaining[0] == 0) callback.onTotals(results);
+                }
+
+                @Override
+                public void onError(String error) {
+                    if (--remaining[0] == 0) callback.onTotals(results);
+                }
+            });
+        }
+    }
+
+    // Read all shards, bypassing the cache
+    public void refresh(TotalsCallback callback) {
+        shards().get()
+                .addOnSuccessListener(querySnapshot -> {
+                    Map<String, Long> totals = sum(querySnapshot);
+                    cache.put(parent.getPath(), new CachedTotals(totals, System.currentTimeMillis()));
+                    callback.onSuccess(totals);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error reading shards of " + parent.getPath(), e);
+                    callback.onError("Failed to read counter: " + e.getMessage());
+                });
+    }
+
+    // Last known value without touching the network, or -1 if nothing is cached
+    public long getCached(String field) {
+        CachedTotals cached = cache.get(parent.getPath());
+        return cached != null ? valueOf(cached.totals, field) : -1;
+    }
+
+    public void invalidate() {
+        cache.remove(parent.getPath());
+    }
+
+    private void applyLocally(String field, long delta) {
+        CachedTotals cached = cache.get(parent.getPath());
+        if (cached == null) return;
+        Map<String, Long> totals = new HashMap<>(cached.totals);
+        totals.put(field, valueOf(totals, field) + delta);
+        cache.put(parent.getPath(), new CachedTotals(Collections.unmodifiableMap(totals), cached.fetchedAt));
+    }
+
+    static Map<String, Long> sum(QuerySnapshot querySnapshot) {
+        List<Map<String, Object>> shards = new ArrayList<>();
+        for (var doc : querySnapshot.getDocuments()) {
+            shards.add(doc.getData());
+        }
+        return sum(shards);
+    }
+
+    // Per-field totals over the shard documents' data; non-numeric fields are ignored
+    static Map<String, Long> sum(List<Map<String, Object>> shards) {
+        Map<String, Long> totals = new HashMap<>();
+        for (Map<String, Object> data : shards) {
+            if (data == null) continue;
+            for (Map.Entry<String, Object> entry : data.entrySet()) {
+                if (entry.getValue() instanceof Number) {
+                    long value = ((Number) entry.getValue()).longValue();
+                    totals.put(entry.getKey(), valueOf(totals, entry.getKey()) + value);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(totals);
+    }
+
+    public static long valueOf(Map<String, Long> totals, String field) {
+        Long value = totals.get(field);
+        return value != null ? value : 0;
+    }
+}
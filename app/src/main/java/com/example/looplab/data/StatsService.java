@@ -0,0 +1,174 @@
+package com.example.looplab.data;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pre-aggregated platform counters kept under {@code stats/global}.
+ *
+ * Writers bump a counter with {@link #increment} whenever they create or delete a
+ * tracked document. Counters are stored in a {@link ShardedCounter} so busy counters
+ * (messages, enrollments) do not serialize on a single document. Readers sum the
+ * shards, which costs a fixed number of reads no matter how much data exists.
+ */
+public final class StatsService {
+    private static final String TAG = "StatsService";
+
+    public static final String USERS = "users";
+    public static final String COURSES = "courses";
+    public static final String ENROLLMENTS = "enrollments";
+    public static final String EVENTS = "events";
+    public static final String EVENTS_ATTENDED = "eventsAttended";
+    public static final String MESSAGES = "messages";
+
+    static final int NUM_SHARDS = 10;
+    // Set on stats/global by rebuildCounters; without it the counters miss older data
+    static final String REBUILT_AT = "rebuiltAt";
+
+    private static volatile boolean seeded;
+
+    private StatsService() {}
+
+    public interface StatsCallback {
+        void onSuccess(Map<String, Long> counters);
+        void onError(String error);
+    }
+
+    public static DocumentReference global() {
+        return FirebaseRefs.stats().document("global");
+    }
+
+    private static ShardedCounter counters() {
+        return new ShardedCounter(global(), NUM_SHARDS);
+    }
+
+    // Fire-and-forget counter update, for writers that are not already batching
+    public static void increment(String counter, long delta) {
+        counters().increment(counter, delta);
+        String summaryField = DashboardSummaryService.fieldForCounter(counter);
+        if (summaryField != null) {
+            DashboardSummaryService.increment(summaryField, delta);
+        }
+    }
+
+    // Adds the counter update to an existing batch so it commits atomically with the data write
+    public static void increment(WriteBatch batch, String counter, long delta) {
+        counters().increment(batch, counter, delta);
+        String summaryField = DashboardSummaryService.fieldForCounter(counter);
+        if (summaryField != null) {
+            DashboardSummaryService.increment(batch, summaryField, delta);
+        }
+    }
+
+    // Sum all shards into a single counter map. The first read seeds the counters with
+    // rebuildCounters if they have never been rebuilt, so totals include pre-counter data.
+    public static void getCounters(StatsCallback callback) {
+        if (seeded) {
+            readCounters(callback);
+            return;
+        }
+        global().get()
+                .addOnSuccessListener(snapshot -> {
+                    if (snapshot.contains(REBUILT_AT)) {
+                        seeded = true;
+                        readCounters(callback);
+                    } else {
+                        Log.d(TAG, "Counters were never seeded, rebuilding");
+                        rebuildCounters(callback);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Error checking counter seed", e);
+                    readCounters(callback);
+                });
+    }
+
+    private static void readCounters(StatsCallback callback) {
+        counters().refresh(new ShardedCounter.TotalsCallback() {
+            @Override
+            public void onSuccess(Map<String, Long> totals) {
+                callback.onSuccess(totals);
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
+    }
+
+    public static long get(Map<String, Long> counters, String counter) {
+        return ShardedCounter.valueOf(counters, counter);
+    }
+
+    // One-time seeding for data created before counters existed (admin only; run by the first
+    // getCounters).
+    // Uses server-side count() aggregations and resets the rebuilt counters across all shards.
+    public static void rebuildCounters(StatsCallback callback) {
+        Map<String, Long> totals = new HashMap<>();
+        FirebaseRefs.users().count().get(AggregateSource.SERVER)
+                .continueWithTask(task -> {
+                    totals.put(USERS, task.getResult().getCount());
+                    return FirebaseRefs.courses().count().get(AggregateSource.SERVER);
+                })
+                .continueWithTask(task -> {
+                    totals.put(COURSES, task.getResult().getCount());
+                    return FirebaseRefs.enrollments().count().get(AggregateSource.SERVER);
+                })
+                .continueWithTask(task -> {
+                    totals.put(ENROLLMENTS, task.getResult().getCount());
+                    return FirebaseRefs.events().count().get(AggregateSource.SERVER);
+                })
+                .continueWithTask(task -> {
+                    totals.put(EVENTS, task.getResult().getCount());
+                    return FirebaseRefs.messages().count().get(AggregateSource.SERVER);
+                })
+                .continueWithTask(task -> {
+                    totals.put(MESSAGES, task.getResult().getCount());
+                    // Registrations: attendee documents, plus the pre-sharding base count
+                    // that covers the legacy attendees arrays
+                    return FirebaseRefs.db().collectionGroup("attendees").count().get(AggregateSource.SERVER);
+                })
+                .continueWithTask(task -> {
+                    totals.put(EVENTS_ATTENDED, task.getResult().getCount());
+                    return FirebaseRefs.events().aggregate(AggregateField.sum(EventService.CURRENT_ATTENDEES))
+                            .get(AggregateSource.SERVER);
+                })
+                .continueWithTask(task -> {
+                    Number legacy = task.getResult().get(AggregateField.sum(EventService.CURRENT_ATTENDEES));
+                    totals.put(EVENTS_ATTENDED, totals.get(EVENTS_ATTENDED) + (legacy != null ? legacy.longValue() : 0));
+                    ShardedCounter counters = counters();
+                    WriteBatch batch = FirebaseRefs.db().batch();
+                    for (int i = 0; i < NUM_SHARDS; i++) {
+                        Map<String, Object> shard = new HashMap<>();
+                        for (Map.Entry<String, Long> entry : totals.entrySet()) {
+                            shard.put(entry.getKey(), i == 0 ? entry.getValue() : 0L);
+                        }
+                        batch.set(counters.shard(i), shard, SetOptions.merge());
+                    }
+                    Map<String, Object> meta = new HashMap<>();
+                    meta.put("numShards", NUM_SHARDS);
+                    meta.put(REBUILT_AT, System.currentTimeMillis());
+                    batch.set(global(), meta, SetOptions.merge());
+                    return batch.commit();
+                })
+                .addOnSuccessListener(aVoid -> {
+                    counters().invalidate();
+                    seeded = true;
+                    Log.d(TAG, "Counters rebuilt: " + totals);
+                    callback.onSuccess(totals);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error rebuilding counters", e);
+                    callback.onError("Failed to rebuild counters: " + e.getMessage());
+                });
+    }
+}
@@ -11,6 +11,11 @@ import java.util.List;
 public class TeamService {
     private static final String TAG = "TeamService";
     
+    static final long INDEX_TTL_MS = 5 * 60 * 1000;
+    private static final SearchIndex<Models.TeamMember> teamIndex = new SearchIndex<>(
+            member -> member.id, member -> new String[]{member.name, member.role, member.bio});
+    private static volatile long teamIndexedAt;
+    
     public interface TeamCallback {
         void onSuccess();
         void onError(String error);
@@ -28,6 +33,7 @@ public class TeamService {
         FirebaseRefs.team().document(member.id).set(member.toMap())
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Team member added: " + member.id);
+                    teamIndexedAt = 0;
                     callback.onSuccess();
                 })
                 .addOnFailureListener(e -> {
@@ -41,6 +47,7 @@ public class TeamService {
         FirebaseRefs.team().document(member.id).update(member.toMap())
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Team member updated: " + member.id);
+                    teamIndexedAt = 0;
                     callback.onSuccess();
                 })
                 .addOnFailureListener(e -> {
@@ -54,6 +61,7 @@ public class TeamService {
         FirebaseRefs.team().document(memberId).delete()
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Team member deleted: " + memberId);
+                    teamIndexedAt = 0;
                     callback.onSuccess();
                 })
                 .addOnFailureListener(e -> {
@@ -185,28 +193,26 @@ public class TeamService {
                 });
     }
     
-    // Search team members
+    // Search team members in a local index of the active team, re-read at most every INDEX_TTL_MS
     public void searchTeamMembers(String query, TeamListCallback callback) {
+        if (System.currentTimeMillis() - teamIndexedAt < INDEX_TTL_MS) {
+            callback.onSuccess(teamIndex.search(query));
+            return;
+        }
         FirebaseRefs.team().whereEqualTo("isActive", true)
                 .get()
                 .addOnSuccessListener(querySnapshot -> {
                     List<Models.TeamMember> members = new ArrayList<>();
-                    String lowerQuery = query.toLowerCase();
-                    
                     for (var doc : querySnapshot.getDocuments()) {
                         Models.TeamMember member = doc.toObject(Models.TeamMember.class);
                         if (member != null) {
                             member.id = doc.getId();
-                            
-                            // Check if member matches search query
-                            if (member.name.toLowerCase().contains(lowerQuery) ||
-                                member.role.toLowerCase().contains(lowerQuery) ||
-                                (member.bio != null && member.bio.toLowerCase().contains(lowerQuery))) {
-                                members.add(member);
-                            }
+                            members.add(member);
                         }
                     }
-                    callback.onSuccess(members);
+                    teamIndex.replaceAll(members);
+                    teamIndexedAt = System.currentTimeMillis();
+                    callback.onSuccess(teamIndex.search(query));
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error searching team members", e);
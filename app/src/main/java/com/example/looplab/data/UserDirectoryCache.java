@@ -0,0 +1,149 @@
+package com.example.looplab.data;
+
+import android.util.Log;
+
+import com.example.looplab.data.model.Models;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process-wide LRU of other users' profiles, used to render names and avatars.
+ *
+ * Callers hand over every uid they need at once; cached entries are served directly
+ * and the rest are fetched with {@code whereIn(documentId)} queries of up to
+ * {@link #MAX_IN_CLAUSE} ids, run in parallel. A conversation list of 20 chats costs
+ * at most one read instead of twenty.
+ */
+public final class UserDirectoryCache {
+    private static final String TAG = "UserDirectoryCache";
+
+    // Firestore limit for 'in' filters
+    static final int MAX_IN_CLAUSE = 30;
+    static final int MAX_ENTRIES = 500;
+    static final long TTL_MS = 10 * 60 * 1000;
+
+    private static final Map<String, Entry> cache = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private UserDirectoryCache() {}
+
+    public interface ProfilesCallback {
+        // Profiles keyed by uid; uids without a user document are absent
+        void onSuccess(Map<String, Models.UserProfile> profiles);
+        void onError(String error);
+    }
+
+    private static class Entry {
+        final Models.UserProfile profile;
+        final long fetchedAt;
+
+        Entry(Models.UserProfile profile, long fetchedAt) {
+            this.profile = profile;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    // Fresh cached profile, or null
+    public static Models.UserProfile peek(String uid) {
+        if (uid == null) return null;
+        synchronized (cache) {
+            Entry entry = cache.get(uid);
+            if (entry == null) return null;
+            if (System.currentTimeMillis() - entry.fetchedAt >= TTL_MS) {
+                cache.remove(uid);
+                return null;
+            }
+            return entry.profile;
+        }
+    }
+
+    // Cached display name, or null if the user has not been resolved yet
+    public static String peekName(String uid) {
+        Models.UserProfile profile = peek(uid);
+        return profile != null ? profile.name : null;
+    }
+
+    public static void put(Models.UserProfile profile) {
+        if (profile == null || profile.uid == null) return;
+        synchronized (cache) {
+            cache.put(profile.uid, new Entry(profile, System.currentTimeMillis()));
+        }
+    }
+
+    public static void invalidate(String uid) {
+        synchronized (cache) {
+            cache.remove(uid);
+        }
+    }
+
+    public static void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    // Resolve all uids, reading only the ones that are missing or expired
+    public static void resolve(Collection<String> uids, ProfilesCallback callback) {
+        Map<String, Models.UserProfile> profiles = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        Set<String> unique = new LinkedHashSet<>();
+        if (uids != null) {
+            for (String uid : uids) {
+                if (uid != null && !uid.isEmpty()) unique.add(uid);
+            }
+        }
+        for (String uid : unique) {
+            Models.UserProfile cached = peek(uid);
+            if (cached != null) {
+                profiles.put(uid, cached);
+            } else {
+                missing.add(uid);
+            }
+        }
+        if (missing.isEmpty()) {
+            callback.onSuccess(profiles);
+            return;
+        }
+
+        List<Task<QuerySnapshot>> chunks = new ArrayList<>();
+        for (int i = 0; i < missing.size(); i += MAX_IN_CLAUSE) {
+            List<String> chunk = missing.subList(i, Math.min(i + MAX_IN_CLAUSE, missing.size()));
+            chunks.add(FirebaseRefs.users()
+                    .whereIn(FieldPath.documentId(), new ArrayList<>(chunk))
+                    .get());
+        }
+        Tasks.whenAllSuccess(chunks)
+                .addOnSuccessListener(results -> {
+                    for (Object result : results) {
+                        for (DocumentSnapshot doc : ((QuerySnapshot) result).getDocuments()) {
+                            Models.UserProfile user = doc.toObject(Models.UserProfile.class);
+                            if (user == null) continue;
+                            user.uid = doc.getId();
+                            put(user);
+                            profiles.put(user.uid, user);
+                        }
+                    }
+                    callback.onSuccess(profiles);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error resolving " + missing.size() + " users", e);
+                    callback.onError("Failed to load users: " + e.getMessage());
+                });
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.looplab.data;
+
+import android.util.Log;
+
+import com.example.looplab.data.model.Models;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Paged, server-filtered view of the users collection for the admin screens.
+ *
+ * Users are read newest first in pages of {@code pageSize} with {@code startAfter} cursors,
+ * filtered on the server by role or active state. Only the page the admin is looking at has a
+ * snapshot listener, so a profile change elsewhere in the user base costs nothing, and memory
+ * grows with the pages scrolled through rather than with the number of users.
+ * Requires composite indexes on users (role, createdAt) and (isActive, createdAt).
+ */
+public class UserPager {
+    private static final String TAG = "UserPager";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    public static final String FILTER_ALL = "all";
+    public static final String FILTER_ACTIVE = "active";
+    public static final String FILTER_SUSPENDED = "suspended";
+
+    private final int pageSize;
+    private final Listener listener;
+
+    private String filter = FILTER_ALL;
+    // Bumped by every reset so late page reads of a previous filter are ignored
+    private int generation;
+    private final List<List<Models.UserProfile>> pages = new ArrayList<>();
+    private final List<DocumentSnapshot> pageEnds = new ArrayList<>();
+    private boolean loading;
+    private boolean hasMore = true;
+    private ListenerRegistration pageListener;
+    private int watchedPage = -1;
+
+    public interface Listener {
+        // Every loaded user, pages in order and without duplicates
+        void onUsersChanged(List<Models.UserProfile> users, boolean hasMore);
+        void onError(String error);
+    }
+
+    public UserPager(Listener listener) {
+        this(DEFAULT_PAGE_SIZE, listener);
+    }
+
+    public UserPager(int pageSize, Listener listener) {
+        this.pageSize = pageSize;
+        this.listener = listener;
+    }
+
+    // "all", "active", "suspended" or a role name
+    public void start(String filter) {
+        stop();
+        generation++;
+        this.filter = filter != null ? filter : FILTER_ALL;
+        pages.clear();
+        pageEnds.clear();
+        hasMore = true;
+        loading = false;
+        loadNextPage();
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public void loadNextPage() {
+        if (loading || !hasMore) return;
+        loading = true;
+        int requested = generation;
+        int pageIndex = pages.size();
+        pageQuery(pageIndex).get()
+                .addOnSuccessListener(snapshot -> {
+                    if (requested != generation) return;
+                    loading = false;
+                    pages.add(toUsers(snapshot));
+                    pageEnds.add(snapshot.isEmpty() ? lastEnd() : snapshot.getDocuments().get(snapshot.size() - 1));
+                    hasMore = snapshot.size() >= pageSize;
+                    if (pageIndex == 0) watchPage(0);
+                    publish();
+                })
+                .addOnFailureListener(e -> {
+                    if (requested != generation) return;
+                    loading = false;
+                    Log.e(TAG, "Error loading users page " + pageIndex, e);
+                    listener.onError("Failed to load users: " + e.getMessage());
+                });
+    }
+
+    // Move the live listener to the page holding this user (call when scrolling settles)
+    public void watchPageOf(String uid) {
+        for (int i = 0; i < pages.size(); i++) {
+            for (Models.UserProfile user : pages.get(i)) {
+                if (user.uid != null && user.uid.equals(uid)) {
+                    watchPage(i);
+                    return;
+                }
+            }
+        }
+    }
+
+    public void stop() {
+        if (pageListener != null) {
+            pageListener.remove();
+            pageListener = null;
+        }
+        watchedPage = -1;
+    }
+
+    private void watchPage(int pageIndex) {
+        if (pageIndex == watchedPage && pageListener != null) return;
+        stop();
+        watchedPage = pageIndex;
+        int requested = generation;
+        pageListener = livePageQuery(pageIndex).addSnapshotListener((snapshot, e) -> {
+            if (requested != generation || pageIndex >= pages.size()) return;
+            if (e != null) {
+                Log.w(TAG, "Live page " + pageIndex + " failed", e);
+                return;
+            }
+            if (snapshot == null || snapshot.getMetadata().hasPendingWrites()) return;
+            // The page keeps its range, so it grows or shrinks with users created or deleted
+            // inside it instead of pushing its last user out past the next page's cursor
+            pages.set(pageIndex, toUsers(snapshot));
+            publish();
+        });
+    }
+
+    private Query baseQuery() {
+        Query query = FirebaseRefs.users();
+        switch (filter) {
+            case FILTER_ALL:
+                break;
+            case FILTER_ACTIVE:
+                query = query.whereEqualTo("isActive", true);
+                break;
+            case FILTER_SUSPENDED:
+                query = query.whereEqualTo("isActive", false);
+                break;
+            default:
+                query = query.whereEqualTo("role", filter);
+                break;
+        }
+        return query.orderBy("createdAt", Query.Direction.DESCENDING);
+    }
+
+    private Query pageQuery(int pageIndex) {
+        Query query = baseQuery();
+        if (pageIndex > 0) {
+            query = query.startAfter(pageEnds.get(pageIndex - 1));
+        }
+        return query.limit(pageSize);
+    }
+
+    // The loaded range of a page, between the previous page's end and its own last user.
+    // An empty page has no last user and keeps its limit.
+    private Query livePageQuery(int pageIndex) {
+        if (pages.get(pageIndex).isEmpty()) return pageQuery(pageIndex);
+        Query query = baseQuery();
+        if (pageIndex > 0) {
+            query = query.startAfter(pageEnds.get(pageIndex - 1));
+        }
+        return query.endAt(pageEnds.get(pageIndex));
+    }
+
+    private DocumentSnapshot lastEnd() {
+        return pageEnds.isEmpty() ? null : pageEnds.get(pageEnds.size() - 1);
+    }
+
+    private static List<Models.UserProfile> toUsers(QuerySnapshot snapshot) {
+        List<Models.UserProfile> users = new ArrayList<>();
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            Models.UserProfile user = doc.toObject(Models.UserProfile.class);
+            if (user != null) {
+                user.uid = doc.getId();
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    private void publish() {
+        Map<String, Models.UserProfile> merged = new LinkedHashMap<>();
+        for (List<Models.UserProfile> page : pages) {
+            for (Models.UserProfile user : page) {
+                if (!merged.containsKey(user.uid)) merged.put(user.uid, user);
+            }
+        }
+        listener.onUsersChanged(new ArrayList<>(merged.values()), hasMore);
+    }
+}
@@ -19,6 +19,7 @@ public final class Models {
         public long lastActive;
         public boolean isFirstTime;
         public boolean isActive;
+        public long updatedAt;
 
         public Map<String, Object> toMap() {
             Map<String, Object> m = new HashMap<>();
@@ -35,6 +36,7 @@ public final class Models {
             m.put("lastActive", lastActive);
             m.put("isFirstTime", isFirstTime);
             m.put("isActive", isActive);
+            m.put("updatedAt", updatedAt);
             return m;
         }
     }
@@ -47,6 +49,7 @@ public final class Models {
         public String instructorName;
         public String thumbnailUrl;
         public int lectureCount;
+        public int publishedLectureCount; // maintained by CourseService.addLecture/updateLecture
         public int enrolledCount;
         public String category;
         public String difficulty;
@@ -54,6 +57,7 @@ public final class Models {
         public boolean isPublished;
         public List<String> tags;
         public double rating;
+        public long updatedAt;
 
         public Map<String, Object> toMap() {
             Map<String, Object> m = new HashMap<>();
@@ -64,6 +68,7 @@ public final class Models {
             m.put("instructorName", instructorName);
             m.put("thumbnailUrl", thumbnailUrl);
             m.put("lectureCount", lectureCount);
+            m.put("publishedLectureCount", publishedLectureCount);
             m.put("enrolledCount", enrolledCount);
             m.put("category", category);
             m.put("difficulty", difficulty);
@@ -71,6 +76,7 @@ public final class Models {
             m.put("isPublished", isPublished);
             m.put("tags", tags);
             m.put("rating", rating);
+            m.put("updatedAt", updatedAt);
             return m;
         }
     }
@@ -87,6 +93,7 @@ public final class Models {
         public long createdAt;
         public boolean isPublished;
         public boolean completed; // Added completed property
+        public long updatedAt;
 
         public Map<String, Object> toMap() {
             Map<String, Object> m = new HashMap<>();
@@ -101,6 +108,7 @@ public final class Models {
             m.put("createdAt", createdAt);
             m.put("isPublished", isPublished);
             m.put("completed", completed); // Added completed to map
+            m.put("updatedAt", updatedAt);
             return m;
         }
     }
@@ -112,7 +120,9 @@ public final class Models {
         public long enrolledAt;
         public boolean isActive;
         public int progress; // percentage
+        public int completedCount; // lectures completed, counted on first completion
         public long lastAccessed;
+        public long updatedAt;
 
         public Map<String, Object> toMap() {
             Map<String, Object> m = new HashMap<>();
@@ -122,7 +132,9 @@ public final class Models {
             m.put("enrolledAt", enrolledAt);
             m.put("isActive", isActive);
             m.put("progress", progress);
+            m.put("completedCount", completedCount);
             m.put("lastAccessed", lastAccessed);
+            m.put("updatedAt", updatedAt);
             return m;
         }
     }
@@ -184,6 +196,7 @@ public final class Models {
         public int coursesCompleted;
         public int eventsAttended;
         public int lecturesWatched;
+        public List<String> badges; // mirror of the user's badges, for badge evaluation
 
         public Map<String, Object> toMap() {
             Map<String, Object> m = new HashMap<>();
@@ -195,6 +208,7 @@ public final class Models {
             m.put("coursesCompleted", coursesCompleted);
             m.put("eventsAttended", eventsAttended);
             m.put("lecturesWatched", lecturesWatched);
+            m.put("badges", badges);
             return m;
         }
     }
@@ -241,6 +255,7 @@ public final class Models {
         public String meetingUrl;
         public boolean registered;
         public long createdAt;
+        public long updatedAt;
 
         public Map<String, Object> toMap() {
             Map<String, Object> m = new HashMap<>();
@@ -261,6 +276,7 @@ public final class Models {
             m.put("meetingUrl", meetingUrl);
             m.put("registered", registered);
             m.put("createdAt", createdAt);
+            m.put("updatedAt", updatedAt);
             return m;
         }
     }
@@ -274,6 +290,8 @@ public final class Models {
         public long lastMessageTime;
         public String lastMessageSender;
         public long createdAt;
+        public Map<String, Long> readCursors; // userId -> timestamp of the last message read
+        public boolean deleting; // set while ChatService.deleteChat is removing it
 
         public Map<String, Object> toMap() {
             Map<String, Object> m = new HashMap<>();
@@ -285,6 +303,7 @@ public final class Models {
             m.put("lastMessageTime", lastMessageTime);
             m.put("lastMessageSender", lastMessageSender);
             m.put("createdAt", createdAt);
+            m.put("readCursors", readCursors);
             return m;
         }
     }
@@ -408,6 +427,7 @@ public final class Models {
         public long createdAt;
         public String photoUrl;
         public boolean isActive;
+        public Map<String, Long> readCursors; // userId -> timestamp of the last message read
 
         public Map<String, Object> toMap() {
             Map<String, Object> m = new HashMap<>();
@@ -421,9 +441,30 @@ public final class Models {
             m.put("createdAt", createdAt);
             m.put("photoUrl", photoUrl);
             m.put("isActive", isActive);
+            m.put("readCursors", readCursors);
             return m;
         }
     }
-}
 
+    public static class DashboardSummary {
+        public long totalUsers;
+        public long totalCourses;
+        public long totalEvents;
+        public long totalAnnouncements;
+        public long activeSessions;
+        public List<String> recentActivity;
+        public long updatedAt;
 
+        public Map<String, Object> toMap() {
+            Map<String, Object> m = new HashMap<>();
+            m.put("totalUsers", totalUsers);
+            m.put("totalCourses", totalCourses);
+            m.put("totalEvents", totalEvents);
+            m.put("totalAnnouncements", totalAnnouncements);
+            m.put("activeSessions", activeSessions);
+            m.put("recentActivity", recentActivity);
+            m.put("updatedAt", updatedAt);
+            return m;
+        }
+    }
+}
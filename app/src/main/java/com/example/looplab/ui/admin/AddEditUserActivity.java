@@ -8,7 +8,9 @@ import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.looplab.R;
+import com.example.looplab.data.DashboardSummaryService;
 import com.example.looplab.data.FirebaseRefs;
+import com.example.looplab.data.StatsService;
 import com.example.looplab.data.model.Models;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.button.MaterialButton;
@@ -199,6 +201,8 @@ public class AddEditUserActivity extends AppCompatActivity {
                     // Save to Firestore
                     FirebaseRefs.users().document(uid).set(newUser.toMap())
                             .addOnSuccessListener(aVoid -> {
+                                StatsService.increment(StatsService.USERS, 1);
+                                DashboardSummaryService.recordActivity("New user registered: " + name);
                                 progressIndicator.setVisibility(View.GONE);
                                 Toast.makeText(this, "User created successfully", Toast.LENGTH_SHORT).show();
                                 finish();
@@ -13,7 +13,9 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.DialogFragment;
 
 import com.example.looplab.R;
+import com.example.looplab.data.DashboardSummaryService;
 import com.example.looplab.data.FirebaseRefs;
+import com.example.looplab.data.StatsService;
 import com.example.looplab.data.model.Models;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
@@ -139,6 +141,8 @@ public class AddUserDialog extends DialogFragment {
 
                     FirebaseRefs.users().document(uid).set(userProfile)
                             .addOnSuccessListener(aVoid -> {
+                                StatsService.increment(StatsService.USERS, 1);
+                                DashboardSummaryService.recordActivity("New user registered: " + name);
                                 Toast.makeText(requireContext(), "User added successfully!", Toast.LENGTH_SHORT).show();
                                 dismiss();
                             })
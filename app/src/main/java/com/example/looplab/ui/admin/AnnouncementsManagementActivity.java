@@ -12,6 +12,7 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.looplab.R;
+import com.example.looplab.data.DashboardSummaryService;
 import com.example.looplab.data.FirebaseRefs;
 import com.example.looplab.data.model.Models;
 import com.google.android.material.appbar.MaterialToolbar;
@@ -103,6 +104,7 @@ public class AnnouncementsManagementActivity extends AppCompatActivity {
                     a.createdByName = "Admin";
                     FirebaseRefs.announcements().document(a.id).set(a.toMap())
                             .addOnSuccessListener(v -> {
+                                DashboardSummaryService.increment(DashboardSummaryService.TOTAL_ANNOUNCEMENTS, 1);
                                 Toast.makeText(this, "Announcement created", Toast.LENGTH_SHORT).show();
                                 // Optional: push via FCM topic
                                 com.google.firebase.messaging.FirebaseMessaging.getInstance().subscribeToTopic("announcements");
@@ -124,7 +126,8 @@ public class AnnouncementsManagementActivity extends AppCompatActivity {
         static class VH extends RecyclerView.ViewHolder {
             private final TextView tvTitle, tvSub, tvMeta; private final View btnDelete;
             VH(View itemView){ super(itemView); tvTitle=itemView.findViewById(R.id.tvTitle); tvSub=itemView.findViewById(R.id.tvSubtitle); tvMeta=itemView.findViewById(R.id.tvMeta); btnDelete=itemView.findViewById(R.id.btnDelete); }
-            void bind(Row r){ tvTitle.setText(r.title); tvSub.setText(r.subtitle); tvMeta.setText(r.meta); btnDelete.setOnClickListener(v-> FirebaseRefs.announcements().document(r.id).delete()); }
+            void bind(Row r){ tvTitle.setText(r.title); tvSub.setText(r.subtitle); tvMeta.setText(r.meta); btnDelete.setOnClickListener(v-> FirebaseRefs.announcements().document(r.id).delete()
+                    .addOnSuccessListener(x -> DashboardSummaryService.increment(DashboardSummaryService.TOTAL_ANNOUNCEMENTS, -1))); }
         }
     }
 }
@@ -10,13 +10,20 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.looplab.R;
+import com.example.looplab.data.BulkWriteExecutor;
 import com.example.looplab.data.FirebaseRefs;
+import com.example.looplab.data.SearchIndex;
+import com.example.looplab.data.StatsService;
+import com.example.looplab.data.UserPager;
 import com.example.looplab.data.model.Models;
+import com.example.looplab.ui.lists.QueryPipeline;
 import com.example.looplab.ui.lists.UsersAdapter;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.button.MaterialButton;
@@ -27,11 +34,12 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.progressindicator.CircularProgressIndicator;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.Query;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 public abstract class CompleteUserManagementActivity extends AppCompatActivity implements UsersAdapter.OnUserActionListener {
 
@@ -48,8 +56,19 @@ public abstract class CompleteUserManagementActivity extends AppCompatActivity i
     private UsersAdapter adapter;
     private List<Models.UserProfile> allUsers = new ArrayList<>();
     private List<Models.UserProfile> filteredUsers = new ArrayList<>();
-    private String currentFilter = "all";
+    private String currentFilter = UserPager.FILTER_ALL;
     private String searchQuery = "";
+    private final SearchIndex<Models.UserProfile> userIndex = new SearchIndex<>(
+            user -> user.uid, user -> new String[]{user.name, user.email});
+    private final QueryPipeline<List<Models.UserProfile>> filterPipeline =
+            new QueryPipeline<>("users", this::showFilteredUsers);
+    private UserPager userPager;
+    private boolean hasMoreUsers;
+
+    private final BulkWriteExecutor bulkWriter = new BulkWriteExecutor();
+    private static final int MAX_FAILURES_SHOWN = 10;
+    // Start fetching the next page when this close to the end of the list
+    private static final int PREFETCH_DISTANCE = 10;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -102,7 +121,7 @@ public abstract class CompleteUserManagementActivity extends AppCompatActivity i
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 searchQuery = s.toString().toLowerCase();
-                filterUsers();
+                filterUsers(true);
             }
 
             @Override
@@ -117,53 +136,94 @@ public abstract class CompleteUserManagementActivity extends AppCompatActivity i
             Chip chip = group.findViewById(checkedIds.get(0));
             if (chip != null) {
                 currentFilter = chip.getTag().toString();
-                filterUsers();
+                // Role and status filters run on the server; start over from the first page
+                adapter.clearSelection();
+                loadUsers();
             }
         });
     }
 
     private void setupRecyclerView() {
         adapter = new UsersAdapter(this);
+        adapter.setOnSelectionChangedListener(count ->
+                btnBulkActions.setText(count > 0 ? "Bulk Actions (" + count + ")" : "Bulk Actions"));
         rvUsers.setLayoutManager(new LinearLayoutManager(this));
         rvUsers.setAdapter(adapter);
+        rvUsers.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0 || !hasMoreUsers) return;
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager != null
+                        && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    userPager.loadNextPage();
+                }
+            }
+
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if (newState != RecyclerView.SCROLL_STATE_IDLE) return;
+                // Keep the live listener on the page the admin is looking at
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                int position = layoutManager != null ? layoutManager.findFirstVisibleItemPosition() : RecyclerView.NO_POSITION;
+                if (position != RecyclerView.NO_POSITION && position < filteredUsers.size()) {
+                    userPager.watchPageOf(filteredUsers.get(position).uid);
+                }
+            }
+        });
     }
 
+    // Page through users newest first; only the visible page is kept live
     private void loadUsers() {
         progressIndicator.setVisibility(View.VISIBLE);
-        
-        FirebaseRefs.users()
-                .orderBy("createdAt", Query.Direction.DESCENDING)
-                .addSnapshotListener((snapshot, e) -> {
+        if (userPager == null) {
+            userPager = new UserPager(new UserPager.Listener() {
+                @Override
+                public void onUsersChanged(List<Models.UserProfile> users, boolean hasMore) {
                     progressIndicator.setVisibility(View.GONE);
-                    
-                    if (e != null || snapshot == null) {
-                        showEmptyState();
-                        return;
-                    }
-                    
-                    allUsers.clear();
-                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                        Models.UserProfile user = doc.toObject(Models.UserProfile.class);
-                        if (user != null) {
-                            user.uid = doc.getId();
-                            allUsers.add(user);
-                        }
-                    }
-                    
+                    hasMoreUsers = hasMore;
+                    allUsers = users;
+                    userIndex.replaceAll(allUsers);
                     filterUsers();
-                });
+                }
+
+                @Override
+                public void onError(String error) {
+                    progressIndicator.setVisibility(View.GONE);
+                    if (allUsers.isEmpty()) showEmptyState();
+                    Toast.makeText(CompleteUserManagementActivity.this, error, Toast.LENGTH_SHORT).show();
+                }
+            });
+        }
+        userPager.start(currentFilter);
     }
 
     private void filterUsers() {
-        filteredUsers.clear();
+        filterUsers(false);
+    }
+
+    // Filter and rank off the main thread; keystrokes are debounced
+    private void filterUsers(boolean debounce) {
+        List<Models.UserProfile> users = new ArrayList<>(allUsers);
+        String search = searchQuery;
+        String filter = currentFilter;
+        QueryPipeline.Query<List<Models.UserProfile>> query = () -> filterUsers(users, search, filter);
+        if (debounce) {
+            filterPipeline.submit(query);
+        } else {
+            filterPipeline.submitNow(query);
+        }
+    }
+
+    private List<Models.UserProfile> filterUsers(List<Models.UserProfile> users, String search, String filter) {
+        List<Models.UserProfile> result = new ArrayList<>();
         
-        for (Models.UserProfile user : allUsers) {
-            boolean matchesSearch = searchQuery.isEmpty() || 
-                user.name.toLowerCase().contains(searchQuery) ||
-                user.email.toLowerCase().contains(searchQuery);
-            
+        // Search results come ranked from the index over the loaded pages; the role/status
+        // filter is applied on top for users whose role changed since their page was read
+        List<Models.UserProfile> candidates = search.isEmpty() ? users : userIndex.search(search);
+        for (Models.UserProfile user : candidates) {
             boolean matchesFilter = false;
-            switch (currentFilter) {
+            switch (filter) {
                 case "all":
                     matchesFilter = true;
                     break;
@@ -184,11 +244,17 @@ public abstract class CompleteUserManagementActivity extends AppCompatActivity i
                     break;
             }
             
-            if (matchesSearch && matchesFilter) {
-                filteredUsers.add(user);
+            if (matchesFilter) {
+                result.add(user);
             }
         }
         
+        return result;
+    }
+
+    private void showFilteredUsers(List<Models.UserProfile> users) {
+        filteredUsers.clear();
+        filteredUsers.addAll(users);
         updateDisplay();
     }
 
@@ -200,7 +266,7 @@ public abstract class CompleteUserManagementActivity extends AppCompatActivity i
             adapter.submitList(new ArrayList<>(filteredUsers));
         }
         
-        tvUserCount.setText(filteredUsers.size() + " users");
+        tvUserCount.setText(filteredUsers.size() + (hasMoreUsers ? "+" : "") + " users");
     }
 
     private void showEmptyState() {
@@ -264,53 +330,42 @@ public abstract class CompleteUserManagementActivity extends AppCompatActivity i
     }
 
     private void performBulkAction(String action) {
-        List<Models.UserProfile> selectedUsers = new ArrayList<>(); // placeholder until selection support added
-        if (selectedUsers.isEmpty()) {
+        List<String> selectedIds = adapter.getSelectedUserIds();
+        if (selectedIds.isEmpty()) {
             Toast.makeText(this, "No users selected", Toast.LENGTH_SHORT).show();
             return;
         }
-        
-        for (Models.UserProfile user : selectedUsers) {
-            switch (action) {
-                case "activate":
-                    FirebaseRefs.users().document(user.uid).update("isActive", true);
-                    break;
-                case "suspend":
-                    FirebaseRefs.users().document(user.uid).update("isActive", false);
-                    break;
-            }
-        }
-        
-        Toast.makeText(this, "Bulk action completed for " + selectedUsers.size() + " users", 
-                Toast.LENGTH_SHORT).show();
-        // no selection model implemented
+
+        boolean active = "activate".equals(action);
+        runBulkWrite(selectedIds, (batch, uid) ->
+                        batch.update(FirebaseRefs.users().document(uid), "isActive", active),
+                null, (active ? "Activated " : "Suspended ") + "%d users");
     }
 
     private void confirmBulkDelete() {
-        List<Models.UserProfile> selectedUsers = new ArrayList<>();
-        if (selectedUsers.isEmpty()) {
+        List<String> selectedIds = adapter.getSelectedUserIds();
+        if (selectedIds.isEmpty()) {
             Toast.makeText(this, "No users selected", Toast.LENGTH_SHORT).show();
             return;
         }
         
         new MaterialAlertDialogBuilder(this)
                 .setTitle("Delete Users")
-                .setMessage("Are you sure you want to delete " + selectedUsers.size() + " users? This action cannot be undone.")
-                .setPositiveButton("Delete", (dialog, which) -> {
-                    for (Models.UserProfile user : selectedUsers) {
-                        FirebaseRefs.users().document(user.uid).delete();
-                    }
-                    Toast.makeText(this, "Deleted " + selectedUsers.size() + " users", 
-                            Toast.LENGTH_SHORT).show();
-                    // no selection model implemented
-                })
+                .setMessage("Are you sure you want to delete " + selectedIds.size() + " users? This action cannot be undone.")
+                .setPositiveButton("Delete", (dialog, which) ->
+                        runBulkWrite(selectedIds,
+                                (batch, uid) -> batch.delete(FirebaseRefs.users().document(uid)),
+                                // The user counter moves in the same commit as the deletes,
+                                // by the number of users that still existed
+                                (batch, count) -> StatsService.increment(batch, StatsService.USERS, -count),
+                                "Deleted %d users"))
                 .setNegativeButton("Cancel", null)
                 .show();
     }
 
     private void showBulkRoleChangeDialog() {
-        List<Models.UserProfile> selectedUsers = new ArrayList<>();
-        if (selectedUsers.isEmpty()) {
+        List<String> selectedIds = adapter.getSelectedUserIds();
+        if (selectedIds.isEmpty()) {
             Toast.makeText(this, "No users selected", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -318,19 +373,71 @@ public abstract class CompleteUserManagementActivity extends AppCompatActivity i
         String[] roles = {"student", "teacher", "admin"};
         
         new MaterialAlertDialogBuilder(this)
-                .setTitle("Change Role for " + selectedUsers.size() + " users")
+                .setTitle("Change Role for " + selectedIds.size() + " users")
                 .setItems(roles, (dialog, which) -> {
                     String newRole = roles[which];
-                    for (Models.UserProfile user : selectedUsers) {
-                        FirebaseRefs.users().document(user.uid).update("role", newRole);
-                    }
-                    Toast.makeText(this, "Changed role to " + newRole + " for " + selectedUsers.size() + " users", 
-                            Toast.LENGTH_SHORT).show();
-                    // no selection model implemented
+                    runBulkWrite(selectedIds, (batch, uid) ->
+                                    batch.update(FirebaseRefs.users().document(uid), "role", newRole),
+                            null, "Changed role to " + newRole + " for %d users");
                 })
                 .show();
     }
 
+    // Run a bulk write with a progress dialog, then report the users that failed
+    private void runBulkWrite(List<String> userIds, BulkWriteExecutor.Operation operation,
+                              BulkWriteExecutor.BatchFinisher finisher, String doneFormat) {
+        AlertDialog progressDialog = new MaterialAlertDialogBuilder(this)
+                .setTitle("Bulk Action")
+                .setMessage("Processing 0 of " + userIds.size() + " users…")
+                .setCancelable(false)
+                .show();
+
+        bulkWriter.execute(FirebaseRefs.users(), userIds, operation, finisher, new BulkWriteExecutor.BulkCallback() {
+            @Override
+            public void onProgress(int processed, int total) {
+                progressDialog.setMessage("Processing " + processed + " of " + total + " users…");
+            }
+
+            @Override
+            public void onComplete(BulkWriteExecutor.Result result) {
+                if (isFinishing() || isDestroyed()) return;
+                progressDialog.dismiss();
+                adapter.clearSelection();
+                if (result.isSuccessful()) {
+                    Toast.makeText(CompleteUserManagementActivity.this,
+                            String.format(Locale.getDefault(), doneFormat, result.succeeded),
+                            Toast.LENGTH_SHORT).show();
+                } else {
+                    showBulkFailures(result);
+                }
+            }
+        });
+    }
+
+    private void showBulkFailures(BulkWriteExecutor.Result result) {
+        Map<String, String> names = new HashMap<>();
+        for (Models.UserProfile user : allUsers) {
+            names.put(user.uid, user.name);
+        }
+        StringBuilder message = new StringBuilder()
+                .append(result.succeeded).append(" of ").append(result.total).append(" users updated.\n");
+        int shown = 0;
+        for (Map.Entry<String, String> failure : result.failures.entrySet()) {
+            if (shown++ == MAX_FAILURES_SHOWN) {
+                message.append("\n…and ").append(result.failures.size() - MAX_FAILURES_SHOWN).append(" more");
+                break;
+            }
+            String name = names.get(failure.getKey());
+            message.append("\n").append(name != null ? name : failure.getKey())
+                    .append(": ").append(failure.getValue());
+        }
+        new MaterialAlertDialogBuilder(this)
+                .setTitle(result.failures.size() + " users failed")
+                .setMessage(message.toString())
+                .setPositiveButton("OK", null)
+                .show();
+    }
+
     // UsersAdapter.OnUserActionListener implementation
     @Override
     public void onUserClick(Models.UserProfile user) {
@@ -377,6 +484,7 @@ public abstract class CompleteUserManagementActivity extends AppCompatActivity i
                 .setPositiveButton("Delete", (dialog, which) -> {
                     FirebaseRefs.users().document(user.uid).delete()
                             .addOnSuccessListener(aVoid -> {
+                                StatsService.increment(StatsService.USERS, -1);
                                 Toast.makeText(this, "User deleted successfully", Toast.LENGTH_SHORT).show();
                             })
                             .addOnFailureListener(e -> {
@@ -387,4 +495,11 @@ public abstract class CompleteUserManagementActivity extends AppCompatActivity i
                 .setNegativeButton("Cancel", null)
                 .show();
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        filterPipeline.cancel();
+        if (userPager != null) userPager.stop();
+    }
 }
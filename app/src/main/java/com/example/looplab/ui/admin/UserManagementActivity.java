@@ -11,7 +11,10 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.looplab.R;
 import com.example.looplab.data.FirebaseRefs;
+import com.example.looplab.data.SearchIndex;
+import com.example.looplab.data.StatsService;
 import com.example.looplab.data.model.Models;
+import com.example.looplab.ui.lists.QueryPipeline;
 import com.example.looplab.ui.lists.UsersAdapter;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.chip.Chip;
@@ -32,6 +35,12 @@ public class UserManagementActivity extends AppCompatActivity {
     private ChipGroup chipGroupFilters;
     private FloatingActionButton btnAddUser;
     private String currentFilter = "all";
+    private String searchQuery = "";
+    private List<Models.UserProfile> loadedUsers = new ArrayList<>();
+    private final SearchIndex<Models.UserProfile> userIndex = new SearchIndex<>(
+            user -> user.uid, user -> new String[]{user.name, user.email});
+    private final QueryPipeline<List<Models.UserProfile>> searchPipeline =
+            new QueryPipeline<>("userManagement", users -> adapter.submitList(users));
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -154,7 +163,7 @@ public class UserManagementActivity extends AppCompatActivity {
                         }
                     }
                     
-                    adapter.submitList(users);
+                    showUsers(users);
                 })
                 .addOnFailureListener(e -> {
                     progressIndicator.setVisibility(View.GONE);
@@ -208,14 +217,30 @@ public class UserManagementActivity extends AppCompatActivity {
         teacher2.isActive = true;
         sampleUsers.add(teacher2);
 
-        adapter.submitList(sampleUsers);
+        showUsers(sampleUsers);
+    }
+
+    private void showUsers(List<Models.UserProfile> users) {
+        loadedUsers = users;
+        userIndex.replaceAll(users);
+        applySearch(false);
     }
 
     private void filterUsers(String query) {
-        // This would typically filter the current list
-        // For now, we'll just show a toast
-        if (!query.isEmpty()) {
-            Toast.makeText(this, "Searching for: " + query, Toast.LENGTH_SHORT).show();
+        searchQuery = query;
+        applySearch(true);
+    }
+
+    // Search runs off the main thread; keystrokes are debounced
+    private void applySearch(boolean debounce) {
+        List<Models.UserProfile> users = loadedUsers;
+        String search = searchQuery;
+        QueryPipeline.Query<List<Models.UserProfile>> query =
+                () -> search.trim().isEmpty() ? new ArrayList<>(users) : userIndex.search(search);
+        if (debounce) {
+            searchPipeline.submit(query);
+        } else {
+            searchPipeline.submitNow(query);
         }
     }
 
@@ -236,6 +261,7 @@ public class UserManagementActivity extends AppCompatActivity {
                 .setPositiveButton("Delete", (dialog, which) -> {
                     FirebaseRefs.users().document(user.uid).delete()
                             .addOnSuccessListener(aVoid -> {
+                                StatsService.increment(StatsService.USERS, -1);
                                 Toast.makeText(this, "User deleted successfully", Toast.LENGTH_SHORT).show();
                                 loadUsers();
                             })
@@ -264,4 +290,10 @@ public class UserManagementActivity extends AppCompatActivity {
         AddUserDialog dialog = new AddUserDialog();
         dialog.show(getSupportFragmentManager(), "add_user");
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        searchPipeline.cancel();
+    }
 }
@@ -10,7 +10,9 @@ import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.looplab.R;
+import com.example.looplab.data.DashboardSummaryService;
 import com.example.looplab.data.FirebaseRefs;
+import com.example.looplab.data.StatsService;
 import com.example.looplab.data.model.Models;
 import com.example.looplab.ui.auth.role.RoleSelectionActivity;
 import com.google.firebase.auth.FirebaseAuth;
@@ -72,6 +74,8 @@ public class RegisterActivity extends AppCompatActivity {
                         
                         FirebaseRefs.users().document(uid).set(profile.toMap())
                                 .addOnSuccessListener(aVoid -> {
+                                    StatsService.increment(StatsService.USERS, 1);
+                                    DashboardSummaryService.recordActivity("New user registered: " + name);
                                     Toast.makeText(this, "Account created successfully!", Toast.LENGTH_SHORT).show();
                                     // Go to role selection for first-time setup
                                     Intent intent = new Intent(RegisterActivity.this, RoleSelectionActivity.class);
@@ -21,14 +21,10 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.example.looplab.R;
 import com.example.looplab.data.AIChatbotService;
+import com.example.looplab.data.ChatHistoryLog;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.snackbar.Snackbar;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -36,8 +32,6 @@ import java.util.List;
 import java.util.Locale;
 
 import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.Response;
 
 public class AIChatActivity extends AppCompatActivity {
     private static final String TAG = "AIChatActivity";
@@ -55,6 +49,12 @@ public class AIChatActivity extends AppCompatActivity {
     private AIChatbotService aiService;
     private List<Message> messages = new ArrayList<>();
     private boolean isTyping = false;
+    private Call activeCall;
+    private long historyBefore = ChatHistoryLog.END;
+    private boolean hasMoreHistory = true;
+    private boolean loadingHistory = false;
+
+    private static final int HISTORY_PAGE_SIZE = 30;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -63,8 +63,8 @@ public class AIChatActivity extends AppCompatActivity {
         try {
             setContentView(R.layout.activity_ai_chat);
 
-            // Initialize AI service
-            aiService = new AIChatbotService();
+            // Initialize AI service; its history loads in the background
+            aiService = new AIChatbotService(this);
 
             // Initialize views
             initializeViews();
@@ -75,6 +75,9 @@ public class AIChatActivity extends AppCompatActivity {
             // Check if AI is configured
             checkAIConfiguration();
 
+            // Show the latest saved messages; older ones load when scrolling up
+            loadHistoryPage();
+
         } catch (Exception e) {
             Log.e(TAG, "Error in onCreate", e);
             showError("Failed to initialize chat", e.getMessage());
@@ -164,6 +167,14 @@ public class AIChatActivity extends AppCompatActivity {
             adapter = new MessagesAdapter();
             rvMessages.setLayoutManager(new LinearLayoutManager(this));
             rvMessages.setAdapter(adapter);
+            rvMessages.addOnScrollListener(new RecyclerView.OnScrollListener() {
+                @Override
+                public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                    if (dy < 0 && !recyclerView.canScrollVertically(-1)) {
+                        loadHistoryPage();
+                    }
+                }
+            });
         } catch (Exception e) {
             Log.e(TAG, "Error setting up RecyclerView", e);
         }
@@ -179,7 +190,7 @@ public class AIChatActivity extends AppCompatActivity {
                 etMessage.setEnabled(false);
             } else {
                 tvConfigHint.setVisibility(View.GONE);
-                welcomeContainer.setVisibility(View.VISIBLE);
+                welcomeContainer.setVisibility(messages.isEmpty() ? View.VISIBLE : View.GONE);
                 btnSend.setEnabled(true);
                 etMessage.setEnabled(true);
             }
@@ -204,47 +215,43 @@ public class AIChatActivity extends AppCompatActivity {
             // Show typing indicator
             showTypingIndicator(true);
 
-            // Send to AI
-            aiService.sendMessage(messageText, new Callback() {
+            // Stream the reply into an AI bubble that grows as text arrives
+            activeCall = aiService.streamMessage(messageText, "student", new AIChatbotService.StreamCallback() {
+                private Message aiMessage;
+
                 @Override
-                public void onFailure(@NonNull Call call, @NonNull IOException e) {
-                    Log.e(TAG, "AI request failed", e);
-                    runOnUiThread(() -> {
-                        showTypingIndicator(false);
-                        showError("Failed to get AI response", e.getMessage());
-                    });
-                }
+                public void onTypingStart() {}
 
                 @Override
-                public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
-                    try {
-                        if (response.isSuccessful()) {
-                            String responseBody = response.body().string();
-                            String aiResponse = parseAIResponse(responseBody);
-
-                            runOnUiThread(() -> {
-                                showTypingIndicator(false);
-                                if (aiResponse != null) {
-                                    Message aiMessage = new Message(Message.TYPE_AI, aiResponse, new Date());
-                                    addMessage(aiMessage);
-                                } else {
-                                    showError("Invalid AI response", "Could not parse AI response");
-                                }
-                            });
-                        } else {
-                            runOnUiThread(() -> {
-                                showTypingIndicator(false);
-                                showError("AI request failed", "HTTP " + response.code());
-                            });
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error parsing AI response", e);
-                        runOnUiThread(() -> {
-                            showTypingIndicator(false);
-                            showError("Error parsing response", e.getMessage());
-                        });
+                public void onPartialResponse(String textSoFar) {
+                    if (isDestroyed()) return;
+                    if (aiMessage == null) {
+                        // First tokens: the bubble replaces the typing indicator
+                        typingIndicator.setVisibility(View.GONE);
+                        aiMessage = new Message(Message.TYPE_AI, textSoFar, new Date());
+                        addMessage(aiMessage);
+                    } else {
+                        aiMessage.text = textSoFar;
+                        int position = messages.lastIndexOf(aiMessage);
+                        if (position >= 0) adapter.notifyItemChanged(position);
                     }
                 }
+
+                @Override
+                public void onComplete(String response) {
+                    if (isDestroyed()) return;
+                    activeCall = null;
+                    onPartialResponse(response);
+                    showTypingIndicator(false);
+                }
+
+                @Override
+                public void onError(String error) {
+                    if (isDestroyed()) return;
+                    activeCall = null;
+                    showTypingIndicator(false);
+                    showError("Failed to get AI response", error);
+                }
             });
 
         } catch (Exception e) {
@@ -254,24 +261,28 @@ public class AIChatActivity extends AppCompatActivity {
         }
     }
 
-    private String parseAIResponse(String responseBody) {
-        try {
-            JSONObject json = new JSONObject(responseBody);
-            JSONArray candidates = json.getJSONArray("candidates");
-            if (candidates.length() > 0) {
-                JSONObject candidate = candidates.getJSONObject(0);
-                JSONObject content = candidate.getJSONObject("content");
-                JSONArray parts = content.getJSONArray("parts");
-                if (parts.length() > 0) {
-                    JSONObject part = parts.getJSONObject(0);
-                    return part.getString("text");
-                }
+    private void loadHistoryPage() {
+        if (loadingHistory || !hasMoreHistory) return;
+        loadingHistory = true;
+        aiService.loadHistoryPage(historyBefore, HISTORY_PAGE_SIZE, (history, before, hasMore) -> {
+            if (isDestroyed()) return;
+            loadingHistory = false;
+            historyBefore = before;
+            hasMoreHistory = hasMore;
+            if (history.isEmpty()) return;
+
+            List<Message> older = new ArrayList<>();
+            for (AIChatbotService.ChatMessage entry : history) {
+                int type = "user".equals(entry.role) ? Message.TYPE_USER : Message.TYPE_AI;
+                older.add(new Message(type, entry.content, new Date(entry.timestamp)));
             }
-            return null;
-        } catch (JSONException e) {
-            Log.e(TAG, "Error parsing JSON response", e);
-            return null;
-        }
+            boolean first = messages.isEmpty();
+            messages.addAll(0, older);
+            adapter.notifyItemRangeInserted(0, older.size());
+            welcomeContainer.setVisibility(View.GONE);
+            rvMessages.setVisibility(View.VISIBLE);
+            if (first) rvMessages.scrollToPosition(messages.size() - 1);
+        });
     }
 
     private void addMessage(Message message) {
@@ -280,7 +291,7 @@ public class AIChatActivity extends AppCompatActivity {
             adapter.notifyItemInserted(messages.size() - 1);
 
             // Hide welcome container when first message is added
-            if (messages.size() == 1) {
+            if (welcomeContainer.getVisibility() == View.VISIBLE) {
                 welcomeContainer.setVisibility(View.GONE);
                 rvMessages.setVisibility(View.VISIBLE);
             }
@@ -323,7 +334,7 @@ public class AIChatActivity extends AppCompatActivity {
         public static final int TYPE_SYSTEM = 3;
 
         public final int type;
-        public final String text;
+        public String text; // grows while a reply streams in
         public final Date timestamp;
 
         public Message(int type, String text, Date timestamp) {
@@ -455,7 +466,8 @@ public class AIChatActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        // Clean up any resources if needed
+        // Stop streaming into a screen that is gone
+        if (activeCall != null) activeCall.cancel();
     }
 }
 
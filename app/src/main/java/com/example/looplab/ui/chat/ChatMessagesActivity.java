@@ -13,12 +13,12 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.looplab.R;
+import com.example.looplab.data.ChatMessagePager;
 import com.example.looplab.data.ChatService;
 import com.example.looplab.data.model.Models;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.snackbar.Snackbar;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.ListenerRegistration;
 
 import java.text.DateFormat;
 import java.util.ArrayList;
@@ -28,6 +28,9 @@ public class ChatMessagesActivity extends AppCompatActivity {
 
     public static final String EXTRA_CHAT_ID = "chat_id";
     public static final String EXTRA_CHAT_NAME = "chat_name";
+    private static final int LOAD_OLDER_THRESHOLD = 3;
+    // Older pages kept once the reader is back at the newest messages
+    private static final int MAX_OLDER_PAGES = 10;
 
     private String chatId;
     private String chatName;
@@ -38,7 +41,8 @@ public class ChatMessagesActivity extends AppCompatActivity {
     private MessagesAdapter adapter;
     private EditText etMessage;
     private ImageButton btnSend;
-    private ListenerRegistration messagesListener;
+    private ChatMessagePager pager;
+    private long lastMarkedRead;
     private android.widget.TextView tvEmpty;
 
     @Override protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -70,6 +74,12 @@ public class ChatMessagesActivity extends AppCompatActivity {
         rv.setAdapter(adapter);
 
         btnSend.setOnClickListener(v -> send());
+        rv.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy < 0) maybeLoadOlder();
+                else if (dy > 0 && isAtBottom()) dropFarOlderPages();
+            }
+        });
 
         startListening();
 
@@ -79,16 +89,51 @@ public class ChatMessagesActivity extends AppCompatActivity {
 
     private void startListening() {
         stopListening();
-        messagesListener = chatService.listenToChatMessages(chatId, new ChatService.MessageCallback() {
-            @Override public void onSuccess(List<Models.Message> messages) {
-                adapter.submit(messages);
-                tvEmpty.setVisibility(messages.isEmpty() ? View.VISIBLE : View.GONE);
-                rv.scrollToPosition(Math.max(0, adapter.getItemCount()-1));
-                // Mark as read for current user
-                chatService.markMessagesAsRead(chatId, currentUserId, new ChatService.ChatCallback() {
-                    @Override public void onSuccess() {}
-                    @Override public void onError(String error) {}
-                });
+        pager = new ChatMessagePager(chatId);
+        pager.start(new ChatMessagePager.Listener() {
+            @Override public void onUpserted(List<Models.Message> messages) {
+                boolean atBottom = isAtBottom();
+                adapter.upsert(messages);
+                tvEmpty.setVisibility(adapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+                if (atBottom && !messages.isEmpty()) rv.scrollToPosition(Math.max(0, adapter.getItemCount()-1));
+                // Advance the read cursor only when someone else's newer message arrived;
+                // the sender's own messages already moved it
+                long newest = 0;
+                for (Models.Message m : messages) {
+                    if (m.senderId == null || !m.senderId.equals(currentUserId)) newest = Math.max(newest, m.timestamp);
+                }
+                if (newest > lastMarkedRead) {
+                    lastMarkedRead = newest;
+                    chatService.markMessagesAsRead(chatId, currentUserId, newest, new ChatService.ChatCallback() {
+                        @Override public void onSuccess() {}
+                        @Override public void onError(String error) {}
+                    });
+                }
+            }
+            @Override public void onRemoved(List<String> messageIds) {
+                for (String id : messageIds) adapter.remove(id);
+                tvEmpty.setVisibility(adapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+            }
+            @Override public void onError(String error) {
+                Snackbar.make(rv, error, Snackbar.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private boolean isAtBottom() {
+        LinearLayoutManager lm = (LinearLayoutManager) rv.getLayoutManager();
+        return lm == null || adapter.getItemCount() == 0
+                || lm.findLastVisibleItemPosition() >= adapter.getItemCount() - 2;
+    }
+
+    // Fetch the previous page once the user scrolls near the top
+    private void maybeLoadOlder() {
+        LinearLayoutManager lm = (LinearLayoutManager) rv.getLayoutManager();
+        if (pager == null || lm == null || !pager.hasMoreOlder()) return;
+        if (lm.findFirstVisibleItemPosition() > LOAD_OLDER_THRESHOLD) return;
+        pager.loadOlder(new ChatMessagePager.OlderPageCallback() {
+            @Override public void onSuccess(List<Models.Message> messages, boolean hasMore) {
+                adapter.prepend(messages);
             }
             @Override public void onError(String error) {
                 Snackbar.make(rv, error, Snackbar.LENGTH_LONG).show();
@@ -96,10 +141,16 @@ public class ChatMessagesActivity extends AppCompatActivity {
         });
     }
 
+    // History scrolled far away is refetched by loadOlder if the reader goes back up
+    private void dropFarOlderPages() {
+        if (pager == null) return;
+        for (String id : pager.dropOlderPagesBeyond(MAX_OLDER_PAGES)) adapter.remove(id);
+    }
+
     private void stopListening() {
-        if (messagesListener != null) {
-            messagesListener.remove();
-            messagesListener = null;
+        if (pager != null) {
+            pager.stop();
+            pager = null;
         }
     }
 
@@ -107,10 +158,18 @@ public class ChatMessagesActivity extends AppCompatActivity {
         String text = etMessage.getText().toString().trim();
         if (TextUtils.isEmpty(text)) return;
         etMessage.setText("");
-        chatService.sendMessage(chatId, currentUserId, text, "text", new ChatService.ChatCallback() {
+        Models.Message[] sent = new Models.Message[1];
+        sent[0] = chatService.sendMessage(chatId, currentUserId, text, "text", new ChatService.ChatCallback() {
             @Override public void onSuccess() { /* listener will update UI */ }
-            @Override public void onError(String error) { Snackbar.make(rv, error, Snackbar.LENGTH_LONG).show(); }
+            @Override public void onError(String error) {
+                if (sent[0] != null) adapter.remove(sent[0].id);
+                Snackbar.make(rv, error, Snackbar.LENGTH_LONG).show();
+            }
         });
+        // Render optimistically; the live page replaces it (same id) once the write lands
+        adapter.upsert(java.util.Collections.singletonList(sent[0]));
+        tvEmpty.setVisibility(View.GONE);
+        rv.scrollToPosition(Math.max(0, adapter.getItemCount()-1));
     }
 
     @Override
@@ -121,7 +180,36 @@ public class ChatMessagesActivity extends AppCompatActivity {
 
     static class MessagesAdapter extends RecyclerView.Adapter<MessagesAdapter.VH> {
         private final List<Models.Message> data = new ArrayList<>();
-        void submit(List<Models.Message> list) { data.clear(); if (list!=null) data.addAll(list); notifyDataSetChanged(); }
+        // Insert or replace by id, keeping timestamp order; one notify per message
+        void upsert(List<Models.Message> list) {
+            for (Models.Message m : list) {
+                int existing = indexOf(m.id);
+                if (existing >= 0) {
+                    data.set(existing, m);
+                    notifyItemChanged(existing);
+                } else {
+                    int pos = data.size();
+                    while (pos > 0 && data.get(pos-1).timestamp > m.timestamp) pos--;
+                    data.add(pos, m);
+                    notifyItemInserted(pos);
+                }
+            }
+        }
+        // Older page, sorted oldest first
+        void prepend(List<Models.Message> older) {
+            if (older.isEmpty()) return;
+            data.addAll(0, older);
+            notifyItemRangeInserted(0, older.size());
+        }
+        void remove(String id) {
+            int i = indexOf(id);
+            if (i >= 0) { data.remove(i); notifyItemRemoved(i); }
+        }
+        // New and changed messages are near the end, so scan backwards
+        private int indexOf(String id) {
+            for (int i = data.size()-1; i >= 0; i--) { if (data.get(i).id.equals(id)) return i; }
+            return -1;
+        }
         @Override public VH onCreateViewHolder(android.view.ViewGroup p, int v) { return new VH(android.view.LayoutInflater.from(p.getContext()).inflate(R.layout.item_message, p, false)); }
         @Override public void onBindViewHolder(VH h, int i) { h.bind(data.get(i)); }
         @Override public int getItemCount() { return data.size(); }
@@ -24,6 +24,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.looplab.R;
 import com.example.looplab.data.CourseService;
+import com.example.looplab.data.ProgressWriter;
 import com.example.looplab.data.FirebaseRefs;
 import com.example.looplab.data.model.Models;
 import com.google.android.material.progressindicator.CircularProgressIndicator;
@@ -61,6 +62,7 @@ public class CourseDetailActivity extends AppCompatActivity {
 
     private LecturesAdapter lecturesAdapter;
     private final Handler progressHandler = new Handler();
+    private ProgressWriter progressWriter;
     private int currentWatchSeconds = 0;
     private @Nullable Models.Lecture currentLecture = null;
     private List<Models.Lecture> allLectures = new ArrayList<>();
@@ -78,6 +80,7 @@ public class CourseDetailActivity extends AppCompatActivity {
                 FirebaseAuth.getInstance().getCurrentUser().getUid() : null;
 
         courseService = new CourseService();
+        progressWriter = new ProgressWriter(this, courseService);
 
         initializeViews();
         setupToolbar();
@@ -159,7 +162,7 @@ public class CourseDetailActivity extends AppCompatActivity {
         
         videoView.setOnCompletionListener(mp -> {
             if (currentUserId != null && currentLecture != null) {
-                courseService.updateLectureProgress(currentUserId, courseId, currentLecture.id, currentWatchSeconds, true,
+                progressWriter.complete(currentUserId, courseId, currentLecture.id, currentWatchSeconds,
                         new CourseService.ProgressCallback() {
                             @Override
                             public void onSuccess(Models.Progress progress) {
@@ -256,7 +259,7 @@ public class CourseDetailActivity extends AppCompatActivity {
             btnMarkComplete.setText("Marking...");
             
             // Mark the current YouTube video as completed with comprehensive progress data
-            courseService.updateLectureProgress(currentUserId, courseId, currentLecture.id, currentWatchSeconds, true,
+            progressWriter.complete(currentUserId, courseId, currentLecture.id, currentWatchSeconds,
                     new CourseService.ProgressCallback() {
                         @Override
                         public void onSuccess(Models.Progress progress) {
@@ -576,6 +579,7 @@ public class CourseDetailActivity extends AppCompatActivity {
     private void resetProgressTracking() {
         // Stop current progress tracking
         progressHandler.removeCallbacksAndMessages(null);
+        progressWriter.flush();
         
         // Reset watch time
         currentWatchSeconds = 0;
@@ -693,7 +697,7 @@ public class CourseDetailActivity extends AppCompatActivity {
 
     /**
      * Start tracking video playback progress
-     * Updates progress every second and saves to Firebase every 10 seconds
+     * Updates progress every second; ProgressWriter batches the Firebase writes
      */
     private void startProgressLoop() {
         progressHandler.removeCallbacksAndMessages(null);
@@ -712,18 +716,9 @@ public class CourseDetailActivity extends AppCompatActivity {
                 if (isPlaying && currentLecture != null && !currentLecture.completed) {
                     currentWatchSeconds += 1;
                     
-                    // Update progress to Firebase every 10 seconds for better performance
-                    if (currentUserId != null && currentWatchSeconds % 10 == 0) {
-                        courseService.updateLectureProgress(currentUserId, courseId, currentLecture.id, currentWatchSeconds, false,
-                                new CourseService.ProgressCallback() {
-                                    @Override public void onSuccess(Models.Progress progress) {
-                                        // Progress updated successfully
-                                    }
-                                    @Override public void onError(String error) {
-                                        // Log error but continue tracking
-                                        Log.w("CourseDetail", "Failed to update progress: " + error);
-                                    }
-                                });
+                    // Buffered; written every few minutes, on pause and on completion
+                    if (currentUserId != null) {
+                        progressWriter.record(currentUserId, courseId, currentLecture.id, currentWatchSeconds);
                     }
                     
                     // Update lecture progress UI if available
@@ -753,6 +748,7 @@ public class CourseDetailActivity extends AppCompatActivity {
             videoView.pause();
         }
         // Pause YouTube video if playing (WebView will handle this automatically)
+        progressWriter.flush();
     }
 
     @Override
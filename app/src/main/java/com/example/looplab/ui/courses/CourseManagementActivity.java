@@ -304,8 +304,11 @@ public class CourseManagementActivity extends AppCompatActivity {
                 .addOnSuccessListener(downloadUri -> {
                     java.util.Map<String, Object> updates = new java.util.HashMap<>();
                     updates.put("thumbnailUrl", downloadUri.toString());
+                    // Stamp the edit so offline deltas and the catalog cache pick up the new thumbnail
+                    updates.put("updatedAt", System.currentTimeMillis());
                     com.example.looplab.data.FirebaseRefs.courses().document(courseId).update(updates)
                             .addOnSuccessListener(v -> {
+                                com.example.looplab.data.CourseCatalogCache.invalidate(courseId);
                                 progressIndicator.setVisibility(View.GONE);
                                 Toast.makeText(this, "Thumbnail updated", Toast.LENGTH_SHORT).show();
                                 loadCourses();
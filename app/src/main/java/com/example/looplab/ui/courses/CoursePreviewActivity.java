@@ -132,8 +132,19 @@ public class CoursePreviewActivity extends AppCompatActivity {
                         if (course != null) {
                             Log.d("CoursePreview", "Course title: " + course.title);
                             Log.d("CoursePreview", "Course description: " + course.description);
-                            displayCourseInfo(course);
-                            loadPreviewLectures();
+                            course.id = documentSnapshot.getId();
+                            courseService.loadEnrolledCount(course, new CourseService.SingleCourseCallback() {
+                                @Override
+                                public void onSuccess(Models.Course loaded) {
+                                    displayCourseInfo(loaded);
+                                    loadPreviewLectures();
+                                }
+
+                                @Override
+                                public void onError(String error) {
+                                    showError(error);
+                                }
+                            });
                         } else {
                             Log.e("CoursePreview", "Failed to create Course object from document");
                             showError("Failed to parse course data");
@@ -16,7 +16,9 @@ import androidx.recyclerview.widget.RecyclerView;
 import androidx.appcompat.widget.Toolbar;
 
 import com.example.looplab.R;
+import com.example.looplab.data.DashboardSummaryService;
 import com.example.looplab.data.FirebaseRefs;
+import com.example.looplab.data.LeaderboardService;
 import com.example.looplab.data.model.Models;
 import com.example.looplab.ui.live.LiveSessionActivity;
 import com.google.android.material.button.MaterialButton;
@@ -25,7 +27,7 @@ import com.google.android.material.progressindicator.CircularProgressIndicator;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.ListenerRegistration;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -47,6 +49,8 @@ public class AdminDashboardFragment extends Fragment {
     // Data
     private String currentUserId;
     private SimpleDateFormat dateFormat;
+    private DashboardSummaryService dashboardSummaryService;
+    private ListenerRegistration summaryListener;
 
     @Nullable
     @Override
@@ -57,7 +61,6 @@ public class AdminDashboardFragment extends Fragment {
         setupToolbar();
         setupClickListeners();
         initializeServices();
-        loadDashboardData();
         
         return root;
     }
@@ -286,7 +289,7 @@ public class AdminDashboardFragment extends Fragment {
     }
 
     private void showAnalyticsDialog() {
-        String[] options = {"User Analytics", "Course Analytics", "Event Analytics", "Revenue Analytics", "System Analytics", "Download Reports"};
+        String[] options = {"User Analytics", "Course Analytics", "Event Analytics", "Revenue Analytics", "System Analytics", "Download Reports", "Migrate Leaderboard Ranks"};
         new MaterialAlertDialogBuilder(requireContext())
                 .setTitle("Analytics Dashboard")
                 .setItems(options, (dialog, which) -> {
@@ -309,11 +312,37 @@ public class AdminDashboardFragment extends Fragment {
                         case 5:
                             showDownloadReports();
                             break;
+                        case 6:
+                            confirmLeaderboardMigration();
+                            break;
                     }
                 })
                 .show();
     }
 
+    // One-time: count leaderboard entries from before the rank histogram into it
+    private void confirmLeaderboardMigration() {
+        new MaterialAlertDialogBuilder(requireContext())
+                .setTitle("Migrate Leaderboard Ranks")
+                .setMessage("Count existing leaderboard entries into the rank tiers? Entries already counted are skipped, so this is safe to run again.")
+                .setPositiveButton("Migrate", (dialog, which) ->
+                        new LeaderboardService().migrateTiers(new LeaderboardService.RebuildCallback() {
+                            @Override
+                            public void onSuccess(int entries) {
+                                if (getContext() == null) return;
+                                Toast.makeText(getContext(), "Leaderboard migrated: " + entries + " entries added", Toast.LENGTH_SHORT).show();
+                            }
+
+                            @Override
+                            public void onError(String error) {
+                                if (getContext() == null) return;
+                                Toast.makeText(getContext(), error, Toast.LENGTH_LONG).show();
+                            }
+                        }))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
     private void showFeedbackManagementDialog() {
         String[] options = {"View All Feedback", "Respond to Feedback", "Mark as Resolved", "Export Feedback", "Feedback Analytics"};
         new MaterialAlertDialogBuilder(requireContext())
@@ -732,7 +761,10 @@ public class AdminDashboardFragment extends Fragment {
                     a.createdByName = "Admin";
                     a.isImportant = false;
                     com.example.looplab.data.FirebaseRefs.announcements().document(a.id).set(a.toMap())
-                            .addOnSuccessListener(v -> Toast.makeText(getContext(), "Announcement created", Toast.LENGTH_SHORT).show())
+                            .addOnSuccessListener(v -> {
+                                DashboardSummaryService.increment(DashboardSummaryService.TOTAL_ANNOUNCEMENTS, 1);
+                                Toast.makeText(getContext(), "Announcement created", Toast.LENGTH_SHORT).show();
+                            })
                             .addOnFailureListener(e -> Toast.makeText(getContext(), "Failed: " + e.getMessage(), Toast.LENGTH_SHORT).show());
                 })
                 .setNegativeButton("Cancel", null)
@@ -955,15 +987,31 @@ public class AdminDashboardFragment extends Fragment {
     }
 
     private void initializeServices() {
+        dashboardSummaryService = new DashboardSummaryService();
         loadUserProfile();
     }
 
     private void loadDashboardData() {
-        loadTotalUsers();
-        loadTotalCourses();
-        loadTotalEvents();
-        loadActiveSessions();
-        loadRecentActivity();
+        // All cards are fed by one listener on the materialized summaries/admin document
+        if (summaryListener != null) return;
+        summaryListener = dashboardSummaryService.listenToSummary(new DashboardSummaryService.SummaryListener() {
+            @Override
+            public void onSummary(Models.DashboardSummary summary) {
+                if (tvTotalUsers != null) tvTotalUsers.setText(String.valueOf(summary.totalUsers));
+                if (tvTotalCourses != null) tvTotalCourses.setText(String.valueOf(summary.totalCourses));
+                if (tvTotalEvents != null) tvTotalEvents.setText(String.valueOf(summary.totalEvents));
+                if (tvActiveSessions != null) tvActiveSessions.setText(String.valueOf(summary.activeSessions));
+                updateRecentActivityDisplay(summary.recentActivity);
+            }
+
+            @Override
+            public void onError(String error) {
+                if (tvTotalUsers != null) tvTotalUsers.setText("0");
+                if (tvTotalCourses != null) tvTotalCourses.setText("0");
+                if (tvTotalEvents != null) tvTotalEvents.setText("0");
+                if (tvActiveSessions != null) tvActiveSessions.setText("0");
+            }
+        });
     }
 
     private void loadUserProfile() {
@@ -980,83 +1028,6 @@ public class AdminDashboardFragment extends Fragment {
                 });
     }
 
-    private void loadTotalUsers() {
-        FirebaseRefs.users().get()
-                .addOnSuccessListener(querySnapshot -> {
-                    int totalUsers = querySnapshot.size();
-                    if (tvTotalUsers != null) {
-                        tvTotalUsers.setText(String.valueOf(totalUsers));
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    if (tvTotalUsers != null) {
-                        tvTotalUsers.setText("0");
-                    }
-                });
-    }
-
-    private void loadTotalCourses() {
-        FirebaseRefs.courses().get()
-                .addOnSuccessListener(querySnapshot -> {
-                    int totalCourses = querySnapshot.size();
-                    if (tvTotalCourses != null) {
-                        tvTotalCourses.setText(String.valueOf(totalCourses));
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    if (tvTotalCourses != null) {
-                        tvTotalCourses.setText("0");
-                    }
-                });
-    }
-
-    private void loadTotalEvents() {
-        FirebaseRefs.events().get()
-                .addOnSuccessListener(querySnapshot -> {
-                    int totalEvents = querySnapshot.size();
-                    if (tvTotalEvents != null) {
-                        tvTotalEvents.setText(String.valueOf(totalEvents));
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    if (tvTotalEvents != null) {
-                        tvTotalEvents.setText("0");
-                    }
-                });
-    }
-
-    private void loadActiveSessions() {
-        FirebaseRefs.liveSessions().whereEqualTo("isActive", true).get()
-                .addOnSuccessListener(querySnapshot -> {
-                    int activeSessions = querySnapshot.size();
-                    if (tvActiveSessions != null) {
-                        tvActiveSessions.setText(String.valueOf(activeSessions));
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    if (tvActiveSessions != null) {
-                        tvActiveSessions.setText("0");
-                    }
-                });
-    }
-
-    private void loadRecentActivity() {
-        // Load recent user registrations, course creations, etc.
-        FirebaseRefs.users().orderBy("createdAt", Query.Direction.DESCENDING).limit(5).get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<String> recentActivities = new ArrayList<>();
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        Models.UserProfile user = doc.toObject(Models.UserProfile.class);
-                        if (user != null) {
-                            String activity = "New user registered: " + user.name;
-                            recentActivities.add(activity);
-                        }
-                    }
-                    // Update recent activity display
-                    updateRecentActivityDisplay(recentActivities);
-                });
-    }
-
     private void updateRecentActivityDisplay(List<String> activities) {
         // This would typically update a RecyclerView adapter
         // For now, we'll just show a toast with the count
@@ -1066,8 +1037,17 @@ public class AdminDashboardFragment extends Fragment {
     }
 
     @Override
-    public void onResume() {
-        super.onResume();
+    public void onStart() {
+        super.onStart();
         loadDashboardData();
     }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        if (summaryListener != null) {
+            summaryListener.remove();
+            summaryListener = null;
+        }
+    }
 }
\ No newline at end of file
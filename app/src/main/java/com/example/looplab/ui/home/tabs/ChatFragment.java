@@ -19,6 +19,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.looplab.R;
 import com.example.looplab.data.FirebaseRefs;
+import com.example.looplab.data.UserDirectoryCache;
 import com.example.looplab.data.model.Models;
 import com.example.looplab.ui.lists.ConversationsAdapter;
 import com.google.android.material.button.MaterialButton;
@@ -38,6 +39,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Locale;
 
 public class ChatFragment extends Fragment {
@@ -160,6 +162,9 @@ public class ChatFragment extends Fragment {
     private void initializeServices() {
         loadUserRole();
         loadConversations();
+        if (currentUserId != null) {
+            new com.example.looplab.data.ChatService().resumeChatDeletions(currentUserId);
+        }
     }
 
     private void loadUserRole() {
@@ -231,10 +236,6 @@ public class ChatFragment extends Fragment {
                     
                     allConversations.clear();
                     
-                    // Track how many conversations need name resolution
-                    final int[] pendingResolutions = {0};
-                    final boolean[] hasPendingResolutions = {false};
-                    
                     for (DocumentSnapshot d : snap.getDocuments()) {
                         Models.Conversation conv = d.toObject(Models.Conversation.class);
                         if (conv != null) {
@@ -242,36 +243,11 @@ public class ChatFragment extends Fragment {
                             android.util.Log.d("ChatFragment", "Processing conversation: " + conv.id + ", type: " + conv.type + ", name: " + conv.name);
                             
                             allConversations.add(conv);
-                            
-                            // Ensure 1:1 chat shows other participant name if missing
-                            if ("1:1".equals(conv.type) && (conv.name == null || conv.name.isEmpty())) {
-                                android.util.Log.d("ChatFragment", "Need to resolve name for 1:1 conversation: " + conv.id);
-                                hasPendingResolutions[0] = true;
-                                pendingResolutions[0]++;
-                                
-                                // Resolve the name and update the counter
-                                resolveOneToOneNameWithCallback(conv, () -> {
-                                    pendingResolutions[0]--;
-                                    android.util.Log.d("ChatFragment", "Name resolution completed for conversation: " + conv.id + ", remaining: " + pendingResolutions[0]);
-                                    // If all resolutions are done, update the UI
-                                    if (pendingResolutions[0] <= 0) {
-                                        if (getActivity() != null) {
-                                            getActivity().runOnUiThread(() -> {
-                                                android.util.Log.d("ChatFragment", "All name resolutions completed, updating UI");
-                                                filterConversations();
-                                            });
-                                        }
-                                    }
-                                });
-                            }
                         }
                     }
                     
-                    // If no conversations need name resolution, update UI immediately
-                    if (!hasPendingResolutions[0]) {
-                        android.util.Log.d("ChatFragment", "No name resolutions needed, updating UI immediately");
-                        filterConversations();
-                    }
+                    // Name unnamed 1:1 chats with one batched profile read, then render
+                    resolveOneToOneNames(allConversations, this::filterConversations);
                 });
     }
 
@@ -292,13 +268,9 @@ public class ChatFragment extends Fragment {
                     
                     allConversations.clear();
                     
-                    // Track how many conversations need name resolution
-                    final int[] pendingResolutions = {0};
-                    final boolean[] hasPendingResolutions = {false};
-                    
                     for (DocumentSnapshot d : snap.getDocuments()) {
                         com.example.looplab.data.model.Models.Chat c = d.toObject(com.example.looplab.data.model.Models.Chat.class);
-                        if (c != null) {
+                        if (c != null && !c.deleting) {
                             android.util.Log.d("ChatFragment", "Processing chat: " + d.getId() + ", type: " + c.type + ", name: " + c.name);
                             
                             Models.Conversation conv = new Models.Conversation();
@@ -310,41 +282,17 @@ public class ChatFragment extends Fragment {
                             conv.lastMessageTime = c.lastMessageTime;
                             conv.lastMessageSender = c.lastMessageSender;
                             conv.createdAt = c.createdAt;
+                            conv.readCursors = c.readCursors;
                             conv.isActive = true;
                             
                             android.util.Log.d("ChatFragment", "Created conversation: " + conv.id + ", name: " + conv.name + ", participants: " + conv.participants);
                             
                             allConversations.add(conv);
-                            
-                            // If this is a 1:1 chat without a name, resolve it
-                            if ("1:1".equals(conv.type) && (conv.name == null || conv.name.isEmpty())) {
-                                android.util.Log.d("ChatFragment", "Need to resolve name for 1:1 chat: " + conv.id);
-                                hasPendingResolutions[0] = true;
-                                pendingResolutions[0]++;
-                                
-                                // Resolve the name and update the counter
-                                resolveOneToOneNameWithCallback(conv, () -> {
-                                    pendingResolutions[0]--;
-                                    android.util.Log.d("ChatFragment", "Name resolution completed for chat: " + conv.id + ", remaining: " + pendingResolutions[0]);
-                                    // If all resolutions are done, update the UI
-                                    if (pendingResolutions[0] <= 0) {
-                                        if (getActivity() != null) {
-                                            getActivity().runOnUiThread(() -> {
-                                                android.util.Log.d("ChatFragment", "All name resolutions completed, updating UI");
-                                                filterConversations();
-                                            });
-                                        }
-                                    }
-                                });
-                            }
                         }
                     }
                     
-                    // If no conversations need name resolution, update UI immediately
-                    if (!hasPendingResolutions[0]) {
-                        android.util.Log.d("ChatFragment", "No name resolutions needed, updating UI immediately");
-                        filterConversations();
-                    }
+                    // Name unnamed 1:1 chats with one batched profile read, then render
+                    resolveOneToOneNames(allConversations, this::filterConversations);
                 });
     }
 
@@ -561,47 +509,55 @@ public class ChatFragment extends Fragment {
 
 
 
-    // Overload for callback-based resolution
-    private void resolveOneToOneNameWithCallback(Models.Conversation conv, Runnable onComplete) {
-        if (conv == null || conv.participants == null || conv.participants.size() != 2) {
-            onComplete.run(); // No-op if not a 1:1
-            return;
+    // Fill in the other participant's name on unnamed 1:1 chats. All missing users are
+    // fetched together through UserDirectoryCache, so this costs at most one read per 30 chats.
+    private void resolveOneToOneNames(List<Models.Conversation> conversations, Runnable onComplete) {
+        List<Models.Conversation> unnamed = new ArrayList<>();
+        List<String> otherIds = new ArrayList<>();
+        for (Models.Conversation conv : conversations) {
+            String otherId = otherParticipant(conv);
+            if (otherId != null && (conv.name == null || conv.name.isEmpty())) {
+                unnamed.add(conv);
+                otherIds.add(otherId);
+            }
         }
-        if (conv.name != null && !conv.name.isEmpty()) {
-            onComplete.run(); // Already resolved
+        if (unnamed.isEmpty()) {
+            onComplete.run();
             return;
         }
 
-        // Debug logging
-        android.util.Log.d("ChatFragment", "Resolving name for conversation: " + conv.id);
-        android.util.Log.d("ChatFragment", "Current user ID: " + currentUserId);
-        android.util.Log.d("ChatFragment", "Participants: " + conv.participants);
+        UserDirectoryCache.resolve(otherIds, new UserDirectoryCache.ProfilesCallback() {
+            @Override
+            public void onSuccess(Map<String, Models.UserProfile> profiles) {
+                for (Models.Conversation conv : unnamed) {
+                    Models.UserProfile u = profiles.get(otherParticipant(conv));
+                    conv.name = (u != null && u.name != null && !u.name.isEmpty()) ? u.name : "Chat";
+                }
+                if (getActivity() != null) {
+                    getActivity().runOnUiThread(onComplete);
+                }
+            }
 
-        String otherId = conv.participants.get(0).equals(currentUserId) ? conv.participants.get(1) : conv.participants.get(0);
-        
-        android.util.Log.d("ChatFragment", "Other participant ID: " + otherId);
-        
-        FirebaseRefs.users().document(otherId).get()
-                .addOnSuccessListener(doc -> {
-                    if (doc.exists()) {
-                        Models.UserProfile u = doc.toObject(Models.UserProfile.class);
-                        String display = (u != null && u.name != null && !u.name.isEmpty()) ? u.name : "Chat";
-                        conv.name = display;
-                        
-                        android.util.Log.d("ChatFragment", "Set conversation name to: " + display + " for user: " + otherId);
-                        
-                        onComplete.run(); // Call the callback after resolution
-                    } else {
-                        conv.name = "Chat";
-                        android.util.Log.d("ChatFragment", "User document not found, set name to: Chat");
-                        onComplete.run(); // Call the callback after resolution
-                    }
-                })
-                .addOnFailureListener(e -> {
+            @Override
+            public void onError(String error) {
+                android.util.Log.d("ChatFragment", "Error resolving names: " + error);
+                for (Models.Conversation conv : unnamed) {
                     conv.name = "Chat";
-                    android.util.Log.d("ChatFragment", "Error resolving name: " + e.getMessage());
-                    onComplete.run(); // Call the callback after resolution
-                });
+                }
+                if (getActivity() != null) {
+                    getActivity().runOnUiThread(onComplete);
+                }
+            }
+        });
+    }
+
+    // The other participant of a 1:1 chat, or null for any other conversation
+    @Nullable
+    private String otherParticipant(Models.Conversation conv) {
+        if (conv == null || !"1:1".equals(conv.type) || conv.participants == null || conv.participants.size() != 2) {
+            return null;
+        }
+        return conv.participants.get(0).equals(currentUserId) ? conv.participants.get(1) : conv.participants.get(0);
     }
 
     @Override
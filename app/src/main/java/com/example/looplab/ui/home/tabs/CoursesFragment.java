@@ -20,7 +20,10 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import com.example.looplab.R;
 import com.example.looplab.data.CourseService;
 import com.example.looplab.data.FirebaseRefs;
+import com.example.looplab.data.OfflineRepository;
+import com.example.looplab.data.SearchIndex;
 import com.example.looplab.data.model.Models;
+import com.example.looplab.ui.lists.QueryPipeline;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
@@ -40,9 +43,14 @@ public class CoursesFragment extends Fragment {
     private LinearLayout emptyState, loadingState;
     
     private CourseService courseService;
+    private OfflineRepository offlineRepository;
     private String currentUserId;
     private List<Models.Course> allCourses;
     private List<Models.Course> filteredCourses;
+    private final SearchIndex<Models.Course> courseIndex = new SearchIndex<>(
+            course -> course.id, course -> new String[]{course.title, course.instructorName, course.description});
+    private final QueryPipeline<List<Models.Course>> filterPipeline =
+            new QueryPipeline<>("courses", this::showFilteredCourses);
     private CourseAdapter courseAdapter;
     private String currentFilter = "All";
     private String currentSearch = "";
@@ -100,7 +108,7 @@ public class CoursesFragment extends Fragment {
             @Override
             public void afterTextChanged(Editable s) {
                 currentSearch = s.toString().toLowerCase();
-                filterCourses();
+                filterCourses(true);
             }
         });
     }
@@ -116,15 +124,22 @@ public class CoursesFragment extends Fragment {
     }
     
     private void setupSwipeRefresh() {
-        swipeRefresh.setOnRefreshListener(this::loadCourses);
+        swipeRefresh.setOnRefreshListener(() -> loadCourses(true));
         swipeRefresh.setColorSchemeResources(R.color.primary);
     }
     
     private void initializeServices() {
         courseService = new CourseService();
+        offlineRepository = new OfflineRepository();
     }
     
     private void loadCourses() {
+        loadCourses(false);
+    }
+    
+    // Served from the local mirror first, then refreshed with whatever changed on the server;
+    // pull-to-refresh forces a full sync
+    private void loadCourses(boolean forceFullSync) {
         showLoading(true);
 
         if (currentUserId == null) {
@@ -133,11 +148,12 @@ public class CoursesFragment extends Fragment {
             return;
         }
         
-        courseService.getPublishedCourses(new CourseService.CourseListCallback() {
+        offlineRepository.getPublishedCourses(forceFullSync, new CourseService.CourseListCallback() {
             @Override
             public void onSuccess(List<Models.Course> courses) {
                 allCourses.clear();
                 allCourses.addAll(courses);
+                courseIndex.replaceAll(allCourses);
                 filterCourses();
                 showLoading(false);
                 swipeRefresh.setRefreshing(false);
@@ -153,22 +169,37 @@ public class CoursesFragment extends Fragment {
     }
     
     private void filterCourses() {
-        filteredCourses.clear();
-        
-        for (Models.Course course : allCourses) {
-            boolean matchesSearch = currentSearch.isEmpty() || 
-                    course.title.toLowerCase().contains(currentSearch) ||
-                    course.description.toLowerCase().contains(currentSearch) ||
-                    course.instructorName.toLowerCase().contains(currentSearch);
-            
-            boolean matchesFilter = currentFilter.equals("All") || 
-                    course.category.equals(currentFilter);
-            
-            if (matchesSearch && matchesFilter) {
-                filteredCourses.add(course);
+        filterCourses(false);
+    }
+    
+    // Filter and rank off the main thread; keystrokes are debounced
+    private void filterCourses(boolean debounce) {
+        List<Models.Course> courses = new ArrayList<>(allCourses);
+        String search = currentSearch;
+        String filter = currentFilter;
+        QueryPipeline.Query<List<Models.Course>> query = () -> {
+            List<Models.Course> result = new ArrayList<>();
+            List<Models.Course> candidates = search.isEmpty() ? courses : courseIndex.search(search);
+            for (Models.Course course : candidates) {
+                boolean matchesFilter = filter.equals("All") || 
+                        filter.equals(course.category);
+                
+                if (matchesFilter) {
+                    result.add(course);
+                }
             }
+            return result;
+        };
+        if (debounce) {
+            filterPipeline.submit(query);
+        } else {
+            filterPipeline.submitNow(query);
         }
-        
+    }
+    
+    private void showFilteredCourses(List<Models.Course> courses) {
+        filteredCourses.clear();
+        filteredCourses.addAll(courses);
         courseAdapter.notifyDataSetChanged();
         updateEmptyState();
     }
@@ -395,6 +426,12 @@ public class CoursesFragment extends Fragment {
         // Refresh courses when returning to the fragment
         loadCourses();
     }
+    
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        filterPipeline.cancel();
+    }
 }
 
 
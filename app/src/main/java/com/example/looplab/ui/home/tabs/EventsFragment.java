@@ -20,8 +20,10 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.looplab.R;
 import com.example.looplab.data.FirebaseRefs;
+import com.example.looplab.data.SearchIndex;
 import com.example.looplab.data.model.Models;
 import com.example.looplab.ui.lists.EventsAdapter;
+import com.example.looplab.ui.lists.QueryPipeline;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
@@ -37,8 +39,10 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 public class EventsFragment extends Fragment implements EventsAdapter.OnEventActionListener {
 
@@ -56,7 +60,12 @@ public class EventsFragment extends Fragment implements EventsAdapter.OnEventAct
     private String currentUserRole;
     private String currentFilter = "all";
     private String searchQuery = "";
+    private final SearchIndex<Models.EventItem> eventIndex = new SearchIndex<>(
+            event -> event.id, event -> new String[]{event.title, event.description});
+    private final QueryPipeline<List<Models.EventItem>> filterPipeline =
+            new QueryPipeline<>("events", this::updateEventsDisplay);
     private List<Models.EventItem> allEvents = new ArrayList<>();
+    private final Set<String> registeredEventIds = new HashSet<>();
     private SimpleDateFormat dateFormat;
 
     @Nullable
@@ -146,7 +155,7 @@ public class EventsFragment extends Fragment implements EventsAdapter.OnEventAct
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 searchQuery = s.toString().toLowerCase();
-                filterEvents();
+                filterEvents(true);
             }
 
             @Override
@@ -203,6 +212,7 @@ public class EventsFragment extends Fragment implements EventsAdapter.OnEventAct
         if (progressIndicator != null) {
             progressIndicator.setVisibility(View.VISIBLE);
         }
+        loadRegisteredEventIds();
         
         FirebaseRefs.events()
                 .orderBy("startTime", Query.Direction.ASCENDING)
@@ -222,32 +232,75 @@ public class EventsFragment extends Fragment implements EventsAdapter.OnEventAct
                         Models.EventItem it = d.toObject(Models.EventItem.class);
                         if (it != null) {
                             it.id = d.getId();
-                            // mark registered by attendee list if available
-                            if (it.attendees != null && currentUserId != null) {
-                                it.registered = it.attendees.contains(currentUserId);
-                            }
+                            it.registered = isRegistered(it);
                             allEvents.add(it);
                         }
                     }
+                    eventIndex.replaceAll(allEvents);
                     
                     filterEvents();
                 });
     }
 
+    // Registrations live in events/{id}/attendees, so they are looked up once per load
+    // rather than read from each event document
+    private void loadRegisteredEventIds() {
+        if (currentUserId == null) return;
+        new com.example.looplab.data.EventService().getRegisteredEventIds(currentUserId,
+                new com.example.looplab.data.EventService.RegisteredEventsCallback() {
+                    @Override
+                    public void onSuccess(Set<String> eventIds) {
+                        registeredEventIds.clear();
+                        registeredEventIds.addAll(eventIds);
+                        for (Models.EventItem event : allEvents) {
+                            boolean registered = isRegistered(event);
+                            if (event.registered != registered) {
+                                event.registered = registered;
+                                adapter.updateItem(event);
+                            }
+                        }
+                        filterEvents();
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        android.util.Log.w("EventsFragment", error);
+                    }
+                });
+    }
+
+    private boolean isRegistered(Models.EventItem event) {
+        if (registeredEventIds.contains(event.id)) return true;
+        // Registrations made before the attendees subcollection
+        return event.attendees != null && currentUserId != null && event.attendees.contains(currentUserId);
+    }
+
     private void filterEvents() {
+        filterEvents(false);
+    }
+
+    // Filter and rank off the main thread; keystrokes are debounced
+    private void filterEvents(boolean debounce) {
+        List<Models.EventItem> events = new ArrayList<>(allEvents);
+        String search = searchQuery;
+        String filter = currentFilter;
+        QueryPipeline.Query<List<Models.EventItem>> query = () -> filterEvents(events, search, filter);
+        if (debounce) {
+            filterPipeline.submit(query);
+        } else {
+            filterPipeline.submitNow(query);
+        }
+    }
+
+    private List<Models.EventItem> filterEvents(List<Models.EventItem> events, String search, String filter) {
         List<Models.EventItem> filteredEvents = new ArrayList<>();
         long currentTime = System.currentTimeMillis();
         Calendar calendar = Calendar.getInstance();
         
-        for (Models.EventItem event : allEvents) {
-            boolean matchesSearch = searchQuery.isEmpty() || 
-                event.title.toLowerCase().contains(searchQuery) ||
-                event.description.toLowerCase().contains(searchQuery);
-            
-            if (!matchesSearch) continue;
-            
+        List<Models.EventItem> candidates = search.isEmpty() ? events : eventIndex.search(search);
+        for (Models.EventItem event : candidates) {
             boolean matchesFilter = false;
-            switch (currentFilter) {
+            switch (filter) {
                 case "all":
                     matchesFilter = true;
                     break;
@@ -274,7 +327,7 @@ public class EventsFragment extends Fragment implements EventsAdapter.OnEventAct
             }
         }
         
-        updateEventsDisplay(filteredEvents);
+        return filteredEvents;
     }
 
     private boolean isSameDay(Calendar cal1, Calendar cal2) {
@@ -330,11 +383,10 @@ public class EventsFragment extends Fragment implements EventsAdapter.OnEventAct
         new com.example.looplab.data.EventService().registerForEvent(currentUserId, item.id, new com.example.looplab.data.EventService.RegistrationCallback() {
             @Override
             public void onSuccess(boolean registered) {
+                registeredEventIds.add(item.id);
                 for (Models.EventItem event : allEvents) {
                     if (event.id.equals(item.id)) {
                         event.registered = true;
-                        if (event.attendees == null) event.attendees = new java.util.ArrayList<>();
-                        if (!event.attendees.contains(currentUserId)) event.attendees.add(currentUserId);
                         
                         // Update the specific item in the adapter for immediate UI feedback
                         adapter.updateItem(event);
@@ -376,11 +428,12 @@ public class EventsFragment extends Fragment implements EventsAdapter.OnEventAct
         super.onResume();
         loadUserRole();
         loadEvents();
-        
-        // Refresh the adapter to ensure button states are correct
-        if (adapter != null && !allEvents.isEmpty()) {
-            adapter.notifyDataSetChanged();
-        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        filterPipeline.cancel();
     }
 }
 
@@ -16,7 +16,8 @@ import androidx.recyclerview.widget.RecyclerView;
 import androidx.appcompat.widget.Toolbar;
 
 import com.example.looplab.R;
-import com.example.looplab.data.GamificationService;
+import com.example.looplab.data.FirebaseRefs;
+import com.example.looplab.data.LeaderboardService;
 import com.example.looplab.data.model.Models;
 import com.example.looplab.ui.lists.LeaderboardAdapter;
 import com.google.android.material.progressindicator.CircularProgressIndicator;
@@ -39,6 +40,7 @@ public class LeaderboardFragment extends Fragment {
     private Toolbar toolbar;
     private SimpleDateFormat dateFormat;
     private androidx.recyclerview.widget.RecyclerView rvLeaderboard;
+    private final LeaderboardService leaderboardService = new LeaderboardService();
 
     @Nullable
     @Override
@@ -88,10 +90,10 @@ public class LeaderboardFragment extends Fragment {
             emptyState.setVisibility(View.GONE);
         }
 
-        GamificationService gamificationService = new GamificationService();
-        gamificationService.getLeaderboard(new GamificationService.LeaderboardCallback() {
+        leaderboardService.getTop(LeaderboardService.DEFAULT_TOP_N, new LeaderboardService.LeaderboardCallback() {
             @Override
             public void onSuccess(List<Models.LeaderboardEntry> entries) {
+                if (!isAdded()) return;
                 if (progressIndicator != null) {
                     progressIndicator.setVisibility(View.GONE);
                 }
@@ -109,15 +111,7 @@ public class LeaderboardFragment extends Fragment {
                     
                     for (Models.LeaderboardEntry entry : entries) {
                         totalPoints += entry.points;
-                        
-                        LeaderboardAdapter.Row row = new LeaderboardAdapter.Row();
-                        row.rank = entry.rank;
-                        row.name = entry.userName;
-                        row.points = entry.points;
-                        row.coursesCompleted = entry.coursesCompleted;
-                        row.eventsAttended = entry.eventsAttended;
-                        row.lecturesWatched = entry.lecturesWatched;
-                        rows.add(row);
+                        rows.add(toRow(entry));
                     }
                     
                     int averagePoints = totalParticipants > 0 ? totalPoints / totalParticipants : 0;
@@ -126,11 +120,13 @@ public class LeaderboardFragment extends Fragment {
                     updateStatistics(totalParticipants, averagePoints, topScore);
                     
                     adapter.submit(rows);
+                    loadOwnRank(rows);
                 }
             }
 
             @Override
             public void onError(String error) {
+                if (!isAdded()) return;
                 if (progressIndicator != null) {
                     progressIndicator.setVisibility(View.GONE);
                 }
@@ -141,6 +137,49 @@ public class LeaderboardFragment extends Fragment {
         });
     }
 
+    // The viewer's own rank (from the tier histogram, not by scanning the board); appended
+    // below the top N when they are not in it
+    private void loadOwnRank(List<LeaderboardAdapter.Row> topRows) {
+        if (FirebaseRefs.auth().getCurrentUser() == null) return;
+        String uid = FirebaseRefs.auth().getCurrentUser().getUid();
+        leaderboardService.getRank(uid, new LeaderboardService.RankCallback() {
+            @Override
+            public void onSuccess(long rank, long totalParticipants, Models.LeaderboardEntry entry) {
+                if (!isAdded()) return;
+                if (totalParticipants > 0 && tvTotalParticipants != null) {
+                    tvTotalParticipants.setText(formatNumber((int) totalParticipants));
+                }
+                if (entry == null) return;
+                if (toolbar != null) {
+                    toolbar.setSubtitle(dateFormat.format(new Date()) + " · Your rank #" + rank);
+                }
+                for (LeaderboardAdapter.Row row : topRows) {
+                    if (uid.equals(row.userId)) return;
+                }
+                List<LeaderboardAdapter.Row> rows = new ArrayList<>(topRows);
+                rows.add(toRow(entry));
+                adapter.submit(rows);
+            }
+
+            @Override
+            public void onError(String error) {
+                // The top N is already shown; the rank is an extra
+            }
+        });
+    }
+
+    private LeaderboardAdapter.Row toRow(Models.LeaderboardEntry entry) {
+        LeaderboardAdapter.Row row = new LeaderboardAdapter.Row();
+        row.userId = entry.userId;
+        row.rank = entry.rank;
+        row.name = entry.userName;
+        row.points = entry.points;
+        row.coursesCompleted = entry.coursesCompleted;
+        row.eventsAttended = entry.eventsAttended;
+        row.lecturesWatched = entry.lecturesWatched;
+        return row;
+    }
+
     private void loadSampleLeaderboard() {
         List<LeaderboardAdapter.Row> sampleData = new ArrayList<>();
         
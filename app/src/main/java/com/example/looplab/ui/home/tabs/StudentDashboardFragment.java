@@ -12,9 +12,9 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import com.example.looplab.R;
-import com.example.looplab.data.CourseService;
 import com.example.looplab.data.FirebaseRefs;
 import com.example.looplab.data.GamificationService;
+import com.example.looplab.data.OfflineRepository;
 import com.example.looplab.data.model.Models;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.button.MaterialButton;
@@ -34,8 +34,8 @@ public class StudentDashboardFragment extends Fragment {
     private MaterialCardView cardEnrolledCourses, cardCompletedCourses, cardPoints, cardBadges;
     private MaterialButton btnBrowseCourses, btnViewEvents, btnLeaderboard, btnChat;
     
-    private CourseService courseService;
     private GamificationService gamificationService;
+    private OfflineRepository offlineRepository;
     private String currentUserId;
     private SimpleDateFormat dateFormat;
     
@@ -45,7 +45,6 @@ public class StudentDashboardFragment extends Fragment {
         View view = inflater.inflate(R.layout.fragment_student_dashboard, container, false);
         
         initializeViews(view);
-        setupToolbar();
         setupClickListeners();
         initializeServices();
         loadDashboardData();
@@ -77,19 +76,6 @@ public class StudentDashboardFragment extends Fragment {
         dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
     }
     
-    private void setupToolbar() {
-        // Set welcome message with user's name
-        FirebaseRefs.users().document(currentUserId).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        Models.UserProfile user = documentSnapshot.toObject(Models.UserProfile.class);
-                        if (user != null) {
-                            tvWelcomeMessage.setText("Welcome back, " + user.name + "!");
-                        }
-                    }
-                });
-    }
-    
     private void setupClickListeners() {
         // Card click listeners
         cardEnrolledCourses.setOnClickListener(v -> {
@@ -147,59 +133,55 @@ public class StudentDashboardFragment extends Fragment {
     }
     
     private void initializeServices() {
-        courseService = new CourseService();
         gamificationService = new GamificationService();
+        offlineRepository = new OfflineRepository();
     }
     
     private void loadDashboardData() {
-        loadEnrolledCourses();
-        loadCompletedCourses();
-        loadPoints();
+        loadEnrollmentCounts();
+        loadProfile();
         loadBadges();
         loadRecentActivity();
     }
     
-    private void loadEnrolledCourses() {
-        courseService.getUserEnrollments(currentUserId, new CourseService.CourseListCallback() {
+    // Enrolled and completed counts from the locally mirrored enrollments
+    private void loadEnrollmentCounts() {
+        offlineRepository.getUserEnrollments(currentUserId, new OfflineRepository.EnrollmentListCallback() {
             @Override
-            public void onSuccess(List<Models.Course> courses) {
-                tvEnrolledCount.setText(String.valueOf(courses.size()));
+            public void onSuccess(List<Models.Enrollment> enrollments) {
+                int enrolled = 0;
+                int completed = 0;
+                for (Models.Enrollment enrollment : enrollments) {
+                    if (!enrollment.isActive) continue;
+                    enrolled++;
+                    if (enrollment.progress >= 100) completed++;
+                }
+                tvEnrolledCount.setText(String.valueOf(enrolled));
+                tvCompletedCount.setText(String.valueOf(completed));
             }
             
             @Override
             public void onError(String error) {
                 tvEnrolledCount.setText("0");
+                tvCompletedCount.setText("0");
                 Toast.makeText(getContext(), "Failed to load enrollments", Toast.LENGTH_SHORT).show();
             }
         });
     }
     
-    private void loadCompletedCourses() {
-        FirebaseRefs.enrollments().whereEqualTo("userId", currentUserId)
-                .whereEqualTo("progress", 100)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    int completedCount = querySnapshot.size();
-                    tvCompletedCount.setText(String.valueOf(completedCount));
-                })
-                .addOnFailureListener(e -> {
-                    tvCompletedCount.setText("0");
-                });
-    }
-    
-    private void loadPoints() {
-        FirebaseRefs.users().document(currentUserId).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        Models.UserProfile user = documentSnapshot.toObject(Models.UserProfile.class);
-                        if (user != null) {
-                            tvPoints.setText(String.valueOf(user.points));
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    tvPoints.setText("0");
-                });
+    private void loadProfile() {
+        offlineRepository.getUser(currentUserId, new OfflineRepository.UserCallback() {
+            @Override
+            public void onSuccess(Models.UserProfile user) {
+                tvWelcomeMessage.setText("Welcome back, " + user.name + "!");
+                tvPoints.setText(String.valueOf(user.points));
+            }
+            
+            @Override
+            public void onError(String error) {
+                tvPoints.setText("0");
+            }
+        });
     }
     
     private void loadBadges() {
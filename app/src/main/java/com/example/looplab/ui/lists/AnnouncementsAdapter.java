@@ -12,16 +12,20 @@ import com.example.looplab.R;
 import com.example.looplab.data.model.Models;
 
 import java.text.DateFormat;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Objects;
 
-public class AnnouncementsAdapter extends RecyclerView.Adapter<AnnouncementsAdapter.VH> {
-    private final List<Models.Announcement> items = new ArrayList<>();
+public class AnnouncementsAdapter extends DiffingListAdapter<Models.Announcement, AnnouncementsAdapter.VH> {
 
-    public void submit(List<Models.Announcement> data) {
-        items.clear();
-        if (data != null) items.addAll(data);
-        notifyDataSetChanged();
+    @Override
+    protected String getItemKey(@NonNull Models.Announcement item) {
+        return item.id;
+    }
+
+    @Override
+    protected boolean areContentsTheSame(@NonNull Models.Announcement oldItem, @NonNull Models.Announcement newItem) {
+        return Objects.equals(oldItem.title, newItem.title)
+                && Objects.equals(oldItem.body, newItem.body)
+                && oldItem.createdAt == newItem.createdAt;
     }
 
     @NonNull
@@ -33,17 +37,12 @@ public class AnnouncementsAdapter extends RecyclerView.Adapter<AnnouncementsAdap
 
     @Override
     public void onBindViewHolder(@NonNull VH holder, int position) {
-        Models.Announcement a = items.get(position);
+        Models.Announcement a = getItem(position);
         holder.title.setText(a.title);
         holder.body.setText(a.body);
         holder.date.setText(DateFormat.getDateTimeInstance().format(a.createdAt));
     }
 
-    @Override
-    public int getItemCount() {
-        return items.size();
-    }
-
     static class VH extends RecyclerView.ViewHolder {
         TextView title, body, date;
 
@@ -7,11 +7,11 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.looplab.R;
+import com.example.looplab.data.ChatService;
+import com.example.looplab.data.UserDirectoryCache;
 import com.example.looplab.data.model.Models;
 
 import java.text.SimpleDateFormat;
@@ -19,23 +19,22 @@ import java.util.Date;
 import java.util.Locale;
 import java.util.Objects;
 
-public class ConversationsAdapter extends ListAdapter<Models.Conversation, ConversationsAdapter.ViewHolder> {
+public class ConversationsAdapter extends DiffingListAdapter<Models.Conversation, ConversationsAdapter.ViewHolder> {
 
     private OnConversationClickListener listener;
 
-    public ConversationsAdapter() {
-        super(new DiffUtil.ItemCallback<Models.Conversation>() {
-            @Override
-            public boolean areItemsTheSame(@NonNull Models.Conversation oldItem, @NonNull Models.Conversation newItem) {
-                return Objects.equals(oldItem.id, newItem.id);
-            }
+    @Override
+    protected String getItemKey(@NonNull Models.Conversation item) {
+        return item.id;
+    }
 
-            @Override
-            public boolean areContentsTheSame(@NonNull Models.Conversation oldItem, @NonNull Models.Conversation newItem) {
-                return Objects.equals(oldItem.lastMessage, newItem.lastMessage)
-                        && oldItem.lastMessageTime == newItem.lastMessageTime;
-            }
-        });
+    @Override
+    protected boolean areContentsTheSame(@NonNull Models.Conversation oldItem, @NonNull Models.Conversation newItem) {
+        return Objects.equals(oldItem.name, newItem.name)
+                && Objects.equals(oldItem.type, newItem.type)
+                && Objects.equals(oldItem.lastMessage, newItem.lastMessage)
+                && oldItem.lastMessageTime == newItem.lastMessageTime
+                && Objects.equals(oldItem.readCursors, newItem.readCursors);
     }
 
     public void setOnConversationClickListener(OnConversationClickListener listener) {
@@ -69,7 +68,7 @@ public class ConversationsAdapter extends ListAdapter<Models.Conversation, Conve
         private TextView tvTime;
         private TextView tvUnreadCount;
         private View unreadIndicator;
-        private com.google.firebase.firestore.ListenerRegistration unreadListener;
+        private String boundConversationId;
         private android.widget.ImageButton btnDelete;
 
         public ViewHolder(@NonNull View itemView) {
@@ -113,7 +112,18 @@ public class ConversationsAdapter extends ListAdapter<Models.Conversation, Conve
             // Remove old listener to avoid leaks when views are recycled
             clearListener();
 
-            String title = (conversation.name != null && !conversation.name.isEmpty()) ? conversation.name : "Chat";
+            String title = conversation.name;
+            if ((title == null || title.isEmpty()) && "1:1".equals(conversation.type) && conversation.participants != null) {
+                // Fall back to the other participant's cached profile (no read here)
+                String selfUid = com.google.firebase.auth.FirebaseAuth.getInstance().getUid();
+                for (String participant : conversation.participants) {
+                    if (!participant.equals(selfUid)) {
+                        title = UserDirectoryCache.peekName(participant);
+                        break;
+                    }
+                }
+            }
+            if (title == null || title.isEmpty()) title = "Chat";
             tvName.setText(title);
             tvLastMessage.setText(conversation.lastMessage != null ? conversation.lastMessage : "No messages yet");
 
@@ -145,41 +155,45 @@ public class ConversationsAdapter extends ListAdapter<Models.Conversation, Conve
                 ivAvatar.setImageResource(R.drawable.ic_person);
             }
 
-            // Unread indicator: query only on equality filters to avoid index requirements
+            // Unread count from the user's read cursor: no read when the chat is caught up,
+            // otherwise one count() aggregation over messages newer than the cursor
             final String currentUid = com.google.firebase.auth.FirebaseAuth.getInstance().getUid();
-            unreadListener = com.example.looplab.data.FirebaseRefs.messages()
-                    .whereEqualTo("chatId", conversation.id)
-                    .addSnapshotListener((snap, e) -> {
-                        int count = 0;
-                        if (snap != null) {
-                            for (com.google.firebase.firestore.DocumentSnapshot d : snap.getDocuments()) {
-                                Models.Message m = d.toObject(Models.Message.class);
-                                if (m != null && !m.isRead && (currentUid == null || !currentUid.equals(m.senderId))) {
-                                    count++;
-                                }
+            long readCursor = ChatService.readCursorOf(conversation.readCursors, currentUid);
+            showUnreadCount(0);
+            boundConversationId = conversation.id;
+            new ChatService().getUnreadCount(conversation.id, conversation.lastMessageTime, readCursor,
+                    new ChatService.UnreadCountCallback() {
+                        @Override
+                        public void onSuccess(long unreadCount) {
+                            // Ignore results for a conversation this holder no longer shows
+                            if (Objects.equals(boundConversationId, conversation.id)) {
+                                showUnreadCount(unreadCount);
                             }
                         }
-                        if (count > 0) {
-                            unreadIndicator.setVisibility(View.VISIBLE);
-                            tvUnreadCount.setVisibility(View.VISIBLE);
-                            tvUnreadCount.setText(String.valueOf(count));
-                        } else {
-                            unreadIndicator.setVisibility(View.GONE);
-                            tvUnreadCount.setVisibility(View.GONE);
-                        }
+
+                        @Override
+                        public void onError(String error) {}
                     });
         }
 
+        private void showUnreadCount(long count) {
+            if (count > 0) {
+                unreadIndicator.setVisibility(View.VISIBLE);
+                tvUnreadCount.setVisibility(View.VISIBLE);
+                tvUnreadCount.setText(String.valueOf(count));
+            } else {
+                unreadIndicator.setVisibility(View.GONE);
+                tvUnreadCount.setVisibility(View.GONE);
+            }
+        }
+
         private boolean isSameDay(Date date1, Date date2) {
             SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
             return sdf.format(date1).equals(sdf.format(date2));
         }
 
         public void clearListener() {
-            if (unreadListener != null) {
-                unreadListener.remove();
-                unreadListener = null;
-            }
+            boundConversationId = null;
         }
     }
 
@@ -11,16 +11,20 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.looplab.R;
 import com.example.looplab.data.model.Models;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Objects;
 
-public class CoursesAdapter extends RecyclerView.Adapter<CoursesAdapter.VH> {
-    private final List<Models.Course> items = new ArrayList<>();
+public class CoursesAdapter extends DiffingListAdapter<Models.Course, CoursesAdapter.VH> {
 
-    public void submit(List<Models.Course> data) {
-        items.clear();
-        if (data != null) items.addAll(data);
-        notifyDataSetChanged();
+    @Override
+    protected String getItemKey(@NonNull Models.Course item) {
+        return item.id;
+    }
+
+    @Override
+    protected boolean areContentsTheSame(@NonNull Models.Course oldItem, @NonNull Models.Course newItem) {
+        return Objects.equals(oldItem.title, newItem.title)
+                && oldItem.lectureCount == newItem.lectureCount
+                && oldItem.enrolledCount == newItem.enrolledCount;
     }
 
     @NonNull
@@ -32,16 +36,11 @@ public class CoursesAdapter extends RecyclerView.Adapter<CoursesAdapter.VH> {
 
     @Override
     public void onBindViewHolder(@NonNull VH holder, int position) {
-        Models.Course c = items.get(position);
+        Models.Course c = getItem(position);
         holder.title.setText(c.title);
         holder.meta.setText("Lectures: " + c.lectureCount + "  Enrolled: " + c.enrolledCount);
     }
 
-    @Override
-    public int getItemCount() {
-        return items.size();
-    }
-
     static class VH extends RecyclerView.ViewHolder {
         TextView title, meta;
         VH(@NonNull View itemView) {
@@ -0,0 +1,122 @@
+package com.example.looplab.ui.lists;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Base for list adapters fed by snapshot listeners.
+ *
+ * Each submitted list is diffed against the current one on a background thread
+ * (via {@link ListAdapter}'s AsyncListDiffer), keyed by the model's document id, so
+ * a new message or registration dispatches one insert/change instead of rebinding
+ * every row. Ids are also exposed as stable item ids so RecyclerView can keep
+ * holders attached to the same item across moves.
+ */
+public abstract class DiffingListAdapter<T, VH extends RecyclerView.ViewHolder> extends ListAdapter<T, VH> {
+
+    private final Map<String, Long> itemIds = new HashMap<>();
+
+    protected DiffingListAdapter() {
+        this(new IdItemCallback<>());
+    }
+
+    private DiffingListAdapter(IdItemCallback<T> callback) {
+        super(callback);
+        callback.adapter = this;
+        setHasStableIds(true);
+    }
+
+    // Document id of the item (id or uid field)
+    @Nullable
+    protected abstract String getItemKey(@NonNull T item);
+
+    // True when every field the row renders is unchanged
+    protected abstract boolean areContentsTheSame(@NonNull T oldItem, @NonNull T newItem);
+
+    @Override
+    public void submitList(@Nullable List<T> list) {
+        // Callers reuse and mutate their lists; the differ needs its own snapshot
+        super.submitList(list != null ? new ArrayList<>(list) : null);
+    }
+
+    public void submit(@Nullable List<T> list) {
+        submitList(list);
+    }
+
+    // Rebind one row whose model was changed in place (the differ cannot see those edits)
+    public void refreshItem(@NonNull T item) {
+        int position = indexOfKey(getItemKey(item));
+        if (position == RecyclerView.NO_POSITION) return;
+        if (getItem(position) == item) {
+            notifyItemChanged(position);
+        } else {
+            List<T> updated = new ArrayList<>(getCurrentList());
+            updated.set(position, item);
+            super.submitList(updated);
+        }
+    }
+
+    protected int indexOfKey(@Nullable String key) {
+        if (key == null) return RecyclerView.NO_POSITION;
+        List<T> current = getCurrentList();
+        for (int i = 0; i < current.size(); i++) {
+            if (key.equals(getItemKey(current.get(i)))) return i;
+        }
+        return RecyclerView.NO_POSITION;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String key = getItemKey(getItem(position));
+        if (key == null) return RecyclerView.NO_ID;
+        Long id = itemIds.get(key);
+        if (id == null) {
+            // Sequential ids rather than hashCode(), so two keys can never collide
+            id = (long) itemIds.size();
+            itemIds.put(key, id);
+        }
+        return id;
+    }
+
+    // Diff rules on their own, so they can be checked without an adapter
+    abstract static class KeyedItemCallback<T> extends DiffUtil.ItemCallback<T> {
+
+        @Nullable
+        abstract String keyOf(@NonNull T item);
+
+        abstract boolean contentsSame(@NonNull T oldItem, @NonNull T newItem);
+
+        @Override
+        public boolean areItemsTheSame(@NonNull T oldItem, @NonNull T newItem) {
+            return Objects.equals(keyOf(oldItem), keyOf(newItem));
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull T oldItem, @NonNull T newItem) {
+            return contentsSame(oldItem, newItem);
+        }
+    }
+
+    private static class IdItemCallback<T> extends KeyedItemCallback<T> {
+        DiffingListAdapter<T, ?> adapter;
+
+        @Override
+        String keyOf(@NonNull T item) {
+            return adapter.getItemKey(item);
+        }
+
+        @Override
+        boolean contentsSame(@NonNull T oldItem, @NonNull T newItem) {
+            return adapter.areContentsTheSame(oldItem, newItem);
+        }
+    }
+}
@@ -14,36 +14,34 @@ import com.example.looplab.data.model.Models;
 import com.google.android.material.button.MaterialButton;
 
 import java.text.DateFormat;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Objects;
 
-public class EventsAdapter extends RecyclerView.Adapter<EventsAdapter.VH> {
+public class EventsAdapter extends DiffingListAdapter<Models.EventItem, EventsAdapter.VH> {
     public interface OnEventActionListener {
         void onRegister(Models.EventItem item);
         void onAddToCalendar(Models.EventItem item);
     }
 
-    private final List<Models.EventItem> items = new ArrayList<>();
     private final OnEventActionListener listener;
 
     public EventsAdapter(OnEventActionListener listener) {
         this.listener = listener;
     }
 
-    public void submit(List<Models.EventItem> data) {
-        items.clear();
-        if (data != null) items.addAll(data);
-        notifyDataSetChanged();
+    @Override
+    protected String getItemKey(@NonNull Models.EventItem item) {
+        return item.id;
     }
-    
+
+    @Override
+    protected boolean areContentsTheSame(@NonNull Models.EventItem oldItem, @NonNull Models.EventItem newItem) {
+        return Objects.equals(oldItem.title, newItem.title)
+                && oldItem.startTime == newItem.startTime
+                && oldItem.registered == newItem.registered;
+    }
+
     public void updateItem(Models.EventItem updatedItem) {
-        for (int i = 0; i < items.size(); i++) {
-            if (items.get(i).id.equals(updatedItem.id)) {
-                items.set(i, updatedItem);
-                notifyItemChanged(i);
-                break;
-            }
-        }
+        refreshItem(updatedItem);
     }
 
     @NonNull
@@ -55,7 +53,7 @@ public class EventsAdapter extends RecyclerView.Adapter<EventsAdapter.VH> {
 
     @Override
     public void onBindViewHolder(@NonNull VH holder, int position) {
-        Models.EventItem e = items.get(position);
+        Models.EventItem e = getItem(position);
         holder.title.setText(e.title);
         holder.meta.setText(DateFormat.getDateTimeInstance().format(e.startTime));
         
@@ -84,11 +82,6 @@ public class EventsAdapter extends RecyclerView.Adapter<EventsAdapter.VH> {
         holder.btnCalendar.setOnClickListener(v -> listener.onAddToCalendar(e));
     }
 
-    @Override
-    public int getItemCount() {
-        return items.size();
-    }
-
     static class VH extends RecyclerView.ViewHolder {
         TextView title, meta;
         MaterialButton btnRegister, btnCalendar;
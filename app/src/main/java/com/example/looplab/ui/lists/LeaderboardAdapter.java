@@ -16,12 +16,12 @@ import com.example.looplab.R;
 import com.example.looplab.data.model.Models;
 
 import java.text.NumberFormat;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
-public class LeaderboardAdapter extends RecyclerView.Adapter<LeaderboardAdapter.VH> {
+public class LeaderboardAdapter extends DiffingListAdapter<LeaderboardAdapter.Row, LeaderboardAdapter.VH> {
     public static class Row { 
+        public String userId;
         public int rank; 
         public String name; 
         public int points;
@@ -30,13 +30,22 @@ public class LeaderboardAdapter extends RecyclerView.Adapter<LeaderboardAdapter.
         public int lecturesWatched;
     }
     
-    private final List<Row> items = new ArrayList<>();
     private final NumberFormat numberFormat = NumberFormat.getNumberInstance(Locale.getDefault());
 
-    public void submit(List<Row> data) {
-        items.clear();
-        if (data != null) items.addAll(data);
-        notifyDataSetChanged();
+    @Override
+    protected String getItemKey(@NonNull Row item) {
+        // Sample rows have no user id; their names are unique
+        return item.userId != null ? item.userId : item.name;
+    }
+
+    @Override
+    protected boolean areContentsTheSame(@NonNull Row oldItem, @NonNull Row newItem) {
+        return oldItem.rank == newItem.rank
+                && Objects.equals(oldItem.name, newItem.name)
+                && oldItem.points == newItem.points
+                && oldItem.coursesCompleted == newItem.coursesCompleted
+                && oldItem.eventsAttended == newItem.eventsAttended
+                && oldItem.lecturesWatched == newItem.lecturesWatched;
     }
 
     @NonNull
@@ -48,7 +57,7 @@ public class LeaderboardAdapter extends RecyclerView.Adapter<LeaderboardAdapter.
 
     @Override
     public void onBindViewHolder(@NonNull VH holder, int position) {
-        Row r = items.get(position);
+        Row r = getItem(position);
         Context context = holder.itemView.getContext();
         
         // Set ranking with special colors for top 3
@@ -108,11 +117,6 @@ public class LeaderboardAdapter extends RecyclerView.Adapter<LeaderboardAdapter.
         badge.setBackgroundColor(color);
     }
 
-    @Override
-    public int getItemCount() {
-        return items.size();
-    }
-
     static class VH extends RecyclerView.ViewHolder {
         LinearLayout rankingBadge;
         TextView rank, name, points, achievements;
@@ -0,0 +1,143 @@
+package com.example.looplab.ui.lists;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs list filtering off the main thread for search boxes and filter chips.
+ *
+ * {@link #submit} debounces keystrokes by {@link #DEFAULT_DEBOUNCE_MS}; {@link #submitNow}
+ * runs at once (chip changes, new snapshots). Every submission supersedes the previous one:
+ * a pending query is dropped, a running one is interrupted, and only the result of the latest
+ * submission is delivered on the main thread. Queries run on one shared background thread and
+ * must work on data captured at submit time, never on lists the main thread keeps mutating.
+ *
+ * Query time is measured, and so is the frame that follows each delivery, from its start to the
+ * start of the next frame (Choreographer frame callbacks). A frame longer than one 60 Hz frame
+ * is logged as a warning so the rebinding cost shows up while typing; the per-query timings are
+ * logged only when debug logging is enabled for the tag ({@code adb shell setprop
+ * log.tag.QueryPipeline DEBUG}).
+ *
+ * @param <R> result type, usually the filtered list
+ */
+public class QueryPipeline<R> {
+    private static final String TAG = "QueryPipeline";
+
+    public static final long DEFAULT_DEBOUNCE_MS = 250;
+    // One frame at 60 Hz
+    static final long FRAME_BUDGET_MS = 16;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public interface Query<R> {
+        // Runs on the background thread
+        R run();
+    }
+
+    public interface ResultListener<R> {
+        // Runs on the main thread, only for the latest submission
+        void onResult(R result);
+    }
+
+    private final String name;
+    private final long debounceMs;
+    private final ResultListener<R> listener;
+
+    // Only touched on the main thread
+    private int generation;
+    private Runnable pendingStart;
+    private Future<?> running;
+
+    public QueryPipeline(String name, ResultListener<R> listener) {
+        this(name, DEFAULT_DEBOUNCE_MS, listener);
+    }
+
+    public QueryPipeline(String name, long debounceMs, ResultListener<R> listener) {
+        this.name = name;
+        this.debounceMs = debounceMs;
+        this.listener = listener;
+    }
+
+    // Debounced: runs once input has been quiet for the debounce interval
+    public void submit(Query<R> query) {
+        schedule(query, debounceMs);
+    }
+
+    // Runs without waiting
+    public void submitNow(Query<R> query) {
+        schedule(query, 0);
+    }
+
+    // Drop whatever is pending or running (call from onDestroy/onDestroyView)
+    public void cancel() {
+        generation++;
+        clearPending();
+    }
+
+    private void schedule(Query<R> query, long delayMs) {
+        int submitted = ++generation;
+        clearPending();
+        pendingStart = () -> {
+            pendingStart = null;
+            running = executor.submit(() -> execute(query, submitted));
+        };
+        if (delayMs > 0) {
+            mainHandler.postDelayed(pendingStart, delayMs);
+        } else {
+            pendingStart.run();
+        }
+    }
+
+    private void clearPending() {
+        if (pendingStart != null) {
+            mainHandler.removeCallbacks(pendingStart);
+            pendingStart = null;
+        }
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+    }
+
+    private void execute(Query<R> query, int submitted) {
+        if (Thread.currentThread().isInterrupted()) return;
+        long start = SystemClock.elapsedRealtime();
+        R result;
+        try {
+            result = query.run();
+        } catch (RuntimeException e) {
+            Log.e(TAG, name + ": query failed", e);
+            return;
+        }
+        long queryMs = SystemClock.elapsedRealtime() - start;
+        if (Thread.currentThread().isInterrupted()) return;
+        mainHandler.post(() -> {
+            if (submitted != generation) return; // superseded while running
+            running = null;
+            listener.onResult(result);
+            measureNextFrame(queryMs);
+        });
+    }
+
+    // The frame after delivery lays out and draws the new results; its length is the time
+    // between its frame callback and the next one
+    private void measureNextFrame(long queryMs) {
+        Choreographer choreographer = Choreographer.getInstance();
+        choreographer.postFrameCallback(frameStart -> choreographer.postFrameCallback(nextFrame -> {
+            long frameMs = (nextFrame - frameStart) / 1_000_000;
+            if (frameMs > FRAME_BUDGET_MS) {
+                Log.w(TAG, name + ": frame after results took " + frameMs + " ms (query " + queryMs + " ms)");
+            } else if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, name + ": query " + queryMs + " ms, frame " + frameMs + " ms");
+            }
+        }));
+    }
+}
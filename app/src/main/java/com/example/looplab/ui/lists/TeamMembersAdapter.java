@@ -14,12 +14,10 @@ import com.example.looplab.R;
 import com.example.looplab.data.model.Models;
 import com.google.android.material.button.MaterialButton;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Objects;
 
-public class TeamMembersAdapter extends RecyclerView.Adapter<TeamMembersAdapter.TeamMemberViewHolder> {
+public class TeamMembersAdapter extends DiffingListAdapter<Models.TeamMember, TeamMembersAdapter.TeamMemberViewHolder> {
 
-    private List<Models.TeamMember> members = new ArrayList<>();
     private final OnTeamMemberClickListener listener;
 
     public interface OnTeamMemberClickListener {
@@ -31,12 +29,18 @@ public class TeamMembersAdapter extends RecyclerView.Adapter<TeamMembersAdapter.
         this.listener = listener;
     }
 
-    public void submitList(List<Models.TeamMember> newMembers) {
-        members.clear();
-        if (newMembers != null) {
-            members.addAll(newMembers);
-        }
-        notifyDataSetChanged();
+    @Override
+    protected String getItemKey(@NonNull Models.TeamMember item) {
+        return item.id;
+    }
+
+    @Override
+    protected boolean areContentsTheSame(@NonNull Models.TeamMember oldItem, @NonNull Models.TeamMember newItem) {
+        return Objects.equals(oldItem.name, newItem.name)
+                && Objects.equals(oldItem.role, newItem.role)
+                && Objects.equals(oldItem.bio, newItem.bio)
+                && Objects.equals(oldItem.photoUrl, newItem.photoUrl)
+                && oldItem.isActive == newItem.isActive;
     }
 
     @NonNull
@@ -49,12 +53,7 @@ public class TeamMembersAdapter extends RecyclerView.Adapter<TeamMembersAdapter.
 
     @Override
     public void onBindViewHolder(@NonNull TeamMemberViewHolder holder, int position) {
-        holder.bind(members.get(position));
-    }
-
-    @Override
-    public int getItemCount() {
-        return members.size();
+        holder.bind(getItem(position));
     }
 
     class TeamMemberViewHolder extends RecyclerView.ViewHolder {
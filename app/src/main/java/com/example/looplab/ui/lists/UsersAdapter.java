@@ -16,17 +16,18 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.chip.Chip;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
-public class UsersAdapter extends RecyclerView.Adapter<UsersAdapter.UserViewHolder> {
+public class UsersAdapter extends DiffingListAdapter<Models.UserProfile, UsersAdapter.UserViewHolder> {
 
-    private List<Models.UserProfile> users = new ArrayList<>();
     private final OnUserActionListener listener;
 
     // For multi-selection
-    private final Set<String> selectedUserIds = new HashSet<>();
+    private final Set<String> selectedUserIds = new LinkedHashSet<>();
+    private OnSelectionChangedListener selectionListener;
 
     public interface OnUserActionListener {
         void onUserClick(Models.UserProfile user);
@@ -35,16 +36,27 @@ public class UsersAdapter extends RecyclerView.Adapter<UsersAdapter.UserViewHold
         void onToggleUserStatus(Models.UserProfile user);
     }
 
+    public interface OnSelectionChangedListener {
+        void onSelectionChanged(int selectedCount);
+    }
+
     public UsersAdapter(OnUserActionListener listener) {
         this.listener = listener;
     }
 
-    public void submitList(List<Models.UserProfile> newUsers) {
-        users.clear();
-        if (newUsers != null) {
-            users.addAll(newUsers);
-        }
-        notifyDataSetChanged();
+    @Override
+    protected String getItemKey(@NonNull Models.UserProfile item) {
+        return item.uid;
+    }
+
+    @Override
+    protected boolean areContentsTheSame(@NonNull Models.UserProfile oldItem, @NonNull Models.UserProfile newItem) {
+        return Objects.equals(oldItem.name, newItem.name)
+                && Objects.equals(oldItem.email, newItem.email)
+                && Objects.equals(oldItem.role, newItem.role)
+                && Objects.equals(oldItem.photoUrl, newItem.photoUrl)
+                && oldItem.points == newItem.points
+                && oldItem.isActive == newItem.isActive;
     }
 
     public void toggleSelection(String userId) {
@@ -53,17 +65,37 @@ public class UsersAdapter extends RecyclerView.Adapter<UsersAdapter.UserViewHold
         } else {
             selectedUserIds.add(userId);
         }
-        notifyDataSetChanged();
+        int position = indexOfKey(userId);
+        if (position != RecyclerView.NO_POSITION) notifyItemChanged(position);
+        notifySelectionChanged();
     }
 
     public void clearSelection() {
+        List<String> previouslySelected = new ArrayList<>(selectedUserIds);
         selectedUserIds.clear();
-        notifyDataSetChanged();
+        for (String userId : previouslySelected) {
+            int position = indexOfKey(userId);
+            if (position != RecyclerView.NO_POSITION) notifyItemChanged(position);
+        }
+        notifySelectionChanged();
+    }
+
+    public void setOnSelectionChangedListener(OnSelectionChangedListener selectionListener) {
+        this.selectionListener = selectionListener;
+    }
+
+    private void notifySelectionChanged() {
+        if (selectionListener != null) selectionListener.onSelectionChanged(selectedUserIds.size());
+    }
+
+    // Selected ids in selection order, including users no longer in the displayed list
+    public List<String> getSelectedUserIds() {
+        return new ArrayList<>(selectedUserIds);
     }
 
     public List<Models.UserProfile> getSelectedUsers() {
         List<Models.UserProfile> selected = new ArrayList<>();
-        for (Models.UserProfile user : users) {
+        for (Models.UserProfile user : getCurrentList()) {
             if (selectedUserIds.contains(user.uid)) {
                 selected.add(user);
             }
@@ -81,12 +113,7 @@ public class UsersAdapter extends RecyclerView.Adapter<UsersAdapter.UserViewHold
 
     @Override
     public void onBindViewHolder(@NonNull UserViewHolder holder, int position) {
-        holder.bind(users.get(position));
-    }
-
-    @Override
-    public int getItemCount() {
-        return users.size();
+        holder.bind(getItem(position));
     }
 
     class UserViewHolder extends RecyclerView.ViewHolder {
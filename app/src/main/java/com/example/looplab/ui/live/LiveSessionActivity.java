@@ -171,7 +171,9 @@ public class LiveSessionActivity extends AppCompatActivity {
             data.put("instructorName", getCurrentUserName());
             data.put("createdAt", System.currentTimeMillis());
             data.put("isActive", true);
-            ref.set(data);
+            ref.set(data).addOnSuccessListener(aVoid ->
+                    com.example.looplab.data.DashboardSummaryService.increment(
+                            com.example.looplab.data.DashboardSummaryService.ACTIVE_SESSIONS, 1));
         } catch (Exception ignored) {
         }
     }
@@ -19,7 +19,9 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 
 import com.example.looplab.R;
+import com.example.looplab.data.CurrentUserCache;
 import com.example.looplab.data.FirebaseRefs;
+import com.example.looplab.data.UserDirectoryCache;
 import com.example.looplab.data.model.Models;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.snackbar.Snackbar;
@@ -415,9 +417,12 @@ public class EditProfileActivity extends AppCompatActivity {
 
     private void saveProfileToFirestore() {
         String uid = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        currentUserProfile.updatedAt = System.currentTimeMillis();
 
         FirebaseRefs.users().document(uid).set(currentUserProfile)
                 .addOnSuccessListener(aVoid -> {
+                    CurrentUserCache.clear();
+                    UserDirectoryCache.invalidate(uid);
                     resetSaveButton();
                     showSuccessMessage();
 
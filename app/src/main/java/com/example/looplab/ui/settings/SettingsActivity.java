@@ -11,6 +11,10 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.app.AppCompatDelegate;
 
 import com.example.looplab.R;
+import com.example.looplab.data.CurrentUserCache;
+import com.example.looplab.data.CourseCatalogCache;
+import com.example.looplab.data.OfflineRepository;
+import com.example.looplab.data.UserDirectoryCache;
 import com.example.looplab.ui.auth.LoginActivity;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
@@ -185,6 +189,10 @@ public class SettingsActivity extends AppCompatActivity {
 
     private void logout() {
         auth.signOut();
+        CurrentUserCache.clear();
+        UserDirectoryCache.clear();
+        OfflineRepository.clear();
+        CourseCatalogCache.clear();
         
         // Clear any cached data
         preferences.edit().clear().apply();
@@ -0,0 +1,141 @@
+package com.example.looplab.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the server-sent events parser behind
+ * {@link AIChatbotService#streamMessage}, over in-memory buffers and a MockWebServer stub.
+ */
+public class AIChatbotServiceStreamTest {
+
+    private final List<String> chunks = new ArrayList<>();
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    private static String textEvent(String text) {
+        return "data: {\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"" + text + "\"}],\"role\":\"model\"}}]}\n\n";
+    }
+
+    private String read(String stream) throws IOException {
+        return AIChatbotService.readStream(new Buffer().writeUtf8(stream), chunks::add);
+    }
+
+    @Test
+    public void events_deliverTextInOrder() throws IOException {
+        assertNull(read(textEvent("Hel") + textEvent("lo") + "data: [DONE]\n\n"));
+        assertEquals(Arrays.asList("Hel", "lo"), chunks);
+    }
+
+    @Test
+    public void multiLineDataEvent_isJoinedBeforeParsing() throws IOException {
+        String stream = "data: {\"candidates\":[{\"content\":\n"
+                + "data: {\"parts\":[{\"text\":\"Split\"}]}}]}\n"
+                + "\n"
+                + textEvent(" event");
+        assertNull(read(stream));
+        assertEquals(Arrays.asList("Split", " event"), chunks);
+    }
+
+    @Test
+    public void trailingEventWithoutBlankLine_isDelivered() throws IOException {
+        String stream = textEvent("First") + "data: {\"candidates\":[{\"content\":{\"parts\":[{\"text\":\" last\"}]}}]}";
+        assertNull(read(stream));
+        assertEquals(Arrays.asList("First", " last"), chunks);
+    }
+
+    @Test
+    public void safetyFinishAfterPartialText_reportsBlockedAndStops() throws IOException {
+        String stream = textEvent("Partial answer")
+                + "data: {\"candidates\":[{\"finishReason\":\"SAFETY\"}]}\n\n"
+                + textEvent("never read");
+        String blocked = read(stream);
+        assertEquals("Response blocked due to safety policies", blocked);
+        assertEquals(Arrays.asList("Partial answer"), chunks);
+    }
+
+    @Test
+    public void emptyCandidatesAndMetadataEvents_areSkipped() throws IOException {
+        String stream = "data: {\"candidates\":[]}\n\n"
+                + ": keep-alive comment\n\n"
+                + "data: {\"usageMetadata\":{\"promptTokenCount\":12}}\n\n"
+                + textEvent("ok");
+        assertNull(read(stream));
+        assertEquals(Arrays.asList("ok"), chunks);
+    }
+
+    @Test
+    public void emptyStream_deliversNothing() throws IOException {
+        assertNull(read(""));
+        assertTrue(chunks.isEmpty());
+    }
+
+    @Test
+    public void truncatedFinalEvent_throwsEofAfterEarlierText() throws IOException {
+        String stream = textEvent("Before the drop") + "data: {\"candidates\":[{\"content\":{\"parts\":[{\"te";
+        try {
+            read(stream);
+            fail("Expected EOFException");
+        } catch (EOFException expected) {
+            assertEquals(Arrays.asList("Before the drop"), chunks);
+        }
+    }
+
+    @Test
+    public void mockServer_streamsChunkedResponse() throws IOException {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setChunkedBody(textEvent("Streamed") + textEvent(" reply"), 16));
+        try (Response response = get()) {
+            assertNull(AIChatbotService.readStream(response.body().source(), chunks::add));
+        }
+        assertEquals(Arrays.asList("Streamed", " reply"), chunks);
+    }
+
+    @Test
+    public void mockServer_disconnectMidBody_throwsAfterPartialText() throws IOException {
+        String body = textEvent("Partial") + textEvent("never completes");
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(body)
+                .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        try (Response response = get()) {
+            AIChatbotService.readStream(response.body().source(), chunks::add);
+            fail("Expected the cut-off stream to fail");
+        } catch (IOException expected) {
+            assertTrue(chunks.size() <= 1);
+            if (!chunks.isEmpty()) assertEquals("Partial", chunks.get(0));
+        }
+    }
+
+    private Response get() throws IOException {
+        return new OkHttpClient().newCall(new Request.Builder().url(server.url("/stream")).build()).execute();
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.looplab.data;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for how {@link EventService} splits event capacity over the attendee
+ * shards and picks a shard with free seats.
+ */
+public class EventServiceTest {
+
+    private static final int SHARDS = ShardedCounter.DEFAULT_SHARDS;
+
+    private static Map<String, Object> shard(long capacity, long attendees) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(EventService.CAPACITY, capacity);
+        data.put(EventService.CURRENT_ATTENDEES, attendees);
+        return data;
+    }
+
+    private static long totalSlots(long free, int numShards) {
+        long total = 0;
+        for (int i = 0; i < numShards; i++) {
+            total += EventService.slotsForShard(free, numShards, i);
+        }
+        return total;
+    }
+
+    @Test
+    public void slotsForShard_evenSplit() {
+        for (int i = 0; i < SHARDS; i++) {
+            assertEquals(5, EventService.slotsForShard(50, SHARDS, i));
+        }
+    }
+
+    @Test
+    public void slotsForShard_unevenSplitGivesTheRemainderToTheFirstShards() {
+        // 23 seats over 10 shards: three shards of 3, seven of 2
+        for (int i = 0; i < 3; i++) {
+            assertEquals(3, EventService.slotsForShard(23, SHARDS, i));
+        }
+        for (int i = 3; i < SHARDS; i++) {
+            assertEquals(2, EventService.slotsForShard(23, SHARDS, i));
+        }
+    }
+
+    @Test
+    public void slotsForShard_fewerSeatsThanShards() {
+        assertEquals(1, EventService.slotsForShard(4, SHARDS, 3));
+        assertEquals(0, EventService.slotsForShard(4, SHARDS, 4));
+        assertEquals(0, totalSlots(0, SHARDS));
+    }
+
+    @Test
+    public void slotsForShard_neverAllocatesMoreThanFree() {
+        for (long free = 0; free <= 250; free++) {
+            for (int numShards = 1; numShards <= 12; numShards++) {
+                assertEquals(free, totalSlots(free, numShards));
+            }
+        }
+    }
+
+    @Test
+    public void pickShardWithSeats_skipsFullShards() {
+        Map<String, Map<String, Object>> shards = new HashMap<>();
+        for (int i = 0; i < SHARDS; i++) {
+            shards.put(String.valueOf(i), shard(2, 2));
+        }
+        shards.put("6", shard(2, 1));
+
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(6, EventService.pickShardWithSeats(shards, SHARDS, random));
+        }
+    }
+
+    @Test
+    public void pickShardWithSeats_allShardsFull() {
+        Map<String, Map<String, Object>> shards = new HashMap<>();
+        for (int i = 0; i < SHARDS; i++) {
+            // An over-full shard (capacity lowered after sign-ups) counts as full too
+            shards.put(String.valueOf(i), i == 0 ? shard(1, 3) : shard(2, 2));
+        }
+
+        assertEquals(-1, EventService.pickShardWithSeats(shards, SHARDS, new Random(1)));
+    }
+
+    @Test
+    public void pickShardWithSeats_zeroCapacityShardsOfASmallEventAreFull() {
+        // 3 seats over 10 shards: only shards 0-2 can take anyone
+        Map<String, Map<String, Object>> shards = new HashMap<>();
+        for (int i = 0; i < SHARDS; i++) {
+            shards.put(String.valueOf(i), shard(EventService.slotsForShard(3, SHARDS, i), 0));
+        }
+
+        Set<Integer> picked = new HashSet<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            picked.add(EventService.pickShardWithSeats(shards, SHARDS, random));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2)), picked);
+    }
+
+    @Test
+    public void pickShardWithSeats_missingShardOrCapacityIsUnlimited() {
+        Map<String, Map<String, Object>> shards = new HashMap<>();
+        for (int i = 0; i < SHARDS; i++) {
+            shards.put(String.valueOf(i), shard(1, 1));
+        }
+        shards.remove("2");
+        shards.put("8", Collections.<String, Object>singletonMap(EventService.CURRENT_ATTENDEES, 40L));
+
+        Set<Integer> picked = new HashSet<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 200; i++) {
+            picked.add(EventService.pickShardWithSeats(shards, SHARDS, random));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(2, 8)), picked);
+    }
+
+    @Test
+    public void pickShardWithSeats_noShardsYet() {
+        int picked = EventService.pickShardWithSeats(
+                Collections.<String, Map<String, Object>>emptyMap(), SHARDS, new Random(9));
+
+        assertTrue(picked >= 0 && picked < SHARDS);
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.looplab.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SearchIndex}, plus a timing comparison against the linear
+ * {@code toLowerCase().contains()} filter the search boxes used before.
+ */
+public class SearchIndexTest {
+
+    static class Item {
+        final String id;
+        final String title;
+        final String description;
+
+        Item(String id, String title, String description) {
+            this.id = id;
+            this.title = title;
+            this.description = description;
+        }
+    }
+
+    private SearchIndex<Item> index;
+
+    private static SearchIndex<Item> newIndex() {
+        return new SearchIndex<>(item -> item.id, item -> new String[]{item.title, item.description});
+    }
+
+    private static List<String> ids(List<Item> items) {
+        List<String> ids = new ArrayList<>();
+        for (Item item : items) ids.add(item.id);
+        return ids;
+    }
+
+    @Before
+    public void setUp() {
+        index = newIndex();
+        index.replaceAll(Arrays.asList(
+                new Item("1", "Programming Basics", "Variables, loops and functions"),
+                new Item("2", "Advanced Java", "Generics and concurrency for programmers"),
+                new Item("3", "Web Design", "HTML and CSS basics"),
+                new Item("4", "Data Structures", null)));
+    }
+
+    @Test
+    public void blankQuery_returnsAllInIndexingOrder() {
+        assertEquals(Arrays.asList("1", "2", "3", "4"), ids(index.search("  ")));
+    }
+
+    @Test
+    public void prefix_matchesStartOfWord() {
+        assertEquals(Arrays.asList("1", "2"), ids(index.search("prog")));
+        assertEquals(Arrays.asList("4"), ids(index.search("STRUCT")));
+    }
+
+    @Test
+    public void infix_matchesThroughTrigrams() {
+        assertEquals(Arrays.asList("1", "2"), ids(index.search("gram")));
+        assertEquals(Arrays.asList("2"), ids(index.search("currenc")));
+    }
+
+    @Test
+    public void infix_shorterThanTrigramIsNotMatched() {
+        assertTrue(index.search("ra").isEmpty());
+    }
+
+    @Test
+    public void allTermsMustMatch() {
+        assertEquals(Arrays.asList("3"), ids(index.search("css basics")));
+        assertEquals(Arrays.asList("1"), ids(index.search("basics loops")));
+        assertTrue(index.search("java html").isEmpty());
+    }
+
+    @Test
+    public void ranking_exactBeforePrefixBeforeInfix_titleBeforeDescription() {
+        SearchIndex<Item> ranked = newIndex();
+        ranked.replaceAll(Arrays.asList(
+                new Item("infix", "Metadata", null),
+                new Item("prefix", "Database", null),
+                new Item("descExact", "Other", "data"),
+                new Item("exact", "Data", null)));
+        assertEquals(Arrays.asList("exact", "prefix", "descExact", "infix"), ids(ranked.search("data")));
+    }
+
+    @Test
+    public void ranking_tiesKeepIndexingOrder() {
+        SearchIndex<Item> ties = newIndex();
+        ties.replaceAll(Arrays.asList(
+                new Item("b", "Java Basics", null),
+                new Item("a", "Java Basics", null),
+                new Item("c", "Java", null)));
+        assertEquals(Arrays.asList("b", "a", "c"), ids(ties.search("java")));
+    }
+
+    @Test
+    public void replaceAll_addsUpdatesAndRemoves() {
+        index.replaceAll(Arrays.asList(
+                new Item("1", "Kotlin Basics", "Variables, loops and functions"),
+                new Item("3", "Web Design", "HTML and CSS basics"),
+                new Item("5", "Machine Learning", "Models")));
+
+        assertEquals(3, index.size());
+        // Updated: old title tokens are gone, new ones are found
+        assertTrue(index.search("java").isEmpty());
+        assertTrue(index.search("programming").isEmpty());
+        assertEquals(Arrays.asList("1"), ids(index.search("kotlin")));
+        // Removed
+        assertTrue(index.search("structures").isEmpty());
+        // Added
+        assertEquals(Arrays.asList("5"), ids(index.search("learn")));
+    }
+
+    @Test
+    public void put_sameTextKeepsNewestObject() {
+        Item replacement = new Item("4", "Data Structures", null);
+        index.put(replacement);
+        assertSame(replacement, index.search("data").get(0));
+    }
+
+    @Test
+    public void remove_dropsItemAndItsTrigrams() {
+        index.remove("2");
+        assertTrue(index.search("currenc").isEmpty());
+        assertEquals(Arrays.asList("1"), ids(index.search("gram")));
+    }
+
+    // Compares the index with the old per-keystroke scan over 10k items. Single-word queries of
+    // three or more letters match the same items both ways, so the result sets must agree.
+    // Selective queries (a few dozen hits) are the common case while typing; a query that hits
+    // most items is reported too, since ranking then dominates the cost of the index.
+    @Test
+    public void timing_againstLinearScan() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[3000];
+        for (int i = 0; i < vocabulary.length; i++) vocabulary[i] = word(random);
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            String title = vocabulary[random.nextInt(vocabulary.length)] + " " + vocabulary[random.nextInt(vocabulary.length)];
+            StringBuilder description = new StringBuilder();
+            for (int w = 0; w < 12; w++) description.append(vocabulary[random.nextInt(vocabulary.length)]).append(' ');
+            items.add(new Item(String.valueOf(i), title, description.toString() + "course"));
+        }
+        SearchIndex<Item> big = newIndex();
+        long buildStart = System.nanoTime();
+        big.replaceAll(items);
+        long buildNanos = System.nanoTime() - buildStart;
+
+        String[] selective = new String[20];
+        for (int i = 0; i < selective.length; i++) {
+            String word = vocabulary[random.nextInt(vocabulary.length)];
+            // Alternate prefixes and infixes
+            selective[i] = i % 2 == 0 ? word.substring(0, 4) : word.substring(1, 5);
+        }
+        String[] broad = {"course"};
+        for (String query : selective) {
+            assertEquals(query, new HashSet<>(ids(linearScan(items, query))), new HashSet<>(ids(big.search(query))));
+        }
+        assertEquals(items.size(), big.search("course").size());
+
+        double selectiveLinear = time(selective, query -> linearScan(items, query));
+        double selectiveIndex = time(selective, big::search);
+        double broadLinear = time(broad, query -> linearScan(items, query));
+        double broadIndex = time(broad, big::search);
+        System.out.println(String.format(Locale.ROOT,
+                "SearchIndex over %d items (build %.1f ms): selective query %.3f ms vs linear %.3f ms; "
+                        + "query matching every item %.3f ms vs linear %.3f ms",
+                items.size(), buildNanos / 1e6, selectiveIndex, selectiveLinear, broadIndex, broadLinear));
+        assertTrue("selective queries should beat the linear scan", selectiveIndex < selectiveLinear);
+    }
+
+    // Random lowercase word of 5 to 9 letters
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 5 + random.nextInt(5);
+        for (int i = 0; i < length; i++) word.append((char) ('a' + random.nextInt(26)));
+        return word.toString();
+    }
+
+    // Unchanged snapshot: replaceAll only compares text, it does not re-tokenize
+    @Test
+    public void timing_replaceAllWithUnchangedItemsIsCheap() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) items.add(new Item(String.valueOf(i), "Course " + i, "Description " + i));
+        SearchIndex<Item> big = newIndex();
+        big.replaceAll(items);
+        long start = System.nanoTime();
+        big.replaceAll(items);
+        System.out.println(String.format(Locale.ROOT,
+                "SearchIndex replaceAll of %d unchanged items: %.1f ms", items.size(), (System.nanoTime() - start) / 1e6));
+        assertEquals(10_000, big.size());
+    }
+
+    private interface Search {
+        List<Item> run(String query);
+    }
+
+    // Mean milliseconds per query, after a warm-up
+    private static double time(String[] queries, Search search) {
+        int rounds = 20;
+        for (int i = 0; i < 5; i++) for (String query : queries) search.run(query);
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) for (String query : queries) search.run(query);
+        return (System.nanoTime() - start) / 1e6 / (rounds * queries.length);
+    }
+
+    // The filter the search boxes ran on every keystroke before the index
+    private static List<Item> linearScan(List<Item> items, String query) {
+        String lowerQuery = query.toLowerCase();
+        List<Item> results = new ArrayList<>();
+        for (Item item : items) {
+            if (item.title.toLowerCase().contains(lowerQuery)
+                    || (item.description != null && item.description.toLowerCase().contains(lowerQuery))) {
+                results.add(item);
+            }
+        }
+        return results;
+    }
+}
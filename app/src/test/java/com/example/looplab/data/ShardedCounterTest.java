@@ -0,0 +1,103 @@
+package com.example.looplab.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the shard picking and summing of {@link ShardedCounter}.
+ */
+public class ShardedCounterTest {
+
+    private static Map<String, Object> shard(Object... fieldsAndValues) {
+        Map<String, Object> data = new HashMap<>();
+        for (int i = 0; i < fieldsAndValues.length; i += 2) {
+            data.put((String) fieldsAndValues[i], fieldsAndValues[i + 1]);
+        }
+        return data;
+    }
+
+    @Test
+    public void pickShard_staysInRange() {
+        Random random = new Random(42);
+        for (int numShards = 1; numShards <= 20; numShards++) {
+            for (int i = 0; i < 1000; i++) {
+                int index = ShardedCounter.pickShard(numShards, random);
+                assertTrue(index >= 0 && index < numShards);
+            }
+        }
+    }
+
+    @Test
+    public void pickShard_spreadsWritesOverEveryShard() {
+        Random random = new Random(7);
+        int numShards = ShardedCounter.DEFAULT_SHARDS;
+        int draws = 100_000;
+        int[] hits = new int[numShards];
+        for (int i = 0; i < draws; i++) {
+            hits[ShardedCounter.pickShard(numShards, random)]++;
+        }
+        int expected = draws / numShards;
+        for (int i = 0; i < numShards; i++) {
+            // Within 5% of an even split
+            assertTrue("shard " + i + " got " + hits[i], Math.abs(hits[i] - expected) < expected / 20);
+        }
+    }
+
+    @Test
+    public void sum_addsEachFieldOverAllShards() {
+        Map<String, Long> totals = ShardedCounter.sum(Arrays.asList(
+                shard("enrolledCount", 3L, "completedCount", 1L),
+                shard("enrolledCount", 5L),
+                shard("completedCount", 2L)));
+
+        assertEquals(8, ShardedCounter.valueOf(totals, "enrolledCount"));
+        assertEquals(3, ShardedCounter.valueOf(totals, "completedCount"));
+        assertEquals(2, totals.size());
+    }
+
+    @Test
+    public void sum_countsDecrementsAndMixedNumberTypes() {
+        Map<String, Long> totals = ShardedCounter.sum(Arrays.asList(
+                shard("count", 10L),
+                shard("count", -4L),
+                shard("count", 2.0),
+                shard("count", 1)));
+
+        assertEquals(9, ShardedCounter.valueOf(totals, "count"));
+    }
+
+    @Test
+    public void sum_ignoresNonNumericFieldsAndEmptyShards() {
+        List<Map<String, Object>> shards = new ArrayList<>();
+        shards.add(shard("count", 4L, "label", "shard 0", "active", true));
+        shards.add(null);
+        shards.add(Collections.emptyMap());
+
+        Map<String, Long> totals = ShardedCounter.sum(shards);
+
+        assertEquals(Collections.singletonMap("count", 4L), totals);
+    }
+
+    @Test
+    public void sum_ofNoShardsIsEmpty() {
+        Map<String, Long> totals = ShardedCounter.sum(Collections.<Map<String, Object>>emptyList());
+
+        assertTrue(totals.isEmpty());
+        assertEquals(0, ShardedCounter.valueOf(totals, "enrolledCount"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void sum_resultIsReadOnly() {
+        // Totals are shared through the cache, so callers must not be able to edit them
+        ShardedCounter.sum(Collections.singletonList(shard("count", 1L))).put("count", 2L);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.looplab.ui.lists;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the diff rules of {@link DiffingListAdapter}: rows are matched by
+ * document id and a change in one row dispatches one update instead of a full rebind.
+ */
+public class DiffingListAdapterTest {
+
+    static class Row {
+        final String id;
+        final String text;
+
+        Row(String id, String text) {
+            this.id = id;
+            this.text = text;
+        }
+    }
+
+    static class RowCallback extends DiffingListAdapter.KeyedItemCallback<Row> {
+        @Override
+        String keyOf(@NonNull Row item) {
+            return item.id;
+        }
+
+        @Override
+        boolean contentsSame(@NonNull Row oldItem, @NonNull Row newItem) {
+            return Objects.equals(oldItem.text, newItem.text);
+        }
+    }
+
+    // Records the updates a RecyclerView would receive
+    static class RecordingCallback implements ListUpdateCallback {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position, int count) {
+            events.add("insert " + position + "+" + count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            events.add("remove " + position + "+" + count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            events.add("move " + fromPosition + "->" + toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            events.add("change " + position + "+" + count);
+        }
+    }
+
+    private final RowCallback callback = new RowCallback();
+
+    private static List<Row> rows(int count) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) rows.add(new Row("doc" + i, "text " + i));
+        return rows;
+    }
+
+    // Same diff AsyncListDiffer runs for ListAdapter.submitList
+    private List<String> diff(List<Row> oldList, List<Row> newList) {
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldList.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newList.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return callback.areItemsTheSame(oldList.get(oldPosition), newList.get(newPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return callback.areContentsTheSame(oldList.get(oldPosition), newList.get(newPosition));
+            }
+        });
+        RecordingCallback recorder = new RecordingCallback();
+        result.dispatchUpdatesTo(recorder);
+        return recorder.events;
+    }
+
+    @Test
+    public void sameKey_isSameItem() {
+        assertTrue(callback.areItemsTheSame(new Row("a", "old"), new Row("a", "new")));
+        assertFalse(callback.areItemsTheSame(new Row("a", "same"), new Row("b", "same")));
+    }
+
+    @Test
+    public void contents_useTheSubclassRule() {
+        assertTrue(callback.areContentsTheSame(new Row("a", "x"), new Row("a", "x")));
+        assertFalse(callback.areContentsTheSame(new Row("a", "x"), new Row("a", "y")));
+    }
+
+    @Test
+    public void unchangedList_dispatchesNothing() {
+        // Fresh objects with equal fields, as a snapshot listener delivers them
+        assertEquals(Collections.emptyList(), diff(rows(50), rows(50)));
+    }
+
+    @Test
+    public void oneChangedRow_dispatchesOneChange() {
+        List<Row> updated = rows(50);
+        updated.set(20, new Row("doc20", "edited"));
+
+        assertEquals(Collections.singletonList("change 20+1"), diff(rows(50), updated));
+    }
+
+    @Test
+    public void appendedRow_dispatchesOneInsert() {
+        List<Row> updated = rows(50);
+        updated.add(new Row("doc50", "new message"));
+
+        assertEquals(Collections.singletonList("insert 50+1"), diff(rows(50), updated));
+    }
+
+    @Test
+    public void removedRow_dispatchesOneRemove() {
+        List<Row> updated = rows(50);
+        updated.remove(7);
+
+        assertEquals(Collections.singletonList("remove 7+1"), diff(rows(50), updated));
+    }
+
+    @Test
+    public void movedRow_keepsItsIdentity() {
+        List<Row> updated = rows(5);
+        Row moved = updated.remove(4);
+        updated.add(0, moved);
+
+        List<String> events = diff(rows(5), updated);
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).startsWith("move "));
+    }
+}